@@ -6,11 +6,26 @@ import org.bukkit.plugin.java.JavaPlugin;
 import pl.dsocraft.auctionhouse.commands.*;
 import pl.dsocraft.auctionhouse.database.DatabaseManager;
 import pl.dsocraft.auctionhouse.managers.AuctionManager;
+import pl.dsocraft.auctionhouse.managers.EconomyOutboxManager;
+import pl.dsocraft.auctionhouse.managers.ListingIndexManager;
+import pl.dsocraft.auctionhouse.managers.MailboxSummaryManager;
 import pl.dsocraft.auctionhouse.managers.MessageManager;
+import pl.dsocraft.auctionhouse.managers.MetricsManager;
+import pl.dsocraft.auctionhouse.managers.OrderBookManager;
+import pl.dsocraft.auctionhouse.managers.PriceStatsManager;
+import pl.dsocraft.auctionhouse.managers.SearchCacheManager;
+import pl.dsocraft.auctionhouse.managers.SellerDirectoryManager;
+import pl.dsocraft.auctionhouse.managers.ShopViewerManager;
+import pl.dsocraft.auctionhouse.managers.WarmupManager;
+import pl.dsocraft.auctionhouse.managers.SkullCacheManager;
+import pl.dsocraft.auctionhouse.managers.ThrottleManager;
 import pl.dsocraft.auctionhouse.managers.GUIManager;
 import pl.dsocraft.auctionhouse.listeners.InventoryClickListener;
 import pl.dsocraft.auctionhouse.listeners.PlayerChatListener;
+import pl.dsocraft.auctionhouse.listeners.PlayerJoinListener;
+import pl.dsocraft.auctionhouse.listeners.TabCompleteListener;
 import pl.dsocraft.auctionhouse.tasks.CleanupTask;
+import pl.dsocraft.auctionhouse.utils.IoExecutor;
 
 import java.util.Objects;
 import java.util.logging.Level;
@@ -23,11 +38,26 @@ public class DSOAuctionHouse extends JavaPlugin {
     private AuctionManager auctionManager;
     private MessageManager messageManager;
     private GUIManager guiManager;
+    private MetricsManager metricsManager;
+    private PriceStatsManager priceStatsManager;
+    private MailboxSummaryManager mailboxSummaryManager;
+    private IoExecutor ioExecutor;
+    private OrderBookManager orderBookManager;
+    private ListingIndexManager listingIndexManager;
+    private SearchCacheManager searchCacheManager;
+    private SellerDirectoryManager sellerDirectoryManager;
+    private SkullCacheManager skullCacheManager;
+    private ThrottleManager throttleManager;
+    private EconomyOutboxManager economyOutboxManager;
+    private ShopViewerManager shopViewerManager;
+    private WarmupManager warmupManager;
+    private volatile Settings settings;
 
     @Override
     public void onEnable() {
         instance = this;
         saveDefaultConfig(); // Copies config.yml if it doesn't exist
+        this.settings = Settings.load(getConfig(), getLogger());
 
         if (!setupEconomy()) {
             getLogger().severe("Disabled due to no Vault dependency found or no economy plugin!");
@@ -35,6 +65,9 @@ public class DSOAuctionHouse extends JavaPlugin {
             return;
         }
 
+        this.metricsManager = new MetricsManager();
+        this.warmupManager = new WarmupManager(this);
+        this.ioExecutor = new IoExecutor(this);
         this.messageManager = new MessageManager(this); // Initialize MessageManager
         this.databaseManager = new DatabaseManager(this);
         if (!databaseManager.isConnected()) {
@@ -42,13 +75,29 @@ public class DSOAuctionHouse extends JavaPlugin {
             getServer().getPluginManager().disablePlugin(this);
             return;
         }
-
+        warmupManager.markPhase("database");
+
+        this.throttleManager = new ThrottleManager(this);
+        this.economyOutboxManager = new EconomyOutboxManager(this);
+        economyOutboxManager.start();
+        this.priceStatsManager = new PriceStatsManager(this);
+        this.mailboxSummaryManager = new MailboxSummaryManager(this);
+        this.searchCacheManager = new SearchCacheManager(this);
+        this.sellerDirectoryManager = new SellerDirectoryManager(this);
+        this.skullCacheManager = new SkullCacheManager(this);
         this.auctionManager = new AuctionManager(this);
         this.guiManager = new GUIManager(this);
+        this.shopViewerManager = new ShopViewerManager(this);
+        this.listingIndexManager = new ListingIndexManager(this);
+        this.orderBookManager = new OrderBookManager(this); // Also loads and maintains the listing index
+        orderBookManager.start();
 
         registerCommands();
         registerListeners();
 
+        // Load listings, names, ranks and skulls in parallel; commands wait for it
+        warmupManager.start();
+
         // Start cleanup task
         new CleanupTask(this).start();
 
@@ -57,12 +106,30 @@ public class DSOAuctionHouse extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (orderBookManager != null) {
+            orderBookManager.stop(); // Writes pending fills before the pool closes
+        }
+        if (ioExecutor != null) {
+            ioExecutor.shutdown();
+        }
+        if (skullCacheManager != null) {
+            skullCacheManager.save();
+        }
         if (databaseManager != null) {
             databaseManager.closeConnection();
         }
         getLogger().info("DSOAuctionHouse has been disabled!");
     }
 
+    /**
+     * Reloads config.yml and swaps in a new settings snapshot and the recompiled messages.
+     */
+    public void reloadSettings() {
+        reloadConfig();
+        this.settings = Settings.load(getConfig(), getLogger());
+        messageManager.reload();
+    }
+
     private boolean setupEconomy() {
         if (getServer().getPluginManager().getPlugin("Vault") == null) {
             return false;
@@ -97,12 +164,18 @@ public class DSOAuctionHouse extends JavaPlugin {
     private void registerListeners() {
         getServer().getPluginManager().registerEvents(new InventoryClickListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerChatListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerJoinListener(this), this);
+        getServer().getPluginManager().registerEvents(new TabCompleteListener(this), this);
     }
 
     public static DSOAuctionHouse getInstance() {
         return instance;
     }
 
+    public Settings getSettings() {
+        return settings;
+    }
+
     public DatabaseManager getDatabaseManager() {
         return databaseManager;
     }
@@ -122,4 +195,56 @@ public class DSOAuctionHouse extends JavaPlugin {
     public GUIManager getGuiManager() {
         return guiManager;
     }
+
+    public MetricsManager getMetricsManager() {
+        return metricsManager;
+    }
+
+    public PriceStatsManager getPriceStatsManager() {
+        return priceStatsManager;
+    }
+
+    public MailboxSummaryManager getMailboxSummaryManager() {
+        return mailboxSummaryManager;
+    }
+
+    public IoExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+
+    public OrderBookManager getOrderBookManager() {
+        return orderBookManager;
+    }
+
+    public ListingIndexManager getListingIndexManager() {
+        return listingIndexManager;
+    }
+
+    public SearchCacheManager getSearchCacheManager() {
+        return searchCacheManager;
+    }
+
+    public SellerDirectoryManager getSellerDirectoryManager() {
+        return sellerDirectoryManager;
+    }
+
+    public SkullCacheManager getSkullCacheManager() {
+        return skullCacheManager;
+    }
+
+    public ThrottleManager getThrottleManager() {
+        return throttleManager;
+    }
+
+    public EconomyOutboxManager getEconomyOutboxManager() {
+        return economyOutboxManager;
+    }
+
+    public ShopViewerManager getShopViewerManager() {
+        return shopViewerManager;
+    }
+
+    public WarmupManager getWarmupManager() {
+        return warmupManager;
+    }
 }
@@ -0,0 +1,349 @@
+package pl.dsocraft.auctionhouse;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Typed snapshot of config.yml, read once when the plugin starts and again on /ahadmin reload.
+ * <p>
+ * Components read their settings from here instead of looking them up in the config tree on
+ * every use. A snapshot never changes; a reload builds a new one and swaps it in as a whole, so
+ * a reader never sees half of an old and half of a new config. Settings that are used to build
+ * something at startup, such as the connection pool or the I/O threads, take effect on restart.
+ * Messages are compiled by the MessageManager.
+ */
+public final class Settings {
+
+    private static final Material DEFAULT_FILLER = Material.BLACK_STAINED_GLASS_PANE;
+
+    // Database
+    private final String databaseHost;
+    private final int databasePort;
+    private final String databaseName;
+    private final String databaseUser;
+    private final String databasePassword;
+    private final boolean databaseUseSSL;
+    private final boolean databaseAutoReconnect;
+    private final int databaseFetchSize;
+    private final int poolMaximumSize;
+    private final int poolMinimumIdle;
+
+    // GUI
+    private final String mainTitle;
+    private final String playerItemsTitleTemplate;
+    private final String browseTitleTemplate;
+    private final String mailboxTitle;
+    private final Material fillerMaterial;
+    private final String previousPageButton;
+    private final String nextPageButton;
+    private final String backButton;
+    private final String mailboxButton;
+    private final String claimAllButton;
+    private final String buyAllButton;
+    private final String buyOneButton;
+    private final String buyAmountButton;
+    private final String buySingleButton;
+    private final int guiSessionIdleMinutes;
+
+    // Cleanup
+    private final long cleanupIntervalMinutes;
+    private final int cleanupBatchSize;
+    private final long cleanupMaxLockMillis;
+    private final long cleanupPauseMillis;
+    private final int mailboxRetentionDays;
+
+    // Auction limits, by lowercase LuckPerms group name
+    private final int defaultAuctionLimit;
+    private final Map<String, Integer> groupAuctionLimits;
+
+    // Background work and caches
+    private final boolean ioVirtualThreads;
+    private final int ioThreads;
+    private final int priceStatsMaxItemKeys;
+    private final int searchCacheMaxEntries;
+    private final int searchCacheTtlSeconds;
+    private final long economyOutboxIntervalSeconds;
+    private final int throttleBurst;
+    private final double throttlePerSecond;
+    private final int skullCacheTtlHours;
+    private final long skullCacheSaveIntervalMinutes;
+
+    // Commands
+    private final int maxBuyOrdersPerPlayer;
+    private final int searchMaxResults;
+    private final int tabCompleteMaxResults;
+
+    private Settings(FileConfiguration config, Logger logger) {
+        this.databaseHost = config.getString("database.host");
+        this.databasePort = config.getInt("database.port");
+        this.databaseName = config.getString("database.name");
+        this.databaseUser = config.getString("database.user");
+        this.databasePassword = config.getString("database.password");
+        this.databaseUseSSL = config.getBoolean("database.useSSL", false);
+        this.databaseAutoReconnect = config.getBoolean("database.autoReconnect", true);
+        this.databaseFetchSize = Math.max(1, config.getInt("database.fetch_size", 500));
+        this.poolMaximumSize = Math.max(2, config.getInt("database.pool.maximum_size", 25));
+        this.poolMinimumIdle = Math.min(poolMaximumSize, Math.max(0, config.getInt("database.pool.minimum_idle", 12)));
+
+        this.mainTitle = config.getString("gui.main_title", "&1&lDSO Auction House");
+        this.playerItemsTitleTemplate = config.getString("gui.player_items_title_template", "&1&l{player_name}'s Auctions");
+        this.browseTitleTemplate = config.getString("gui.browse_title_template", "&1&lCheapest: {item_name}");
+        this.mailboxTitle = config.getString("gui.mailbox_title", "&1&lYour Mailbox");
+        this.fillerMaterial = parseMaterial(config.getString("gui.filler_item", DEFAULT_FILLER.name()), logger);
+        this.previousPageButton = config.getString("gui.buttons.previous_page", "&cPrevious Page");
+        this.nextPageButton = config.getString("gui.buttons.next_page", "&aNext Page");
+        this.backButton = config.getString("gui.buttons.back", "&eBack");
+        this.mailboxButton = config.getString("gui.buttons.mailbox", "&eMailbox");
+        this.claimAllButton = config.getString("gui.buttons.claim_all", "&aClaim All");
+        this.buyAllButton = config.getString("gui.buttons.confirm_purchase_lmb", "&aBuy All (LMB)");
+        this.buyOneButton = config.getString("gui.buttons.confirm_purchase_rmb", "&aBuy One (RMB)");
+        this.buyAmountButton = config.getString("gui.buttons.confirm_purchase_mmb", "&aBuy Amount (MMB)");
+        this.buySingleButton = config.getString("gui.buttons.confirm_purchase_single", "&aBuy Item");
+        this.guiSessionIdleMinutes = Math.max(1, config.getInt("gui_sessions.idle_minutes", 15));
+
+        this.cleanupIntervalMinutes = Math.max(1, config.getLong("cleanup.interval_minutes", 30));
+        this.cleanupBatchSize = config.getInt("cleanup.batch_size", 500);
+        this.cleanupMaxLockMillis = Math.max(1, config.getLong("cleanup.max_lock_millis", 50));
+        this.cleanupPauseMillis = Math.max(0, config.getLong("cleanup.pause_millis", 100));
+        this.mailboxRetentionDays = config.getInt("cleanup.mailbox_retention_days", 90);
+
+        this.defaultAuctionLimit = config.getInt("limits.default", 20);
+        Map<String, Integer> limits = new HashMap<>();
+        ConfigurationSection limitSection = config.getConfigurationSection("limits");
+        if (limitSection != null) {
+            for (String group : limitSection.getKeys(false)) {
+                limits.put(group.toLowerCase(), limitSection.getInt(group));
+            }
+        }
+        this.groupAuctionLimits = Collections.unmodifiableMap(limits);
+
+        this.ioVirtualThreads = config.getBoolean("io.virtual_threads", true);
+        this.ioThreads = Math.max(2, config.getInt("io.threads", 8));
+        this.priceStatsMaxItemKeys = Math.max(100, config.getInt("price_stats.max_item_keys", 5000));
+        this.searchCacheMaxEntries = Math.max(1, config.getInt("search_cache.max_entries", 256));
+        this.searchCacheTtlSeconds = Math.max(1, config.getInt("search_cache.ttl_seconds", 300));
+        this.economyOutboxIntervalSeconds = Math.max(1, config.getLong("economy_outbox.interval_seconds", 10));
+        this.throttleBurst = Math.max(1, config.getInt("throttle.burst", 8));
+        this.throttlePerSecond = Math.max(0.1, config.getDouble("throttle.per_second", 4.0));
+        this.skullCacheTtlHours = Math.max(1, config.getInt("skull_cache.ttl_hours", 72));
+        this.skullCacheSaveIntervalMinutes = Math.max(1, config.getLong("skull_cache.save_interval_minutes", 5));
+
+        this.maxBuyOrdersPerPlayer = config.getInt("buy_orders.max_per_player", 10);
+        this.searchMaxResults = config.getInt("search.max_results", 450);
+        this.tabCompleteMaxResults = Math.max(1, config.getInt("tab_complete.max_results", 50));
+    }
+
+    /**
+     * Reads a snapshot of a config.
+     *
+     * @param config The loaded config.
+     * @param logger Logger for invalid values, which are replaced by their defaults.
+     * @return The snapshot.
+     */
+    public static Settings load(FileConfiguration config, Logger logger) {
+        return new Settings(config, logger);
+    }
+
+    private static Material parseMaterial(String name, Logger logger) {
+        Material material = name != null ? Material.matchMaterial(name) : null;
+        if (material == null) {
+            logger.warning("Unknown gui.filler_item '" + name + "', using " + DEFAULT_FILLER.name() + ".");
+            return DEFAULT_FILLER;
+        }
+        return material;
+    }
+
+    /**
+     * Gets the auction limit of a LuckPerms group.
+     *
+     * @param groupName The group name, in any case.
+     * @return The limit, or null if the group has none configured.
+     */
+    public Integer getGroupAuctionLimit(String groupName) {
+        return groupAuctionLimits.get(groupName.toLowerCase());
+    }
+
+    // Getters
+
+    public String getDatabaseHost() {
+        return databaseHost;
+    }
+
+    public int getDatabasePort() {
+        return databasePort;
+    }
+
+    public String getDatabaseName() {
+        return databaseName;
+    }
+
+    public String getDatabaseUser() {
+        return databaseUser;
+    }
+
+    public String getDatabasePassword() {
+        return databasePassword;
+    }
+
+    public boolean isDatabaseUseSSL() {
+        return databaseUseSSL;
+    }
+
+    public boolean isDatabaseAutoReconnect() {
+        return databaseAutoReconnect;
+    }
+
+    public int getDatabaseFetchSize() {
+        return databaseFetchSize;
+    }
+
+    public int getPoolMaximumSize() {
+        return poolMaximumSize;
+    }
+
+    public int getPoolMinimumIdle() {
+        return poolMinimumIdle;
+    }
+
+    public String getMainTitle() {
+        return mainTitle;
+    }
+
+    public String getPlayerItemsTitleTemplate() {
+        return playerItemsTitleTemplate;
+    }
+
+    public String getBrowseTitleTemplate() {
+        return browseTitleTemplate;
+    }
+
+    public String getMailboxTitle() {
+        return mailboxTitle;
+    }
+
+    public Material getFillerMaterial() {
+        return fillerMaterial;
+    }
+
+    public String getPreviousPageButton() {
+        return previousPageButton;
+    }
+
+    public String getNextPageButton() {
+        return nextPageButton;
+    }
+
+    public String getBackButton() {
+        return backButton;
+    }
+
+    public String getMailboxButton() {
+        return mailboxButton;
+    }
+
+    public String getClaimAllButton() {
+        return claimAllButton;
+    }
+
+    public String getBuyAllButton() {
+        return buyAllButton;
+    }
+
+    public String getBuyOneButton() {
+        return buyOneButton;
+    }
+
+    public String getBuyAmountButton() {
+        return buyAmountButton;
+    }
+
+    public String getBuySingleButton() {
+        return buySingleButton;
+    }
+
+    public int getGuiSessionIdleMinutes() {
+        return guiSessionIdleMinutes;
+    }
+
+    public long getCleanupIntervalMinutes() {
+        return cleanupIntervalMinutes;
+    }
+
+    public int getCleanupBatchSize() {
+        return cleanupBatchSize;
+    }
+
+    public long getCleanupMaxLockMillis() {
+        return cleanupMaxLockMillis;
+    }
+
+    public long getCleanupPauseMillis() {
+        return cleanupPauseMillis;
+    }
+
+    public int getMailboxRetentionDays() {
+        return mailboxRetentionDays;
+    }
+
+    public int getDefaultAuctionLimit() {
+        return defaultAuctionLimit;
+    }
+
+    public boolean isIoVirtualThreads() {
+        return ioVirtualThreads;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public int getPriceStatsMaxItemKeys() {
+        return priceStatsMaxItemKeys;
+    }
+
+    public int getSearchCacheMaxEntries() {
+        return searchCacheMaxEntries;
+    }
+
+    public int getSearchCacheTtlSeconds() {
+        return searchCacheTtlSeconds;
+    }
+
+    public long getEconomyOutboxIntervalSeconds() {
+        return economyOutboxIntervalSeconds;
+    }
+
+    public int getThrottleBurst() {
+        return throttleBurst;
+    }
+
+    public double getThrottlePerSecond() {
+        return throttlePerSecond;
+    }
+
+    public int getSkullCacheTtlHours() {
+        return skullCacheTtlHours;
+    }
+
+    public long getSkullCacheSaveIntervalMinutes() {
+        return skullCacheSaveIntervalMinutes;
+    }
+
+    public int getMaxBuyOrdersPerPlayer() {
+        return maxBuyOrdersPerPlayer;
+    }
+
+    public int getSearchMaxResults() {
+        return searchMaxResults;
+    }
+
+    public int getTabCompleteMaxResults() {
+        return tabCompleteMaxResults;
+    }
+}
@@ -6,6 +6,8 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
 
+import java.util.List;
+
 /**
  * Handles the /ahadmin command.
  */
@@ -34,6 +36,8 @@ public class AdminCommand implements CommandExecutor {
         switch (subCommand) {
             case "reload":
                 return handleReloadCommand(sender);
+            case "metrics":
+                return handleMetricsCommand(sender, args);
             case "help":
                 sendAdminHelp(sender);
                 return true;
@@ -51,11 +55,32 @@ public class AdminCommand implements CommandExecutor {
      */
     private boolean handleReloadCommand(CommandSender sender) {
         // Reload the plugin's configuration
-        plugin.reloadConfig();
+        plugin.reloadSettings();
         plugin.getMessageManager().sendRawMessage(sender, "&aAuction House configuration reloaded.");
         return true;
     }
 
+    /**
+     * Handles the /ahadmin metrics [prefix] command.
+     *
+     * @param sender The command sender.
+     * @param args The command arguments.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handleMetricsCommand(CommandSender sender, String[] args) {
+        String filter = args.length > 1 ? args[1].toLowerCase() : null;
+        List<String> lines = plugin.getMetricsManager().snapshot(filter);
+
+        plugin.getMessageManager().sendRawMessage(sender, "&6=== &eAuction House Metrics &6===");
+        if (lines.isEmpty()) {
+            plugin.getMessageManager().sendRawMessage(sender, "&7No metrics recorded yet.");
+        }
+        for (String line : lines) {
+            plugin.getMessageManager().sendRawMessage(sender, "&7" + line);
+        }
+        return true;
+    }
+
     /**
      * Sends the admin help message.
      *
@@ -64,6 +89,7 @@ public class AdminCommand implements CommandExecutor {
     private void sendAdminHelp(CommandSender sender) {
         plugin.getMessageManager().sendRawMessage(sender, "&6=== &eAuction House Admin Help &6===");
         plugin.getMessageManager().sendRawMessage(sender, "&e/ahadmin reload &7- Reload the plugin configuration");
+        plugin.getMessageManager().sendRawMessage(sender, "&e/ahadmin metrics [prefix] &7- Show runtime metrics");
         plugin.getMessageManager().sendRawMessage(sender, "&e/ahadmin help &7- Show this help message");
     }
 }
\ No newline at end of file
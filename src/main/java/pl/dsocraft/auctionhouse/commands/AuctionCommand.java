@@ -1,13 +1,23 @@
 package pl.dsocraft.auctionhouse.commands;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
 import pl.dsocraft.auctionhouse.database.AuctionItem;
+import pl.dsocraft.auctionhouse.database.BuyOrder;
+import pl.dsocraft.auctionhouse.database.MailboxSummary;
+import pl.dsocraft.auctionhouse.managers.MessageManager;
+import pl.dsocraft.auctionhouse.managers.PriceStatsManager;
+import pl.dsocraft.auctionhouse.utils.FacetQuery;
+import pl.dsocraft.auctionhouse.utils.ItemKeys;
+import pl.dsocraft.auctionhouse.utils.PriceCodec;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -36,6 +46,14 @@ public class AuctionCommand implements CommandExecutor {
             return true;
         }
 
+        if (!plugin.getWarmupManager().checkReady(player)) {
+            return true;
+        }
+
+        if (!plugin.getThrottleManager().tryAcquire(player, "command")) {
+            return true;
+        }
+
         // Handle subcommands
         if (args.length > 0) {
             String subCommand = args[0].toLowerCase();
@@ -45,6 +63,20 @@ public class AuctionCommand implements CommandExecutor {
                     return handleFindCommand(player, args);
                 case "mailbox":
                     return handleMailboxCommand(player);
+                case "price":
+                    return handlePriceCommand(player, args);
+                case "claimall":
+                    return handleClaimAllCommand(player);
+                case "browse":
+                    return handleBrowseCommand(player, args);
+                case "search":
+                    return handleSearchCommand(player, args);
+                case "order":
+                    return handleOrderCommand(player, args);
+                case "orders":
+                    return handleOrdersCommand(player);
+                case "cancelorder":
+                    return handleCancelOrderCommand(player, args);
                 case "help":
                     return handleHelpCommand(player);
                 default:
@@ -98,11 +130,257 @@ public class AuctionCommand implements CommandExecutor {
      * @return true if the command was handled, false otherwise.
      */
     private boolean handleMailboxCommand(Player player) {
+        // Don't load the whole mailbox if the cached summary already says it's empty
+        MailboxSummary summary = plugin.getMailboxSummaryManager().getSummary(player.getUniqueId());
+        if (summary != null && summary.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "mailbox_empty");
+            return true;
+        }
+
         // Open the mailbox GUI
         plugin.getGuiManager().openMailboxGUI(player);
         return true;
     }
 
+    /**
+     * Handles the /ah claimall command.
+     *
+     * @param player The player who executed the command.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handleClaimAllCommand(Player player) {
+        plugin.getGuiManager().claimAllMailboxItems(player);
+        return true;
+    }
+
+    /**
+     * Handles the /ah price [material] command.
+     * Without an argument, the item in the player's main hand is used.
+     *
+     * @param player The player who executed the command.
+     * @param args The command arguments.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handlePriceCommand(Player player, String[] args) {
+        String itemKey;
+        String itemName;
+
+        if (args.length >= 2) {
+            Material material = Material.matchMaterial(args[1]);
+            if (material == null) {
+                plugin.getMessageManager().sendRawMessage(player, "&cUnknown item: " + args[1]);
+                return true;
+            }
+            itemKey = ItemKeys.of(material);
+            itemName = material.name();
+        } else {
+            ItemStack itemInHand = player.getInventory().getItemInMainHand();
+            if (itemInHand == null || itemInHand.getType().isAir()) {
+                plugin.getMessageManager().sendRawMessage(player, "&cUsage: /ah price [item] (or hold the item in your hand)");
+                return true;
+            }
+            itemKey = ItemKeys.of(itemInHand);
+            itemName = plugin.getAuctionManager().getItemDisplayName(itemInHand);
+        }
+
+        PriceStatsManager.Snapshot stats = plugin.getPriceStatsManager().getStats(itemKey);
+        if (stats == null) {
+            plugin.getMessageManager().sendMessage(player, "price_no_data", "{item_name}", itemName);
+            return true;
+        }
+
+        plugin.getMessageManager().sendMessage(player, "price_stats_header", "{item_name}", itemName);
+        sendPriceSummary(player, "price_stats_sales", stats.getSales());
+        sendPriceSummary(player, "price_stats_listings", stats.getListings());
+        return true;
+    }
+
+    private void sendPriceSummary(Player player, String messageKey, PriceStatsManager.PriceSummary summary) {
+        if (summary == null) {
+            return;
+        }
+        MessageManager messages = plugin.getMessageManager();
+        messages.sendMessage(player, messageKey,
+                "{count}", String.valueOf(summary.getCount()),
+                "${min}", messages.formatPrice(summary.getMin()),
+                "${avg}", messages.formatPrice(summary.getMean()),
+                "${p50}", messages.formatPrice(summary.getMedian()),
+                "${p90}", messages.formatPrice(summary.getP90()));
+    }
+
+    /**
+     * Handles the /ah browse command: shows the listings of one item across all sellers, cheapest first.
+     *
+     * @param player The player who executed the command.
+     * @param args The command arguments.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handleBrowseCommand(Player player, String[] args) {
+        if (args.length < 2) {
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /ah browse <item|hand>");
+            return true;
+        }
+
+        if (args[1].equalsIgnoreCase("hand")) {
+            ItemStack itemInHand = player.getInventory().getItemInMainHand();
+            if (itemInHand == null || itemInHand.getType().isAir()) {
+                plugin.getMessageManager().sendRawMessage(player, "&cHold the item you want to browse in your hand.");
+                return true;
+            }
+            plugin.getGuiManager().openBrowseGUI(player, ItemKeys.of(itemInHand),
+                    plugin.getAuctionManager().getItemDisplayName(itemInHand));
+        } else {
+            Material material = Material.matchMaterial(args[1]);
+            if (material == null || material.isAir()) {
+                plugin.getMessageManager().sendMessage(player, "invalid_material", "{material}", args[1]);
+                return true;
+            }
+            plugin.getGuiManager().openBrowseGUI(player, ItemKeys.of(material), material.name());
+        }
+        return true;
+    }
+
+    /**
+     * Handles the /ah search command: finds listings by material, enchantments, custom model data,
+     * persistent data keys and unit price, see {@link FacetQuery}.
+     *
+     * @param player The player who executed the command.
+     * @param args The command arguments.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handleSearchCommand(Player player, String[] args) {
+        if (!player.hasPermission("ah.find")) {
+            plugin.getMessageManager().sendMessage(player, "no_permission");
+            return true;
+        }
+
+        if (args.length < 2) {
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /ah search <filters...> (e.g. diamond_sword sharpness:5 price<50k)");
+            return true;
+        }
+
+        String[] filters = Arrays.copyOfRange(args, 1, args.length);
+        FacetQuery query = FacetQuery.parse(filters);
+        if (query == null) {
+            plugin.getMessageManager().sendMessage(player, "invalid_search_filter");
+            return true;
+        }
+        if (!plugin.getListingIndexManager().isReady()) {
+            plugin.getMessageManager().sendMessage(player, "browse_loading");
+            return true;
+        }
+
+        String queryText = String.join(" ", filters);
+        int limit = plugin.getSettings().getSearchMaxResults();
+        List<AuctionItem> results = plugin.getListingIndexManager().search(query, limit);
+        if (results.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "browse_no_listings", "{item_name}", queryText);
+            return true;
+        }
+
+        plugin.getGuiManager().openSearchResultsGUI(player, queryText, results);
+        return true;
+    }
+
+    /**
+     * Handles the /ah order command: places a buy order for a material, or for exactly the item in hand.
+     *
+     * @param player The player who executed the command.
+     * @param args The command arguments.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handleOrderCommand(Player player, String[] args) {
+        if (args.length < 4) {
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /ah order <item|hand> <quantity> <max-unit-price>");
+            return true;
+        }
+
+        String itemKey;
+        String itemName;
+        if (args[1].equalsIgnoreCase("hand")) {
+            ItemStack itemInHand = player.getInventory().getItemInMainHand();
+            if (itemInHand == null || itemInHand.getType().isAir()) {
+                plugin.getMessageManager().sendRawMessage(player, "&cHold the item you want to buy in your hand.");
+                return true;
+            }
+            itemKey = ItemKeys.of(itemInHand);
+            itemName = plugin.getAuctionManager().getItemDisplayName(itemInHand);
+        } else {
+            Material material = Material.matchMaterial(args[1]);
+            if (material == null || material.isAir()) {
+                plugin.getMessageManager().sendMessage(player, "invalid_material", "{material}", args[1]);
+                return true;
+            }
+            itemKey = ItemKeys.of(material);
+            itemName = material.name();
+        }
+
+        int quantity;
+        try {
+            quantity = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            plugin.getMessageManager().sendMessage(player, "invalid_amount_entered");
+            return true;
+        }
+
+        long unitPrice = PriceCodec.parse(args[3]);
+        if (unitPrice <= 0) {
+            plugin.getMessageManager().sendMessage(player, "invalid_price_format");
+            return true;
+        }
+
+        plugin.getOrderBookManager().placeOrder(player, itemKey, itemName, quantity, unitPrice);
+        return true;
+    }
+
+    /**
+     * Handles the /ah orders command: lists the player's open buy orders.
+     *
+     * @param player The player who executed the command.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handleOrdersCommand(Player player) {
+        List<BuyOrder> orders = plugin.getOrderBookManager().getOpenOrders(player.getUniqueId());
+        if (orders.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "buy_orders_none");
+            return true;
+        }
+
+        MessageManager messages = plugin.getMessageManager();
+        messages.sendMessage(player, "buy_orders_header");
+        for (BuyOrder order : orders) {
+            messages.sendMessage(player, "buy_orders_entry",
+                    "{id}", String.valueOf(order.getId()),
+                    "{item_name}", order.getItemName(),
+                    "{filled}", String.valueOf(order.getQuantityTotal() - order.getQuantityRemaining()),
+                    "{quantity}", String.valueOf(order.getQuantityTotal()),
+                    "${price}", messages.formatPrice(order.getUnitPrice()));
+        }
+        return true;
+    }
+
+    /**
+     * Handles the /ah cancelorder command.
+     *
+     * @param player The player who executed the command.
+     * @param args The command arguments.
+     * @return true if the command was handled, false otherwise.
+     */
+    private boolean handleCancelOrderCommand(Player player, String[] args) {
+        if (args.length < 2) {
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /ah cancelorder <id>");
+            return true;
+        }
+
+        try {
+            // The refund message is sent once the cancellation is written
+            plugin.getOrderBookManager().cancelOrder(player, Integer.parseInt(args[1].replace("#", "")));
+        } catch (NumberFormatException e) {
+            plugin.getMessageManager().sendMessage(player, "buy_order_not_found", "{id}", args[1]);
+        }
+        return true;
+    }
+
     /**
      * Handles the /ah help command.
      *
@@ -113,8 +391,17 @@ public class AuctionCommand implements CommandExecutor {
         plugin.getMessageManager().sendRawMessage(player, "&6=== &eAuction House Help &6===");
         plugin.getMessageManager().sendRawMessage(player, "&e/ah &7- Open the Auction House");
         plugin.getMessageManager().sendRawMessage(player, "&e/ah find <search_term> &7- Search for items");
+        plugin.getMessageManager().sendRawMessage(player, "&e/ah search <filters...> &7- Find listings by type, enchantment and price");
         plugin.getMessageManager().sendRawMessage(player, "&e/ah mailbox &7- Open your mailbox");
+        plugin.getMessageManager().sendRawMessage(player, "&e/ah claimall &7- Claim everything that fits from your mailbox");
+        plugin.getMessageManager().sendRawMessage(player, "&e/ah price [item] &7- Show market prices for an item");
+        plugin.getMessageManager().sendRawMessage(player, "&e/ah browse <item|hand> &7- Show the cheapest listings of an item");
+        plugin.getMessageManager().sendRawMessage(player, "&e/ah order <item|hand> <quantity> <max-unit-price> &7- Place a buy order");
+        plugin.getMessageManager().sendRawMessage(player, "&e/ah orders &7- List your open buy orders");
+        plugin.getMessageManager().sendRawMessage(player, "&e/ah cancelorder <id> &7- Cancel a buy order and get the rest of the money back");
         plugin.getMessageManager().sendRawMessage(player, "&e/sell <price> &7- Sell the item in your hand");
+        plugin.getMessageManager().sendRawMessage(player, "&e/sell all <item> <unit-price> &7- Sell every stack of an item");
+        plugin.getMessageManager().sendRawMessage(player, "&e/sell box <unit-price> &7- Drag items into a box to sell them");
         plugin.getMessageManager().sendRawMessage(player, "&e/checkah <player> &7- Check a player's auctions");
 
         if (player.hasPermission("ah.admin")) {
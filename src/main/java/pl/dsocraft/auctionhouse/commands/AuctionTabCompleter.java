@@ -1,19 +1,28 @@
 package pl.dsocraft.auctionhouse.commands;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.managers.AuctionManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
  * Handles tab completion for auction house commands.
+ * <p>
+ * Item and seller names come from the in-memory listing index. On Paper the same completions are
+ * served from the async tab-complete event by {@link pl.dsocraft.auctionhouse.listeners.TabCompleteListener},
+ * so this is only reached on servers without it.
  */
 public class AuctionTabCompleter implements TabCompleter {
 
@@ -30,31 +39,60 @@ public class AuctionTabCompleter implements TabCompleter {
         if (command.getName().equalsIgnoreCase("ah")) {
             if (args.length == 1) {
                 // First argument for /ah
-                List<String> subcommands = Arrays.asList("find", "mailbox", "help");
+                List<String> subcommands = Arrays.asList("find", "search", "mailbox", "claimall", "price", "browse", "order", "orders", "cancelorder", "help");
                 return subcommands.stream()
                         .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))
                         .collect(Collectors.toList());
-            } else if (args.length == 2 && args[0].equalsIgnoreCase("find")) {
-                // No suggestions for /ah find as requested
-                return new ArrayList<>();
+            } else if (args.length >= 2 && args[0].equalsIgnoreCase("find")) {
+                // Names of listed items for /ah find
+                if (!sender.hasPermission("ah.find")) {
+                    return completions;
+                }
+                return completeItemName(String.join(" ", Arrays.copyOfRange(args, 1, args.length)));
+            } else if (args.length == 2 && args[0].equalsIgnoreCase("browse")) {
+                // The item in hand or a material for /ah browse
+                String prefix = args[1].toLowerCase();
+                List<String> suggestions = new ArrayList<>();
+                if ("hand".startsWith(prefix)) {
+                    suggestions.add("hand");
+                }
+                Arrays.stream(Material.values())
+                        .filter(material -> material.isItem() && !material.isAir())
+                        .map(material -> material.name().toLowerCase())
+                        .filter(name -> name.startsWith(prefix))
+                        .forEach(suggestions::add);
+                return suggestions;
             }
         } else if (command.getName().equalsIgnoreCase("checkah")) {
             if (args.length == 1) {
-                // Player names for /checkah
-                return Bukkit.getOnlinePlayers().stream()
-                        .map(Player::getName)
-                        .filter(name -> name.toLowerCase().startsWith(args[0].toLowerCase()))
-                        .collect(Collectors.toList());
+                // Sellers and online players for /checkah
+                return completePlayerName(args[0]);
             }
         } else if (command.getName().equalsIgnoreCase("sell")) {
+            List<String> prices = Arrays.asList("100", "1k", "10k", "100k", "1m", "10m", "100m", "1b");
             if (args.length == 1) {
-                // Price suggestions for /sell
-                return Arrays.asList("100", "1k", "10k", "100k", "1m", "10m", "100m", "1b");
+                // Price suggestions for /sell, plus the bulk subcommands
+                List<String> suggestions = new ArrayList<>(prices);
+                suggestions.add("all");
+                suggestions.add("box");
+                return suggestions;
+            } else if (args.length == 2 && args[0].equalsIgnoreCase("all")) {
+                // Materials for /sell all
+                String prefix = args[1].toLowerCase();
+                return Arrays.stream(Material.values())
+                        .filter(material -> material.isItem() && !material.isAir())
+                        .map(material -> material.name().toLowerCase())
+                        .filter(name -> name.startsWith(prefix))
+                        .collect(Collectors.toList());
+            } else if ((args.length == 2 && args[0].equalsIgnoreCase("box"))
+                    || (args.length == 3 && args[0].equalsIgnoreCase("all"))) {
+                // Unit price suggestions
+                return prices;
             }
         } else if (command.getName().equalsIgnoreCase("ahadmin")) {
             if (args.length == 1) {
                 // Admin subcommands
-                return Arrays.asList("reload", "help").stream()
+                return Arrays.asList("reload", "metrics", "help").stream()
                         .filter(s -> s.toLowerCase().startsWith(args[0].toLowerCase()))
                         .collect(Collectors.toList());
             }
@@ -62,4 +100,48 @@ public class AuctionTabCompleter implements TabCompleter {
 
         return completions;
     }
+
+    /**
+     * Completes the search term of /ah find with the names of listed items. Only the last word is
+     * replaced by the client, so the words before it are cut from the suggestions.
+     *
+     * @param typed Everything typed after "find ", possibly several words.
+     * @return The suggestions, at most tab_complete.max_results.
+     */
+    public List<String> completeItemName(String typed) {
+        String prefix = typed.toLowerCase();
+        if (!AuctionManager.normalizeSearchTerm(prefix).equals(prefix.trim())) {
+            return new ArrayList<>(); // Contains characters that are never part of a stored name
+        }
+
+        int lastWord = prefix.lastIndexOf(' ') + 1;
+        Set<String> suggestions = new LinkedHashSet<>();
+        for (String name : plugin.getListingIndexManager().completeItemNames(prefix, getMaxResults())) {
+            suggestions.add(name.substring(lastWord));
+        }
+        return new ArrayList<>(suggestions);
+    }
+
+    /**
+     * Completes a player name for /checkah with the sellers of active listings and the online players.
+     *
+     * @param typed The start of the name.
+     * @return The names in alphabetical order, at most tab_complete.max_results.
+     */
+    public List<String> completePlayerName(String typed) {
+        int maxResults = getMaxResults();
+        String prefix = typed.toLowerCase();
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        names.addAll(plugin.getListingIndexManager().completeSellerNames(prefix, maxResults));
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.getName().toLowerCase().startsWith(prefix)) {
+                names.add(player.getName());
+            }
+        }
+        return names.stream().limit(maxResults).collect(Collectors.toList());
+    }
+
+    private int getMaxResults() {
+        return plugin.getSettings().getTabCompleteMaxResults();
+    }
 }
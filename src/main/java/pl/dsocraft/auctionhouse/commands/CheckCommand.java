@@ -1,12 +1,12 @@
 package pl.dsocraft.auctionhouse.commands;
 
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.DatabaseManager.KnownPlayerName;
 
 /**
  * Handles the /checkah command.
@@ -33,6 +33,14 @@ public class CheckCommand implements CommandExecutor {
             return true;
         }
 
+        if (!plugin.getWarmupManager().checkReady(player)) {
+            return true;
+        }
+
+        if (!plugin.getThrottleManager().tryAcquire(player, "command")) {
+            return true;
+        }
+
         if (args.length < 1) {
             plugin.getMessageManager().sendRawMessage(player, "&cUsage: /checkah <player_name>");
             return true;
@@ -40,16 +48,22 @@ public class CheckCommand implements CommandExecutor {
 
         String targetName = args[0];
         
-        // Try to find the player
-        OfflinePlayer targetPlayer = Bukkit.getOfflinePlayer(targetName);
-        
-        if (targetPlayer == null || !targetPlayer.hasPlayedBefore()) {
-            plugin.getMessageManager().sendMessage(player, "player_not_found", "{player_name}", targetName);
+        // Resolve the name locally, old names included; never a blocking profile lookup
+        Player online = Bukkit.getPlayerExact(targetName);
+        if (online != null) {
+            plugin.getGuiManager().openPlayerItemsGUI(player, online.getUniqueId(), online.getName());
+            return true;
+        }
+
+        KnownPlayerName target = plugin.getSellerDirectoryManager().resolve(targetName);
+        if (target == null) {
+            String key = plugin.getSellerDirectoryManager().isReady() ? "player_not_found" : "player_directory_loading";
+            plugin.getMessageManager().sendMessage(player, key, "{player_name}", targetName);
             return true;
         }
 
         // Open the player items GUI
-        plugin.getGuiManager().openPlayerItemsGUI(player, targetPlayer.getUniqueId(), targetPlayer.getName());
+        plugin.getGuiManager().openPlayerItemsGUI(player, target.getUuid(), target.getName());
         return true;
     }
 }
\ No newline at end of file
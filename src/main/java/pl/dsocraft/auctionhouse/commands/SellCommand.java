@@ -6,8 +6,15 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
-import pl.dsocraft.auctionhouse.utils.PriceParser;
+import pl.dsocraft.auctionhouse.managers.AuctionManager;
+import pl.dsocraft.auctionhouse.managers.PriceStatsManager;
+import pl.dsocraft.auctionhouse.utils.ItemKeys;
+import pl.dsocraft.auctionhouse.utils.PriceCodec;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Handles the /sell command.
@@ -34,30 +41,159 @@ public class SellCommand implements CommandExecutor {
             return true;
         }
 
-        if (args.length < 1) {
-            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /sell <price>");
+        if (!plugin.getWarmupManager().checkReady(player)) {
+            return true;
+        }
+
+        if (!plugin.getThrottleManager().tryAcquire(player, "command")) {
+            return true;
+        }
+
+        if (args.length >= 1 && args[0].equalsIgnoreCase("all")) {
+            handleSellAll(player, args);
+            return true;
+        }
+
+        if (args.length >= 1 && args[0].equalsIgnoreCase("box")) {
+            handleSellBox(player, args);
             return true;
         }
 
         // Get the item in the player's hand
         ItemStack itemInHand = player.getInventory().getItemInMainHand();
 
+        if (args.length < 1) {
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /sell <price>");
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /sell all <material> <unit-price>");
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /sell box <unit-price>");
+            if (itemInHand != null && !itemInHand.getType().isAir()) {
+                sendPriceHint(player, itemInHand);
+            }
+            return true;
+        }
+
         if (itemInHand == null || itemInHand.getType() == Material.AIR) {
             plugin.getMessageManager().sendMessage(player, "item_not_in_hand");
             return true;
         }
 
         // Parse the price
-        long price = PriceParser.parsePrice(args[0]);
+        long price = PriceCodec.parse(args[0]);
         if (price <= 0) {
             plugin.getMessageManager().sendMessage(player, "invalid_price_format");
             return true;
         }
 
+        // Capture the key before listing, the stack in hand is removed on success
+        String itemKey = ItemKeys.of(itemInHand);
+        long unitPrice = price / Math.max(1, itemInHand.getAmount());
+
         // List the item for auction
         boolean success = plugin.getAuctionManager().listItem(player, itemInHand, price);
 
+        // Warn when the asking price is above what this item usually sells for
+        if (success) {
+            PriceStatsManager.Snapshot stats = plugin.getPriceStatsManager().getStats(itemKey);
+            if (stats != null && stats.getSales() != null && unitPrice > stats.getSales().getP90()) {
+                plugin.getMessageManager().sendMessage(player, "sell_price_above_market",
+                        "${p90}", plugin.getMessageManager().formatPrice(stats.getSales().getP90()));
+            }
+        }
+
         // The success message is sent by the AuctionManager
         return true;
     }
+
+    /**
+     * Handles /sell all: lists every plain stack of a material in the
+     * player's inventory. The stacks are removed in one step, and only after the listings were committed.
+     *
+     * @param player The player selling.
+     * @param args The command arguments.
+     */
+    private void handleSellAll(Player player, String[] args) {
+        if (args.length < 3) {
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /sell all <material> <unit-price>");
+            return;
+        }
+
+        Material material = Material.matchMaterial(args[1]);
+        if (material == null || material.isAir()) {
+            plugin.getMessageManager().sendMessage(player, "invalid_material", "{material}", args[1]);
+            return;
+        }
+
+        long unitPrice = PriceCodec.parse(args[2]);
+        if (unitPrice <= 0) {
+            plugin.getMessageManager().sendMessage(player, "invalid_price_format");
+            return;
+        }
+
+        // Only plain stacks, so renamed or enchanted items are never sold by accident
+        PlayerInventory inventory = player.getInventory();
+        ItemStack[] contents = inventory.getStorageContents();
+        List<Integer> slots = new ArrayList<>();
+        List<ItemStack> stacks = new ArrayList<>();
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack stack = contents[slot];
+            if (stack != null && stack.getType() == material && !stack.hasItemMeta()) {
+                slots.add(slot);
+                stacks.add(stack);
+            }
+        }
+
+        if (stacks.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "sell_all_nothing_found",
+                    "{material}", ItemKeys.of(material));
+            return;
+        }
+
+        AuctionManager.BulkListResult result = plugin.getAuctionManager().listItems(player, stacks, unitPrice);
+        if (result == null) {
+            return;
+        }
+
+        // Remove exactly the listed stacks with a single inventory update
+        for (int i = 0; i < result.getListedStacks(); i++) {
+            contents[slots.get(i)] = null;
+        }
+        inventory.setStorageContents(contents);
+    }
+
+    /**
+     * Handles /sell box: opens a box the player can drag items into.
+     *
+     * @param player The player selling.
+     * @param args The command arguments.
+     */
+    private void handleSellBox(Player player, String[] args) {
+        if (args.length < 2) {
+            plugin.getMessageManager().sendRawMessage(player, "&cUsage: /sell box <unit-price>");
+            return;
+        }
+
+        long unitPrice = PriceCodec.parse(args[1]);
+        if (unitPrice <= 0) {
+            plugin.getMessageManager().sendMessage(player, "invalid_price_format");
+            return;
+        }
+
+        plugin.getGuiManager().openSellBoxGUI(player, unitPrice);
+    }
+
+    /**
+     * Shows recent sale prices for the item the player wants to sell.
+     *
+     * @param player The player to send the hint to.
+     * @param itemStack The item in the player's hand.
+     */
+    private void sendPriceHint(Player player, ItemStack itemStack) {
+        PriceStatsManager.Snapshot stats = plugin.getPriceStatsManager().getStats(ItemKeys.of(itemStack));
+        if (stats == null || stats.getSales() == null) {
+            return;
+        }
+        plugin.getMessageManager().sendMessage(player, "sell_price_hint",
+                "${p50}", plugin.getMessageManager().formatPrice(stats.getSales().getMedian()),
+                "${p90}", plugin.getMessageManager().formatPrice(stats.getSales().getP90()));
+    }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package pl.dsocraft.auctionhouse.database;
 
 import org.bukkit.inventory.ItemStack;
-import pl.dsocraft.auctionhouse.utils.ItemSerializer;
+import pl.dsocraft.auctionhouse.utils.ItemKeys;
 
 import java.util.UUID;
 
@@ -12,12 +12,13 @@ public class AuctionItem {
     private final int id;
     private final UUID sellerUUID;
     private final String sellerName;
-    private final ItemStack itemStack;
+    private volatile ItemStack itemStack; // null until loaded for summary rows, see attachItemStack()
     private final String itemNameLowercase;
     private final long priceTotal;
     private final int quantityInitial;
-    private int quantityRemaining;
+    private volatile ListingStock stock; // Also updated by live shop views, see setStock()
     private final long listedAt;
+    private String itemKey; // Stored with the listing, or computed lazily, see getItemKey()
 
     /**
      * Constructor for a new auction item (not yet in the database).
@@ -30,11 +31,23 @@ public class AuctionItem {
     }
 
     /**
-     * Constructor for an existing auction item (loaded from the database).
+     * Constructor for an existing auction item (loaded from the database) at its first version.
+     * The item stack may be null for summary rows loaded without the item data.
      */
     public AuctionItem(int id, UUID sellerUUID, String sellerName, ItemStack itemStack, 
                       String itemNameLowercase, long priceTotal, int quantityInitial, 
                       int quantityRemaining, long listedAt) {
+        this(id, sellerUUID, sellerName, itemStack, itemNameLowercase, priceTotal, quantityInitial,
+             quantityRemaining, listedAt, 0);
+    }
+
+    /**
+     * Constructor for an existing auction item (loaded from the database).
+     * The item stack may be null for summary rows loaded without the item data.
+     */
+    public AuctionItem(int id, UUID sellerUUID, String sellerName, ItemStack itemStack, 
+                      String itemNameLowercase, long priceTotal, int quantityInitial, 
+                      int quantityRemaining, long listedAt, int version) {
         this.id = id;
         this.sellerUUID = sellerUUID;
         this.sellerName = sellerName;
@@ -42,7 +55,7 @@ public class AuctionItem {
         this.itemNameLowercase = itemNameLowercase;
         this.priceTotal = priceTotal;
         this.quantityInitial = quantityInitial;
-        this.quantityRemaining = quantityRemaining;
+        this.stock = new ListingStock(quantityRemaining, version);
         this.listedAt = listedAt;
     }
 
@@ -59,7 +72,7 @@ public class AuctionItem {
      * @return The total price for the remaining quantity.
      */
     public long getPriceForRemaining() {
-        return getPricePerItem() * quantityRemaining;
+        return getPricePerItem() * stock.getQuantityRemaining();
     }
 
     /**
@@ -68,19 +81,28 @@ public class AuctionItem {
      * @return true if successful, false if the amount is invalid or greater than remaining.
      */
     public boolean decreaseQuantity(int amount) {
-        if (amount <= 0 || amount > quantityRemaining) {
+        ListingStock current = stock;
+        if (amount <= 0 || amount > current.getQuantityRemaining()) {
             return false;
         }
-        quantityRemaining -= amount;
+        stock = new ListingStock(current.getQuantityRemaining() - amount, current.getVersion());
         return true;
     }
 
+    /**
+     * Sets the remaining quantity to a committed value, e.g. after someone else bought from the listing.
+     * @param stock The quantity left and the row version that goes with it.
+     */
+    public void setStock(ListingStock stock) {
+        this.stock = stock;
+    }
+
     /**
      * Checks if this auction is sold out.
      * @return true if no items remain, false otherwise.
      */
     public boolean isSoldOut() {
-        return quantityRemaining <= 0;
+        return stock.getQuantityRemaining() <= 0;
     }
 
     /**
@@ -89,7 +111,7 @@ public class AuctionItem {
      * @return A new ItemStack with the specified quantity.
      */
     public ItemStack createItemStackWithQuantity(int quantity) {
-        if (quantity <= 0 || quantity > quantityRemaining) {
+        if (itemStack == null || quantity <= 0 || quantity > stock.getQuantityRemaining()) {
             return null;
         }
         ItemStack copy = itemStack.clone();
@@ -112,7 +134,42 @@ public class AuctionItem {
     }
 
     public ItemStack getItemStack() {
-        return itemStack.clone(); // Return a clone to prevent modification
+        return itemStack != null ? itemStack.clone() : null; // Return a clone to prevent modification
+    }
+
+    /**
+     * Checks if the item data of this auction has been loaded.
+     * @return true if the item stack is available, false for summary rows.
+     */
+    public boolean hasItemStack() {
+        return itemStack != null;
+    }
+
+    /**
+     * Attaches item data that was loaded separately from the summary row.
+     * @param itemStack The deserialized item stack.
+     */
+    public void attachItemStack(ItemStack itemStack) {
+        this.itemStack = itemStack;
+    }
+
+    /**
+     * Attaches the item key stored with the listing.
+     * @param itemKey The item key, or null for listings made by older versions.
+     */
+    public void attachItemKey(String itemKey) {
+        this.itemKey = itemKey;
+    }
+
+    /**
+     * Gets the key identifying the kind of item, independent of quantity.
+     * @return The item key, or null if neither the key nor the item data is loaded.
+     */
+    public String getItemKey() {
+        if (itemKey == null && itemStack != null) {
+            itemKey = ItemKeys.of(itemStack);
+        }
+        return itemKey;
     }
 
     public String getItemNameLowercase() {
@@ -128,10 +185,28 @@ public class AuctionItem {
     }
 
     public int getQuantityRemaining() {
-        return quantityRemaining;
+        return stock.getQuantityRemaining();
     }
 
     public long getListedAt() {
         return listedAt;
     }
+
+    /**
+     * Gets the row version this item was read at. A purchase only goes through if the row is still
+     * at this version, so nothing has to be read again to check the quantity.
+     * @return The row version.
+     */
+    public int getVersion() {
+        return stock.getVersion();
+    }
+
+    /**
+     * Gets the remaining quantity together with the row version it was read at. Use this instead of
+     * the two getters when both are needed, so they can't come from different updates.
+     * @return The stock.
+     */
+    public ListingStock getStock() {
+        return stock;
+    }
 }
\ No newline at end of file
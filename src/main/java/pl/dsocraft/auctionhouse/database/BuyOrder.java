@@ -0,0 +1,85 @@
+package pl.dsocraft.auctionhouse.database;
+
+import java.util.UUID;
+
+/**
+ * Represents an open buy order: a player holds money in escrow to buy up to a quantity
+ * of an item key at a maximum unit price.
+ */
+public class BuyOrder {
+    private final int id;
+    private final UUID buyerUUID;
+    private final String buyerName;
+    private final String itemKey;
+    private final String itemName;
+    private final long unitPrice;
+    private final int quantityTotal;
+    private volatile int quantityRemaining; // Only changed by the matching thread
+    private final long createdAt;
+
+    /**
+     * Constructor for a buy order stored in the database.
+     */
+    public BuyOrder(int id, UUID buyerUUID, String buyerName, String itemKey, String itemName,
+                    long unitPrice, int quantityTotal, int quantityRemaining, long createdAt) {
+        this.id = id;
+        this.buyerUUID = buyerUUID;
+        this.buyerName = buyerName;
+        this.itemKey = itemKey;
+        this.itemName = itemName;
+        this.unitPrice = unitPrice;
+        this.quantityTotal = quantityTotal;
+        this.quantityRemaining = quantityRemaining;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Gets the money currently held in escrow for this order.
+     * @return The unit price times the remaining quantity.
+     */
+    public long getEscrowRemaining() {
+        return unitPrice * quantityRemaining;
+    }
+
+    // Getters
+
+    public int getId() {
+        return id;
+    }
+
+    public UUID getBuyerUUID() {
+        return buyerUUID;
+    }
+
+    public String getBuyerName() {
+        return buyerName;
+    }
+
+    public String getItemKey() {
+        return itemKey;
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    public long getUnitPrice() {
+        return unitPrice;
+    }
+
+    public int getQuantityTotal() {
+        return quantityTotal;
+    }
+
+    public int getQuantityRemaining() {
+        return quantityRemaining;
+    }
+
+    public void setQuantityRemaining(int quantityRemaining) {
+        this.quantityRemaining = quantityRemaining;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
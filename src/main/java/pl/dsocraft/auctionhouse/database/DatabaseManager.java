@@ -2,9 +2,10 @@ package pl.dsocraft.auctionhouse.database;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
-import org.bukkit.configuration.file.FileConfiguration;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.bukkit.inventory.ItemStack;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.Settings;
 import pl.dsocraft.auctionhouse.utils.ItemSerializer;
 
 import java.sql.Connection;
@@ -12,15 +13,33 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
 public class DatabaseManager {
 
+    /**
+     * Columns of a mailbox summary row, i.e. everything except the item blob.
+     */
+    public static final String MAILBOX_SUMMARY_COLUMNS = "id, player_uuid, type, money_amount, source_info, added_at";
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+    private static final String OUTBOX_COLUMNS = "id, player_uuid, kind, amount, reason, purpose, balance_before";
+
+    private static final int SCAN_POOL_SIZE = 2;
+
     private final DSOAuctionHouse plugin;
     private HikariDataSource dataSource;
+    private HikariDataSource scanDataSource; // Streams with a server-side cursor, only for large scans
+    private int fetchSize;
 
     public DatabaseManager(DSOAuctionHouse plugin) {
         this.plugin = plugin;
@@ -29,23 +48,29 @@ public class DatabaseManager {
     }
 
     private void connect() {
-        FileConfiguration config = plugin.getConfig();
-        HikariConfig hikariConfig = new HikariConfig();
+        Settings settings = plugin.getSettings();
+        String jdbcUrl = "jdbc:mysql://" + settings.getDatabaseHost() + ":" +
+                settings.getDatabasePort() + "/" + settings.getDatabaseName() +
+                "?useSSL=" + settings.isDatabaseUseSSL() +
+                "&autoReconnect=" + settings.isDatabaseAutoReconnect();
+        HikariConfig hikariConfig = createPoolConfig(settings, jdbcUrl);
+        hikariConfig.setMaximumPoolSize(settings.getPoolMaximumSize()); // 25 by default, for 30+ players
+        hikariConfig.setMinimumIdle(settings.getPoolMinimumIdle());
 
-        hikariConfig.setJdbcUrl("jdbc:mysql://" + config.getString("database.host") + ":" +
-                config.getInt("database.port") + "/" + config.getString("database.name") +
-                "?useSSL=" + config.getBoolean("database.useSSL", false) +
-                "&autoReconnect=" + config.getBoolean("database.autoReconnect", true));
-        hikariConfig.setUsername(config.getString("database.user"));
-        hikariConfig.setPassword(config.getString("database.password"));
-        hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
-        hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
-        hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-        hikariConfig.setMaximumPoolSize(25); // Increased for 30+ players - auction house needs good concurrency
-        hikariConfig.setMinimumIdle(12); // Ensure good idle connections for auction queries
+        // Cursor fetch makes the driver use server-side prepared statements for everything, so
+        // only the few connections of the large scans have it
+        HikariConfig scanConfig = createPoolConfig(settings, jdbcUrl + "&useCursorFetch=true");
+        scanConfig.setPoolName("DSOAuctionHouse-Scans");
+        scanConfig.setMaximumPoolSize(SCAN_POOL_SIZE);
+        scanConfig.setMinimumIdle(0);
+        this.fetchSize = settings.getDatabaseFetchSize();
 
         try {
             this.dataSource = new HikariDataSource(hikariConfig);
+            if (scanDataSource != null) {
+                scanDataSource.close(); // Reconnecting
+            }
+            this.scanDataSource = new HikariDataSource(scanConfig);
             plugin.getLogger().info("Successfully connected to the database!");
         } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Could not connect to the database! Error: " + e.getMessage());
@@ -53,6 +78,17 @@ public class DatabaseManager {
         }
     }
 
+    private HikariConfig createPoolConfig(Settings settings, String jdbcUrl) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(jdbcUrl);
+        hikariConfig.setUsername(settings.getDatabaseUser());
+        hikariConfig.setPassword(settings.getDatabasePassword());
+        hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+        hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
+        hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        return hikariConfig;
+    }
+
     public boolean isConnected() {
         return dataSource != null && !dataSource.isClosed();
     }
@@ -72,13 +108,80 @@ public class DatabaseManager {
         return dataSource.getConnection();
     }
 
+    /**
+     * Gets a connection for large scans, to prepare with {@link #prepareStreamingStatement}.
+     * These connections come from a small pool of their own, so a scan never waits for or
+     * blocks the connections of players' queries.
+     */
+    public Connection getScanConnection() throws SQLException {
+        if (scanDataSource == null || scanDataSource.isClosed()) {
+            throw new SQLException("Unable to establish a database connection.");
+        }
+        return scanDataSource.getConnection();
+    }
+
     public void closeConnection() {
+        if (scanDataSource != null && !scanDataSource.isClosed()) {
+            scanDataSource.close();
+        }
         if (isConnected()) {
             dataSource.close();
             plugin.getLogger().info("Database connection closed.");
         }
     }
 
+    /**
+     * Prepares a read-only statement whose results are streamed in chunks of the configured
+     * fetch size instead of being buffered completely by the driver.
+     * Use it for large scans so they run in constant memory.
+     *
+     * @param conn A connection from {@link #getScanConnection()}; on other connections the
+     *             results are buffered as usual.
+     * @param sql The query.
+     * @return The prepared statement.
+     */
+    public PreparedStatement prepareStreamingStatement(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(fetchSize);
+        return stmt;
+    }
+
+    /**
+     * Loads and deserializes the item blobs of the given rows.
+     * Only used for the rows that are actually displayed or handed out.
+     *
+     * @param table The table to read from (active_auctions or player_mailbox).
+     * @param ids The IDs of the rows.
+     * @return The item stacks by row ID. Rows that no longer exist are missing from the map.
+     */
+    public Map<Integer, ItemStack> getItemStacks(String table, List<Integer> ids) {
+        Map<Integer, ItemStack> result = new HashMap<>();
+
+        try (Connection conn = getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY));
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT id, item_serialized FROM `" + table + "` WHERE id IN (" + buildPlaceholders(chunk.size()) + ")")) {
+                    bindIds(stmt, chunk);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            ItemStack itemStack = ItemSerializer.deserializeItemStack(rs.getBytes("item_serialized"));
+                            if (itemStack != null) {
+                                result.put(rs.getInt("id"), itemStack);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error loading item data from " + table, e);
+        }
+
+        return result;
+    }
+
     private void createTables() {
         if (!isConnected()) {
             plugin.getLogger().severe("Cannot create tables, no database connection.");
@@ -98,8 +201,27 @@ public class DatabaseManager {
                 "`quantity_initial` INT NOT NULL," +
                 "`quantity_remaining` INT NOT NULL," +
                 "`listed_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "`item_key` VARCHAR(64) NULL," + // See ItemKeys, NULL for rows listed by older versions
+                "`version` INT NOT NULL DEFAULT 0," + // Incremented on every change of quantity_remaining
                 "INDEX `idx_seller_uuid` (`seller_uuid`)," +
-                "INDEX `idx_item_name_lowercase` (`item_name_lowercase`)" +
+                "INDEX `idx_item_name_lowercase` (`item_name_lowercase`)," +
+                "INDEX `idx_item_key` (`item_key`)" +
+                ");";
+
+        // Money for up to quantity_remaining items is held in escrow while an order is OPEN
+        String createBuyOrdersTable = "CREATE TABLE IF NOT EXISTS `buy_orders` (" +
+                "`id` INT AUTO_INCREMENT PRIMARY KEY," +
+                "`buyer_uuid` VARCHAR(36) NOT NULL," +
+                "`buyer_name` VARCHAR(16) NOT NULL," +
+                "`item_key` VARCHAR(64) NOT NULL," +
+                "`item_name` VARCHAR(255) NOT NULL," +
+                "`unit_price` BIGINT NOT NULL," + // Maximum price per item
+                "`quantity_total` INT NOT NULL," +
+                "`quantity_remaining` INT NOT NULL," +
+                "`status` ENUM('OPEN', 'FILLED', 'CANCELLED') NOT NULL DEFAULT 'OPEN'," +
+                "`created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "INDEX `idx_status_item_key` (`status`, `item_key`)," +
+                "INDEX `idx_buyer_uuid` (`buyer_uuid`)" +
                 ");";
 
         String createPlayerMailboxTable = "CREATE TABLE IF NOT EXISTS `player_mailbox` (" +
@@ -110,19 +232,107 @@ public class DatabaseManager {
                 "`money_amount` BIGINT NULL," +  // NULL if type is ITEM
                 "`source_info` VARCHAR(255) NULL," + // E.g., "Sold: [Item Name]" or "Purchased: [Item Name]"
                 "`added_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "INDEX `idx_player_uuid` (`player_uuid`)," +
+                "INDEX `idx_added_at` (`added_at`)" +
+                ");";
+
+        // Stale mailbox entries are moved here by the cleanup task instead of being dropped
+        String createPlayerMailboxArchiveTable = "CREATE TABLE IF NOT EXISTS `player_mailbox_archive` (" +
+                "`id` INT PRIMARY KEY," + // Keeps the original mailbox id
+                "`player_uuid` VARCHAR(36) NOT NULL," +
+                "`type` ENUM('ITEM', 'MONEY') NOT NULL," +
+                "`item_serialized` BLOB NULL," +
+                "`money_amount` BIGINT NULL," +
+                "`source_info` VARCHAR(255) NULL," +
+                "`added_at` TIMESTAMP NULL," +
+                "`archived_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "INDEX `idx_player_uuid` (`player_uuid`)" +
+                ");";
+
+        // Every name a player was seen with, so /checkah resolves names without a profile lookup
+        String createPlayerNamesTable = "CREATE TABLE IF NOT EXISTS `player_names` (" +
+                "`name_lowercase` VARCHAR(16) PRIMARY KEY," +
+                "`player_uuid` VARCHAR(36) NOT NULL," + // The last player seen with this name
+                "`player_name` VARCHAR(16) NOT NULL," +
+                "`last_seen` TIMESTAMP NOT NULL," +
                 "INDEX `idx_player_uuid` (`player_uuid`)" +
                 ");";
 
+        // Withdrawals and deposits written with a trade or claim and applied to Vault after commit
+        String createEconomyOutboxTable = "CREATE TABLE IF NOT EXISTS `economy_outbox` (" +
+                "`id` INT AUTO_INCREMENT PRIMARY KEY," +
+                "`player_uuid` VARCHAR(36) NOT NULL," +
+                "`kind` ENUM('WITHDRAW', 'DEPOSIT') NOT NULL," +
+                "`amount` BIGINT NOT NULL," +
+                "`reason` VARCHAR(255) NOT NULL," +
+                "`status` ENUM('PENDING', 'APPLYING', 'APPLIED', 'FAILED') NOT NULL DEFAULT 'PENDING'," +
+                "`claim_token` VARCHAR(36) NULL," + // Only set by older versions
+                "`purpose` VARCHAR(16) NULL," + // See EconomyOutboxEntry.Purpose
+                "`balance_before` DOUBLE NULL," + // The player's balance when the entry started APPLYING
+                "`created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "`applied_at` TIMESTAMP NULL," +
+                "INDEX `idx_status` (`status`)," +
+                "INDEX `idx_claim_token` (`claim_token`)" +
+                ");";
+
         try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(createActiveAuctionsTable);
             stmt.executeUpdate(createPlayerMailboxTable);
+            stmt.executeUpdate(createPlayerMailboxArchiveTable);
+            stmt.executeUpdate(createBuyOrdersTable);
+            stmt.executeUpdate(createPlayerNamesTable);
+            stmt.executeUpdate(createEconomyOutboxTable);
+            createIndexIfMissing(conn, "player_mailbox", "idx_added_at", "`added_at`");
+            addColumnIfMissing(conn, "active_auctions", "item_key", "VARCHAR(64) NULL");
+            addColumnIfMissing(conn, "active_auctions", "version", "INT NOT NULL DEFAULT 0");
+            addColumnIfMissing(conn, "economy_outbox", "purpose", "VARCHAR(16) NULL");
+            addColumnIfMissing(conn, "economy_outbox", "balance_before", "DOUBLE NULL");
+            createIndexIfMissing(conn, "active_auctions", "idx_item_key", "`item_key`");
             plugin.getLogger().info("Database tables created or already exist.");
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Could not create database tables! Error: " + e.getMessage(), e);
         }
     }
+
     /**
-     * Gets all mailbox items for a player.
+     * Adds a column to an existing table if it is not there yet.
+     * CREATE TABLE IF NOT EXISTS does not touch tables created by older versions of the plugin.
+     */
+    private void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE `" + table + "` ADD COLUMN `" + column + "` " + definition);
+            plugin.getLogger().info("Added column " + column + " to table " + table + ".");
+        }
+    }
+
+    /**
+     * Adds an index to an existing table if it is not there yet.
+     * CREATE TABLE IF NOT EXISTS does not touch tables created by older versions of the plugin.
+     */
+    private void createIndexIfMissing(Connection conn, String table, String indexName, String columns) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE `" + table + "` ADD INDEX `" + indexName + "` (" + columns + ")");
+            plugin.getLogger().info("Added index " + indexName + " to table " + table + ".");
+        }
+    }
+
+    /**
+     * Gets all mailbox items for a player, without their item data.
+     * Use {@link #loadMailboxItemStacks(List)} for the entries that are displayed or claimed.
      *
      * @param playerUUID The UUID of the player.
      * @return A list of mailbox items for the player.
@@ -132,7 +342,7 @@ public class DatabaseManager {
 
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM player_mailbox WHERE player_uuid = ? ORDER BY added_at DESC")) {
+                     "SELECT " + MAILBOX_SUMMARY_COLUMNS + " FROM player_mailbox WHERE player_uuid = ? ORDER BY added_at DESC")) {
 
             stmt.setString(1, playerUUID.toString());
 
@@ -149,6 +359,65 @@ public class DatabaseManager {
         return items;
     }
 
+    /**
+     * Loads the item data of the given mailbox entries that do not have it yet.
+     *
+     * @param items The mailbox entries, typically the visible page.
+     */
+    public void loadMailboxItemStacks(List<MailboxItem> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (MailboxItem item : items) {
+            if (item.needsItemStack()) {
+                ids.add(item.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, ItemStack> itemStacks = getItemStacks("player_mailbox", ids);
+        for (MailboxItem item : items) {
+            if (item.needsItemStack()) {
+                item.attachItemStack(itemStacks.get(item.getId()));
+            }
+        }
+    }
+
+    /**
+     * Gets the summary of a player's mailbox without reading any item data.
+     *
+     * @param playerUUID The UUID of the player.
+     * @return The summary, or null if an error occurred.
+     */
+    public MailboxSummary getMailboxSummary(UUID playerUUID) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT type, COUNT(*) AS entries, COALESCE(SUM(money_amount), 0) AS money " +
+                     "FROM player_mailbox WHERE player_uuid = ? GROUP BY type")) {
+
+            stmt.setString(1, playerUUID.toString());
+
+            int moneyEntries = 0;
+            long moneyTotal = 0;
+            int itemEntries = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (MailboxItem.Type.valueOf(rs.getString("type")) == MailboxItem.Type.MONEY) {
+                        moneyEntries = rs.getInt("entries");
+                        moneyTotal = rs.getLong("money");
+                    } else {
+                        itemEntries = rs.getInt("entries");
+                    }
+                }
+            }
+            return new MailboxSummary(moneyEntries, moneyTotal, itemEntries);
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error getting player mailbox summary", e);
+            return null;
+        }
+    }
+
     /**
      * Removes a mailbox item from the database.
      *
@@ -170,22 +439,417 @@ public class DatabaseManager {
     }
 
     /**
-     * Gets all players who have active auctions, sorted by rank and name.
+     * Removes mailbox entries with a single statement and queues the deposit of their money, in
+     * one transaction. Either all entries are removed or none, so a concurrent claim can never
+     * hand out the same entry twice, and the money can never get lost between the two.
+     *
+     * @param mailboxItemIds The IDs of the mailbox entries to remove.
+     * @param playerUUID The player who claims them.
+     * @param deposit The money to deposit, 0 for none.
+     * @return The id of the queued deposit, 0 if there was no money, or -1 if nothing was removed.
+     */
+    public int removeMailboxItemsWithDeposit(List<Integer> mailboxItemIds, UUID playerUUID, long deposit) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM player_mailbox WHERE id IN (" + buildPlaceholders(mailboxItemIds.size()) + ")")) {
+
+                bindIds(stmt, mailboxItemIds);
+                if (stmt.executeUpdate() != mailboxItemIds.size()) {
+                    // Some entries were already claimed elsewhere
+                    conn.rollback();
+                    return -1;
+                }
+
+                int outboxId = deposit > 0
+                        ? insertEconomyOutboxEntry(conn, playerUUID, EconomyOutboxEntry.Kind.DEPOSIT, deposit, "Mailbox claim",
+                                EconomyOutboxEntry.Purpose.CLAIM)
+                        : 0;
+                conn.commit();
+                return outboxId;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error removing mailbox items", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Queues a withdrawal or deposit as part of the caller's transaction.
+     *
+     * @param conn The connection of the open transaction.
+     * @return The id of the entry.
+     */
+    public int insertEconomyOutboxEntry(Connection conn, UUID playerUUID, EconomyOutboxEntry.Kind kind,
+                                        long amount, String reason, EconomyOutboxEntry.Purpose purpose) throws SQLException {
+        return insertEconomyOutboxEntry(conn, playerUUID, kind, amount, reason, purpose, null);
+    }
+
+    /**
+     * Records a withdrawal or deposit that is about to be applied right away: the entry is stored
+     * as APPLYING with the player's current balance, on its own, before Vault is called.
+     *
+     * @param balanceBefore The player's balance right now.
+     * @return The id of the entry, or -1 if it could not be stored.
+     */
+    public int beginEconomyOutboxEntry(UUID playerUUID, EconomyOutboxEntry.Kind kind, long amount, String reason,
+                                       EconomyOutboxEntry.Purpose purpose, double balanceBefore) {
+        try (Connection conn = getConnection()) {
+            return insertEconomyOutboxEntry(conn, playerUUID, kind, amount, reason, purpose, balanceBefore);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error recording economy outbox entry", e);
+            return -1;
+        }
+    }
+
+    private int insertEconomyOutboxEntry(Connection conn, UUID playerUUID, EconomyOutboxEntry.Kind kind, long amount,
+                                         String reason, EconomyOutboxEntry.Purpose purpose, Double balanceBefore) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO economy_outbox (player_uuid, kind, amount, reason, purpose, status, balance_before) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                PreparedStatement.RETURN_GENERATED_KEYS)) {
+
+            stmt.setString(1, playerUUID.toString());
+            stmt.setString(2, kind.name());
+            stmt.setLong(3, amount);
+            stmt.setString(4, reason.length() > 255 ? reason.substring(0, 255) : reason);
+            stmt.setString(5, purpose.name());
+            if (balanceBefore != null) {
+                stmt.setString(6, EconomyOutboxEntry.Status.APPLYING.name());
+                stmt.setDouble(7, balanceBefore);
+            } else {
+                stmt.setString(6, EconomyOutboxEntry.Status.PENDING.name());
+                stmt.setNull(7, Types.DOUBLE);
+            }
+            stmt.executeUpdate();
+
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id generated for the economy outbox entry");
+                }
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Gets pending outbox entries.
+     *
+     * @param ids The entries to get, or null for the oldest pending ones.
+     * @param limit The most entries to get.
+     * @return The entries that are still pending, oldest first.
+     */
+    public List<EconomyOutboxEntry> getPendingEconomyOutboxEntries(List<Integer> ids, int limit) {
+        List<EconomyOutboxEntry> entries = new ArrayList<>();
+        if (ids != null && ids.isEmpty()) {
+            return entries;
+        }
+
+        String sql = "SELECT " + OUTBOX_COLUMNS + " FROM economy_outbox WHERE status = 'PENDING'"
+                + (ids != null ? " AND id IN (" + buildPlaceholders(ids.size()) + ")" : "")
+                + " ORDER BY id LIMIT ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (ids != null) {
+                for (int id : ids) {
+                    stmt.setInt(index++, id);
+                }
+            }
+            stmt.setInt(index, limit);
+            readEconomyOutboxEntries(stmt, entries);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error reading pending economy outbox entries", e);
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the entries left APPLYING, e.g. by a crash, ordered by player and then oldest first.
+     *
+     * @return The entries, or null if an error occurred.
+     */
+    public List<EconomyOutboxEntry> getApplyingEconomyOutboxEntries() {
+        List<EconomyOutboxEntry> entries = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT " + OUTBOX_COLUMNS + " FROM economy_outbox WHERE status = 'APPLYING' ORDER BY player_uuid, id")) {
+            readEconomyOutboxEntries(stmt, entries);
+            return entries;
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error reading unresolved economy outbox entries", e);
+            return null;
+        }
+    }
+
+    private void readEconomyOutboxEntries(PreparedStatement stmt, List<EconomyOutboxEntry> entries) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String purpose = rs.getString("purpose");
+                double balanceBefore = rs.getDouble("balance_before");
+                entries.add(new EconomyOutboxEntry(rs.getInt("id"), UUID.fromString(rs.getString("player_uuid")),
+                        EconomyOutboxEntry.Kind.valueOf(rs.getString("kind")), rs.getLong("amount"),
+                        rs.getString("reason"),
+                        purpose != null ? EconomyOutboxEntry.Purpose.valueOf(purpose) : null,
+                        rs.wasNull() ? null : balanceBefore));
+            }
+        }
+    }
+
+    /**
+     * Claims pending outbox entries right before they are applied, with a single update: marks them
+     * APPLYING and records each player's balance, which tells on the next start whether an entry was
+     * applied if the server stops before it is marked done.
+     *
+     * @param balances The player's balance right now, by entry id.
+     * @return The ids claimed by this call; entries that were no longer pending are left out.
+     */
+    public Set<Integer> claimEconomyOutboxEntries(Map<Integer, Double> balances) {
+        Set<Integer> claimed = new HashSet<>();
+        if (balances.isEmpty()) {
+            return claimed;
+        }
+
+        List<Integer> ids = new ArrayList<>(balances.keySet());
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement select = conn.prepareStatement(
+                    "SELECT id FROM economy_outbox WHERE status = 'PENDING' AND id IN ("
+                    + buildPlaceholders(ids.size()) + ") FOR UPDATE")) {
+
+                // Lock the rows first, so the update below claims exactly the ids read here
+                bindIds(select, ids);
+                List<Integer> pending = new ArrayList<>();
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        pending.add(rs.getInt(1));
+                    }
+                }
+
+                if (!pending.isEmpty()) {
+                    StringBuilder sql = new StringBuilder("UPDATE economy_outbox SET status = 'APPLYING', balance_before = CASE id");
+                    for (int i = 0; i < pending.size(); i++) {
+                        sql.append(" WHEN ? THEN ?");
+                    }
+                    sql.append(" END WHERE status = 'PENDING' AND id IN (").append(buildPlaceholders(pending.size())).append(')');
+
+                    try (PreparedStatement update = conn.prepareStatement(sql.toString())) {
+                        int index = 1;
+                        for (int id : pending) {
+                            update.setInt(index++, id);
+                            update.setDouble(index++, balances.get(id));
+                        }
+                        for (int id : pending) {
+                            update.setInt(index++, id);
+                        }
+                        update.executeUpdate();
+                    }
+                }
+                conn.commit();
+                claimed.addAll(pending);
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error claiming economy outbox entries", e);
+        }
+        return claimed;
+    }
+
+    /**
+     * Marks an APPLYING outbox entry as applied as part of the caller's transaction, so it only
+     * counts as applied if that transaction commits.
+     *
+     * @param conn The connection of the open transaction.
+     * @return true if the entry was APPLYING.
+     */
+    public boolean markEconomyOutboxEntryApplied(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE economy_outbox SET status = 'APPLIED', applied_at = CURRENT_TIMESTAMP WHERE id = ? AND status = 'APPLYING'")) {
+            stmt.setInt(1, id);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Marks claimed outbox entries as applied with a single statement.
+     *
+     * @param ids The entries.
+     * @return true if successful, false otherwise.
+     */
+    public boolean completeEconomyOutboxEntries(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return true;
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE economy_outbox SET status = 'APPLIED', applied_at = CURRENT_TIMESTAMP WHERE status = 'APPLYING' AND id IN ("
+                     + buildPlaceholders(ids.size()) + ")")) {
+
+            bindIds(stmt, ids);
+            stmt.executeUpdate();
+            return true;
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error completing economy outbox entries", e);
+            return false;
+        }
+    }
+
+    /**
+     * Resolves an APPLYING outbox entry that was not applied: marks it FAILED and, in the same
+     * transaction, puts the money it was about back into the player's mailbox. Does nothing if the
+     * entry is no longer APPLYING, so it can never return the money twice.
+     *
+     * @param entry The entry.
+     * @param returnedMoney The money to put into the mailbox, 0 for none.
+     * @param sourceInfo The source shown with the returned money.
+     * @return true if the entry was resolved by this call.
+     */
+    public boolean failEconomyOutboxEntry(EconomyOutboxEntry entry, long returnedMoney, String sourceInfo) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement fail = conn.prepareStatement(
+                         "UPDATE economy_outbox SET status = 'FAILED', applied_at = CURRENT_TIMESTAMP WHERE id = ? AND status = 'APPLYING'");
+                 PreparedStatement refund = conn.prepareStatement(
+                         "INSERT INTO player_mailbox (player_uuid, type, item_serialized, money_amount, source_info) " +
+                         "VALUES (?, 'MONEY', NULL, ?, ?)")) {
+
+                fail.setInt(1, entry.getId());
+                if (fail.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                if (returnedMoney > 0) {
+                    refund.setString(1, entry.getPlayerUUID().toString());
+                    refund.setLong(2, returnedMoney);
+                    refund.setString(3, sourceInfo);
+                    refund.executeUpdate();
+                }
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error resolving economy outbox entry " + entry.getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Gives back an APPLYING withdrawal whose change did not commit: marks it FAILED and, in the
+     * same transaction, queues a deposit of the same amount. Does nothing if the entry is no longer
+     * APPLYING, e.g. because the change committed after all, so it can never refund twice.
+     *
+     * @param entry The withdrawal.
+     * @param reason The reason stored with the deposit.
+     * @return The id of the queued deposit, 0 if the entry was not APPLYING, or -1 if an error occurred.
+     */
+    public int refundEconomyOutboxEntry(EconomyOutboxEntry entry, String reason) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement fail = conn.prepareStatement(
+                    "UPDATE economy_outbox SET status = 'FAILED', applied_at = CURRENT_TIMESTAMP WHERE id = ? AND status = 'APPLYING'")) {
+
+                fail.setInt(1, entry.getId());
+                if (fail.executeUpdate() == 0) {
+                    conn.rollback();
+                    return 0;
+                }
+                int depositId = insertEconomyOutboxEntry(conn, entry.getPlayerUUID(), EconomyOutboxEntry.Kind.DEPOSIT,
+                        entry.getAmount(), reason, EconomyOutboxEntry.Purpose.REFUND);
+                conn.commit();
+                return depositId;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error refunding economy outbox entry " + entry.getId(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Hands an APPLYING outbox entry that was found not applied back to the worker.
+     *
+     * @return true if the entry was APPLYING.
+     */
+    public boolean retryEconomyOutboxEntry(int id) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE economy_outbox SET status = 'PENDING', balance_before = NULL WHERE id = ? AND status = 'APPLYING'")) {
+            stmt.setInt(1, id);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error resetting economy outbox entry " + id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Counts the outbox entries in a status.
      *
-     * @return A list of player data (UUID, name).
+     * @return The number of entries, or -1 if an error occurred.
+     */
+    public int countEconomyOutboxEntries(EconomyOutboxEntry.Status status) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM economy_outbox WHERE status = ?")) {
+
+            stmt.setString(1, status.name());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error counting economy outbox entries", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Gets all players who have active auctions, together with their number of listings.
+     *
+     * @return A list of player data (UUID, name, listing count).
      */
     public List<PlayerAuctionInfo> getPlayersWithAuctions() {
         List<PlayerAuctionInfo> players = new ArrayList<>();
 
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT DISTINCT seller_uuid, seller_name FROM active_auctions WHERE quantity_remaining > 0 ORDER BY seller_name")) {
+                     "SELECT seller_uuid, MAX(seller_name) AS seller_name, COUNT(*) AS listings FROM active_auctions " +
+                     "WHERE quantity_remaining > 0 GROUP BY seller_uuid ORDER BY seller_name")) {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    UUID playerUUID = UUID.fromString(rs.getString("seller_uuid"));
-                    String playerName = rs.getString("seller_name");
-                    players.add(new PlayerAuctionInfo(playerUUID, playerName));
+                    players.add(createPlayerAuctionInfoFromResultSet(rs));
                 }
             }
 
@@ -200,23 +864,21 @@ public class DatabaseManager {
      * Gets players with auctions that match the search term.
      *
      * @param searchTerm The term to search for in item names.
-     * @return A list of player data (UUID, name) who have items matching the search.
+     * @return A list of player data (UUID, name, number of matching listings) who have items matching the search.
      */
     public List<PlayerAuctionInfo> getPlayersWithMatchingItems(String searchTerm) {
         List<PlayerAuctionInfo> players = new ArrayList<>();
 
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT DISTINCT seller_uuid, seller_name FROM active_auctions " +
-                     "WHERE quantity_remaining > 0 AND item_name_lowercase LIKE ? ORDER BY seller_name")) {
+                     "SELECT seller_uuid, MAX(seller_name) AS seller_name, COUNT(*) AS listings FROM active_auctions " +
+                     "WHERE quantity_remaining > 0 AND item_name_lowercase LIKE ? GROUP BY seller_uuid ORDER BY seller_name")) {
 
             stmt.setString(1, "%" + searchTerm.toLowerCase() + "%");
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    UUID playerUUID = UUID.fromString(rs.getString("seller_uuid"));
-                    String playerName = rs.getString("seller_name");
-                    players.add(new PlayerAuctionInfo(playerUUID, playerName));
+                    players.add(createPlayerAuctionInfoFromResultSet(rs));
                 }
             }
 
@@ -228,25 +890,223 @@ public class DatabaseManager {
     }
 
     /**
-     * Removes sold out auctions from the database.
+     * Gets the saved player names.
+     *
+     * @return The names with the player last seen using them.
+     */
+    public List<KnownPlayerName> getSavedPlayerNames() {
+        return getPlayerNames("SELECT player_uuid, player_name, last_seen FROM player_names");
+    }
+
+    /**
+     * Gets the seller names of all auctions, which covers sellers who listed before names were saved.
+     *
+     * @return The names with the seller and their latest listing under that name.
+     */
+    public List<KnownPlayerName> getSellerNames() {
+        return getPlayerNames("SELECT seller_uuid, seller_name, MAX(listed_at) FROM active_auctions GROUP BY seller_uuid, seller_name");
+    }
+
+    private List<KnownPlayerName> getPlayerNames(String sql) {
+        List<KnownPlayerName> names = new ArrayList<>();
+
+        try (Connection conn = getScanConnection();
+             PreparedStatement stmt = prepareStreamingStatement(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                Timestamp lastSeen = rs.getTimestamp(3);
+                names.add(new KnownPlayerName(UUID.fromString(rs.getString(1)), rs.getString(2),
+                        lastSeen != null ? lastSeen.getTime() : 0));
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error loading player names", e);
+        }
+
+        return names;
+    }
+
+    /**
+     * Saves player names in one batch. A name that is already saved only moves to another player
+     * if that player was seen with it more recently.
+     *
+     * @param names The names to save.
      */
-    public void cleanupSoldOutAuctions() {
+    public void savePlayerNames(List<KnownPlayerName> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+
+        // MySQL applies the assignments in order, so both IFs still see the old last_seen
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "DELETE FROM active_auctions WHERE quantity_remaining <= 0")) {
+                     "INSERT INTO player_names (name_lowercase, player_uuid, player_name, last_seen) VALUES (?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE " +
+                     "player_uuid = IF(VALUES(last_seen) >= last_seen, VALUES(player_uuid), player_uuid), " +
+                     "player_name = IF(VALUES(last_seen) >= last_seen, VALUES(player_name), player_name), " +
+                     "last_seen = GREATEST(last_seen, VALUES(last_seen))")) {
 
-            int removed = stmt.executeUpdate();
-            if (removed > 0) {
-                plugin.getLogger().info("Cleaned up " + removed + " sold out auctions");
+            for (KnownPlayerName name : names) {
+                stmt.setString(1, name.getName().toLowerCase());
+                stmt.setString(2, name.getUuid().toString());
+                stmt.setString(3, name.getName());
+                stmt.setTimestamp(4, new Timestamp(name.getLastSeen()));
+                stmt.addBatch();
             }
+            stmt.executeBatch();
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error saving player names", e);
+        }
+    }
+
+    /**
+     * Removes at most {@code limit} sold out auctions from the database.
+     * Deleting in chunks keeps each statement short so it never holds locks for long.
+     *
+     * @param limit The maximum number of rows to delete in this chunk.
+     * @return The number of rows deleted, or -1 if an error occurred.
+     */
+    public int deleteSoldOutAuctionsChunk(int limit) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM active_auctions WHERE quantity_remaining <= 0 LIMIT ?")) {
+
+            stmt.setInt(1, limit);
+            return stmt.executeUpdate();
 
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error cleaning up sold out auctions", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Moves at most {@code limit} mailbox entries older than the cutoff into the archive table.
+     * The copy and the delete run in one transaction, so an entry is never lost or duplicated.
+     *
+     * @param cutoff Entries added before this time are considered stale.
+     * @param limit The maximum number of entries to move in this chunk.
+     * @return The number of entries archived, or -1 if an error occurred.
+     */
+    public int archiveStaleMailboxChunk(Timestamp cutoff, int limit) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                List<Integer> ids = new ArrayList<>();
+                try (PreparedStatement select = conn.prepareStatement(
+                        "SELECT id FROM player_mailbox WHERE added_at < ? ORDER BY id LIMIT ? FOR UPDATE")) {
+                    select.setTimestamp(1, cutoff);
+                    select.setInt(2, limit);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getInt(1));
+                        }
+                    }
+                }
+
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+
+                String placeholders = buildPlaceholders(ids.size());
+
+                try (PreparedStatement copy = conn.prepareStatement(
+                        "INSERT IGNORE INTO player_mailbox_archive " +
+                        "(id, player_uuid, type, item_serialized, money_amount, source_info, added_at) " +
+                        "SELECT id, player_uuid, type, item_serialized, money_amount, source_info, added_at " +
+                        "FROM player_mailbox WHERE id IN (" + placeholders + ")")) {
+                    bindIds(copy, ids);
+                    copy.executeUpdate();
+                }
+
+                int moved;
+                try (PreparedStatement delete = conn.prepareStatement(
+                        "DELETE FROM player_mailbox WHERE id IN (" + placeholders + ")")) {
+                    bindIds(delete, ids);
+                    moved = delete.executeUpdate();
+                }
+
+                conn.commit();
+                return moved;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error archiving stale mailbox entries", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Checks whether the connection pool is under pressure, i.e. threads are waiting
+     * for a connection or almost every connection is in use.
+     *
+     * @return true if background work should back off, false otherwise.
+     */
+    public boolean isPoolSaturated() {
+        if (!isConnected()) {
+            return true;
         }
+
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return false;
+        }
+
+        if (pool.getThreadsAwaitingConnection() > 0) {
+            return true;
+        }
+        int maxPoolSize = dataSource.getMaximumPoolSize();
+        return maxPoolSize > 0 && pool.getActiveConnections() >= maxPoolSize * 0.8;
     }
 
     /**
-     * Creates a MailboxItem object from a ResultSet.
+     * Builds a comma separated list of JDBC placeholders.
+     *
+     * @param count The number of placeholders.
+     * @return A string like "?,?,?".
+     */
+    static String buildPlaceholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Binds a list of ids to consecutive statement parameters, starting at index 1.
+     */
+    static void bindIds(PreparedStatement stmt, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            stmt.setInt(i + 1, ids.get(i));
+        }
+    }
+
+    /**
+     * Creates a PlayerAuctionInfo object from a grouped seller ResultSet.
+     */
+    private PlayerAuctionInfo createPlayerAuctionInfoFromResultSet(ResultSet rs) throws SQLException {
+        UUID playerUUID = UUID.fromString(rs.getString("seller_uuid"));
+        String playerName = rs.getString("seller_name");
+        int listingCount = rs.getInt("listings");
+        return new PlayerAuctionInfo(playerUUID, playerName, listingCount);
+    }
+
+    /**
+     * Creates a MailboxItem object from a summary ResultSet (without item data).
      *
      * @param rs The ResultSet containing mailbox item data.
      * @return The created MailboxItem.
@@ -256,13 +1116,7 @@ public class DatabaseManager {
         UUID playerUUID = UUID.fromString(rs.getString("player_uuid"));
         MailboxItem.Type type = MailboxItem.Type.valueOf(rs.getString("type"));
 
-        ItemStack itemStack = null;
-        if (type == MailboxItem.Type.ITEM) {
-            byte[] itemData = rs.getBytes("item_serialized");
-            if (itemData != null) {
-                itemStack = ItemSerializer.deserializeItemStack(itemData);
-            }
-        }
+        ItemStack itemStack = null; // Loaded on demand, see loadMailboxItemStacks()
 
         long moneyAmount = rs.getLong("money_amount");
         String sourceInfo = rs.getString("source_info");
@@ -277,10 +1131,12 @@ public class DatabaseManager {
     public static class PlayerAuctionInfo {
         private final UUID uuid;
         private final String name;
+        private final int listingCount;
 
-        public PlayerAuctionInfo(UUID uuid, String name) {
+        public PlayerAuctionInfo(UUID uuid, String name, int listingCount) {
             this.uuid = uuid;
             this.name = name;
+            this.listingCount = listingCount;
         }
 
         public UUID getUuid() {
@@ -290,5 +1146,36 @@ public class DatabaseManager {
         public String getName() {
             return name;
         }
+
+        public int getListingCount() {
+            return listingCount;
+        }
+    }
+
+    /**
+     * A name a player was seen with, and when.
+     */
+    public static class KnownPlayerName {
+        private final UUID uuid;
+        private final String name;
+        private final long lastSeen;
+
+        public KnownPlayerName(UUID uuid, String name, long lastSeen) {
+            this.uuid = uuid;
+            this.name = name;
+            this.lastSeen = lastSeen;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
     }
 }
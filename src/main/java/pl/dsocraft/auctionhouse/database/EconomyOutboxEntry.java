@@ -0,0 +1,105 @@
+package pl.dsocraft.auctionhouse.database;
+
+import java.util.UUID;
+
+/**
+ * Represents a withdrawal or deposit in the economy outbox. The entry is written in the same
+ * transaction as the claim it belongs to and applied to Vault after the commit. Purchases and buy
+ * orders withdraw first instead, in an entry of their own, and mark it applied in the transaction
+ * of the change they pay for.
+ */
+public class EconomyOutboxEntry {
+
+    public enum Kind {
+        WITHDRAW,
+        DEPOSIT
+    }
+
+    /**
+     * PENDING entries are applied by the outbox worker. APPLYING entries are being applied; the
+     * player's balance right before is recorded with them, so one left by a crash can be resolved
+     * on the next start. FAILED entries were not applied and the change they belong to was undone.
+     */
+    public enum Status {
+        PENDING,
+        APPLYING,
+        APPLIED,
+        FAILED
+    }
+
+    /**
+     * What an entry pays for, which decides how it is undone if it cannot be applied.
+     * Entries written by older versions have none.
+     */
+    public enum Purpose {
+        PURCHASE, // Withdrawn before the purchase's transaction, APPLIED in it
+        ESCROW, // Withdrawn before a new buy order's transaction, APPLIED in it
+        CLAIM, // Deposit of money claimed from the mailbox, returned to the mailbox if it fails
+        REFUND; // Deposit giving back a withdrawal whose change did not commit
+
+        /**
+         * Checks whether entries of this purpose are withdrawn before the transaction of the change
+         * they pay for, and marked APPLIED in that transaction.
+         */
+        public boolean isPaidBeforeCommit() {
+            return this == PURCHASE || this == ESCROW;
+        }
+    }
+
+    private final int id;
+    private final UUID playerUUID;
+    private final Kind kind;
+    private final long amount;
+    private final String reason;
+    private final Purpose purpose; // null for entries of older versions
+    private final Double balanceBefore; // Recorded when the entry started APPLYING, else null
+
+    public EconomyOutboxEntry(int id, UUID playerUUID, Kind kind, long amount, String reason,
+                              Purpose purpose, Double balanceBefore) {
+        this.id = id;
+        this.playerUUID = playerUUID;
+        this.kind = kind;
+        this.amount = amount;
+        this.reason = reason;
+        this.purpose = purpose;
+        this.balanceBefore = balanceBefore;
+    }
+
+    /**
+     * Gets the change this entry makes to the player's balance.
+     * @return The amount, negative for withdrawals.
+     */
+    public long getDelta() {
+        return kind == Kind.WITHDRAW ? -amount : amount;
+    }
+
+    // Getters
+
+    public int getId() {
+        return id;
+    }
+
+    public UUID getPlayerUUID() {
+        return playerUUID;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Purpose getPurpose() {
+        return purpose;
+    }
+
+    public Double getBalanceBefore() {
+        return balanceBefore;
+    }
+}
@@ -0,0 +1,36 @@
+package pl.dsocraft.auctionhouse.database;
+
+/**
+ * The remaining quantity of a listing together with the row version it was committed at.
+ * Immutable, so readers on other threads always see a quantity and the version that goes with it.
+ */
+public final class ListingStock {
+    private final int quantityRemaining;
+    private final int version;
+
+    /**
+     * @param quantityRemaining The quantity left, 0 if the listing is gone.
+     * @param version The row version that goes with the quantity.
+     */
+    public ListingStock(int quantityRemaining, int version) {
+        this.quantityRemaining = Math.max(0, quantityRemaining);
+        this.version = version;
+    }
+
+    /**
+     * Gets the stock after taking some items off the listing, which advances the row version by one.
+     * @param quantity The quantity taken.
+     * @return The new stock.
+     */
+    public ListingStock reduce(int quantity) {
+        return new ListingStock(quantityRemaining - quantity, version + 1);
+    }
+
+    public int getQuantityRemaining() {
+        return quantityRemaining;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
@@ -17,7 +17,7 @@ public class MailboxItem {
     private final int id;
     private final UUID playerUUID;
     private final Type type;
-    private final ItemStack itemStack; // null if type is MONEY
+    private volatile ItemStack itemStack; // null if type is MONEY, or until loaded for summary rows
     private final long moneyAmount;    // 0 if type is ITEM
     private final String sourceInfo;
     private final long addedAt;
@@ -89,6 +89,20 @@ public class MailboxItem {
         return itemStack != null ? itemStack.clone() : null; // Return a clone to prevent modification
     }
 
+    /**
+     * Checks if the item data of this entry still has to be loaded.
+     */
+    public boolean needsItemStack() {
+        return type == Type.ITEM && itemStack == null;
+    }
+
+    /**
+     * Attaches item data that was loaded separately from the summary row.
+     */
+    public void attachItemStack(ItemStack itemStack) {
+        this.itemStack = itemStack;
+    }
+
     public long getMoneyAmount() {
         return moneyAmount;
     }
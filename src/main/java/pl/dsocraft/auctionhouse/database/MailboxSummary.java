@@ -0,0 +1,74 @@
+package pl.dsocraft.auctionhouse.database;
+
+import java.util.List;
+
+/**
+ * Immutable summary of a player's mailbox: how many entries are waiting and what they contain.
+ */
+public class MailboxSummary {
+
+    public static final MailboxSummary EMPTY = new MailboxSummary(0, 0, 0);
+
+    private final int moneyEntries;
+    private final long moneyTotal;
+    private final int itemEntries;
+
+    public MailboxSummary(int moneyEntries, long moneyTotal, int itemEntries) {
+        this.moneyEntries = Math.max(0, moneyEntries);
+        this.moneyTotal = Math.max(0, moneyTotal);
+        this.itemEntries = Math.max(0, itemEntries);
+    }
+
+    /**
+     * Builds a summary from mailbox items that were already loaded.
+     *
+     * @param items The mailbox items.
+     * @return The summary of the items.
+     */
+    public static MailboxSummary of(List<MailboxItem> items) {
+        int moneyEntries = 0;
+        long moneyTotal = 0;
+        int itemEntries = 0;
+        for (MailboxItem item : items) {
+            if (item.isMoney()) {
+                moneyEntries++;
+                moneyTotal += item.getMoneyAmount();
+            } else if (item.isItem()) {
+                itemEntries++;
+            }
+        }
+        return new MailboxSummary(moneyEntries, moneyTotal, itemEntries);
+    }
+
+    /**
+     * Returns a summary with the given changes applied.
+     *
+     * @param moneyEntriesDelta The change in money entries.
+     * @param moneyDelta The change in pending money.
+     * @param itemEntriesDelta The change in item entries.
+     * @return The updated summary.
+     */
+    public MailboxSummary plus(int moneyEntriesDelta, long moneyDelta, int itemEntriesDelta) {
+        return new MailboxSummary(moneyEntries + moneyEntriesDelta, moneyTotal + moneyDelta, itemEntries + itemEntriesDelta);
+    }
+
+    public boolean isEmpty() {
+        return getEntryCount() == 0;
+    }
+
+    public int getEntryCount() {
+        return moneyEntries + itemEntries;
+    }
+
+    public int getMoneyEntries() {
+        return moneyEntries;
+    }
+
+    public long getMoneyTotal() {
+        return moneyTotal;
+    }
+
+    public int getItemEntries() {
+        return itemEntries;
+    }
+}
@@ -6,8 +6,12 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.inventory.Inventory;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.managers.GUIManager;
+import pl.dsocraft.auctionhouse.managers.SellBoxHolder;
 
 /**
  * Handles inventory click events for the auction house GUIs.
@@ -33,16 +37,30 @@ public class InventoryClickListener implements Listener {
             return;
         }
 
+        // The sell box is the one GUI where players move their own items
+        if (SellBoxHolder.isSellBox(event.getView().getTopInventory())) {
+            if (plugin.getGuiManager().handleSellBoxClick(player, event.getRawSlot())) {
+                event.setCancelled(true);
+            }
+            return;
+        }
+
         String inventoryTitle = ChatColor.stripColor(event.getView().getTitle());
 
         // Check if this is one of our GUIs
         if (inventoryTitle.contains("Auction House") || 
             inventoryTitle.contains("'s Auctions") || 
+            inventoryTitle.contains(GUIManager.BROWSE_TITLE_MARKER) ||
             inventoryTitle.equals("Confirm Purchase") ||
             inventoryTitle.equals("Your Mailbox")) {
 
             event.setCancelled(true); // Cancel the event to prevent item movement
 
+            // Every click on an item may load from the database, so it takes a token
+            if (event.getCurrentItem() != null && !plugin.getThrottleManager().tryAcquire(player, "click")) {
+                return;
+            }
+
             int slot = event.getSlot();
             boolean isRightClick = event.getClick() == ClickType.RIGHT;
             boolean isShiftClick = event.isShiftClick();
@@ -59,7 +77,7 @@ public class InventoryClickListener implements Listener {
 
                 // Then check if it's a player head (in main GUI)
                 plugin.getGuiManager().handlePlayerHeadClick(player, slot);
-            } else if (inventoryTitle.contains("'s Auctions")) {
+            } else if (inventoryTitle.contains("'s Auctions") || inventoryTitle.contains(GUIManager.BROWSE_TITLE_MARKER)) {
                 // First check if it's a navigation button
                 if (plugin.getGuiManager().handleNavigationClick(player, slot, inventoryTitle)) {
                     return;
@@ -78,4 +96,23 @@ public class InventoryClickListener implements Listener {
             }
         }
     }
+
+    @EventHandler
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (SellBoxHolder.isSellBox(event.getView().getTopInventory())
+                && plugin.getGuiManager().isSellBoxButtonDrag(event.getRawSlots())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        if (!(event.getPlayer() instanceof Player)) {
+            return;
+        }
+
+        if (SellBoxHolder.isSellBox(event.getInventory())) {
+            plugin.getGuiManager().handleSellBoxClose((Player) event.getPlayer(), event.getInventory());
+        }
+    }
 }
@@ -30,8 +30,8 @@ public class PlayerChatListener implements Listener {
         if (plugin.getGuiManager().isAwaitingChatInput(player.getUniqueId())) {
             event.setCancelled(true); // Cancel the chat event to prevent the message from being broadcast
             
-            // Handle the chat input in the GUI manager
-            plugin.getGuiManager().handleChatInput(player, event.getMessage());
+            // Hand the chat input to the GUI manager, which handles it on the main thread
+            plugin.getGuiManager().queueChatInput(player, event.getMessage());
         }
     }
 
@@ -44,5 +44,8 @@ public class PlayerChatListener implements Listener {
         
         // Clean up any pending data for the player
         plugin.getGuiManager().cleanupPlayerData(player.getUniqueId());
+        plugin.getMailboxSummaryManager().remove(player.getUniqueId());
+        plugin.getThrottleManager().remove(player.getUniqueId());
+        plugin.getShopViewerManager().unwatch(player.getUniqueId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package pl.dsocraft.auctionhouse.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+
+/**
+ * Handles player join events for the auction house.
+ */
+public class PlayerJoinListener implements Listener {
+
+    private final DSOAuctionHouse plugin;
+
+    public PlayerJoinListener(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Loads the player's mailbox summary in the background and notifies them about unclaimed entries,
+     * and records their current name for /checkah.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getMailboxSummaryManager().loadAsync(event.getPlayer());
+        plugin.getSellerDirectoryManager().onJoin(event.getPlayer());
+    }
+}
@@ -0,0 +1,65 @@
+package pl.dsocraft.auctionhouse.listeners;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.commands.AuctionTabCompleter;
+
+import java.util.List;
+
+/**
+ * Completes /ah find and /checkah from Paper's async tab-complete event, so completing names
+ * neither waits for nor blocks the main thread. Other commands fall through to the regular
+ * {@link AuctionTabCompleter}.
+ */
+public class TabCompleteListener implements Listener {
+
+    private final DSOAuctionHouse plugin;
+    private final AuctionTabCompleter completer;
+
+    public TabCompleteListener(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+        this.completer = new AuctionTabCompleter(plugin);
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onAsyncTabComplete(AsyncTabCompleteEvent event) {
+        if (!event.isCommand() || event.isHandled()) {
+            return;
+        }
+
+        String buffer = event.getBuffer();
+        if (buffer.startsWith("/")) {
+            buffer = buffer.substring(1);
+        }
+        int space = buffer.indexOf(' ');
+        if (space < 0) {
+            return; // Still typing the command itself
+        }
+        String label = buffer.substring(0, space).toLowerCase();
+        label = label.substring(label.indexOf(':') + 1); // e.g. dsoauctionhouse:ah
+        String arguments = buffer.substring(space + 1);
+
+        CommandSender sender = event.getSender();
+        List<String> completions;
+        if ((label.equals("ah") || label.equals("auctionhouse")) && arguments.toLowerCase().startsWith("find ")) {
+            if (!sender.hasPermission("ah.use") || !sender.hasPermission("ah.find")) {
+                return;
+            }
+            completions = completer.completeItemName(arguments.substring("find ".length()));
+        } else if (label.equals("checkah") && arguments.indexOf(' ') < 0) {
+            if (!sender.hasPermission("ah.use")) {
+                return;
+            }
+            completions = completer.completePlayerName(arguments);
+        } else {
+            return;
+        }
+
+        event.setCompletions(completions);
+        event.setHandled(true);
+        plugin.getMetricsManager().increment("tab_complete.async");
+    }
+}
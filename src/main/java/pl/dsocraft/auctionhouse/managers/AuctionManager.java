@@ -2,18 +2,24 @@ package pl.dsocraft.auctionhouse.managers;
 
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
 import net.luckperms.api.model.user.User;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.Settings;
 import pl.dsocraft.auctionhouse.database.AuctionItem;
 import pl.dsocraft.auctionhouse.database.DatabaseManager;
+import pl.dsocraft.auctionhouse.database.EconomyOutboxEntry;
+import pl.dsocraft.auctionhouse.database.ListingStock;
 import pl.dsocraft.auctionhouse.database.MailboxItem;
+import pl.dsocraft.auctionhouse.utils.IoExecutor;
+import pl.dsocraft.auctionhouse.utils.ItemKeys;
 import pl.dsocraft.auctionhouse.utils.ItemSerializer;
+import pl.dsocraft.auctionhouse.utils.RequestCoalescer;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -21,8 +27,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 /**
@@ -30,18 +42,32 @@ import java.util.logging.Level;
  */
 public class AuctionManager {
 
+    /**
+     * Columns of an auction summary row, i.e. everything except the item blob.
+     */
+    private static final String AUCTION_SUMMARY_COLUMNS =
+            "id, seller_uuid, seller_name, item_name_lowercase, price_total, quantity_initial, quantity_remaining, listed_at, item_key, version";
+    private static final String AUCTION_FULL_COLUMNS = AUCTION_SUMMARY_COLUMNS + ", item_serialized";
+    private static final long RANK_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
     private final DSOAuctionHouse plugin;
     private final DatabaseManager databaseManager;
     private final Economy economy;
+    private final RequestCoalescer<String, List<DatabaseManager.PlayerAuctionInfo>> sellerLoads;
     private LuckPerms luckPerms;
+    private final Map<UUID, CachedRank> rankCache = new ConcurrentHashMap<>();
 
     public AuctionManager(DSOAuctionHouse plugin) {
         this.plugin = plugin;
         this.databaseManager = plugin.getDatabaseManager();
         this.economy = DSOAuctionHouse.getEconomy();
+        this.sellerLoads = new RequestCoalescer<>(() -> plugin.getMetricsManager().increment("coalesced.sellers"));
 
         try {
             this.luckPerms = LuckPermsProvider.get();
+            // A recalculated user may have changed groups, the next load looks them up again
+            luckPerms.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class,
+                    event -> rankCache.remove(event.getUser().getUniqueId()));
         } catch (Exception e) {
             plugin.getLogger().warning("LuckPerms not found or failed to initialize. Permission-based limits will not work.");
         }
@@ -82,7 +108,7 @@ public class AuctionManager {
         try (Connection conn = databaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "INSERT INTO active_auctions (seller_uuid, seller_name, item_serialized, item_name_lowercase, " +
-                     "price_total, quantity_initial, quantity_remaining) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                     "price_total, quantity_initial, quantity_remaining, item_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
                      PreparedStatement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, player.getUniqueId().toString());
@@ -96,6 +122,8 @@ public class AuctionManager {
             stmt.setLong(5, price);
             stmt.setInt(6, quantity);
             stmt.setInt(7, quantity);
+            String itemKey = ItemKeys.of(itemToSell);
+            stmt.setString(8, itemKey);
 
             int affectedRows = stmt.executeUpdate();
 
@@ -103,6 +131,19 @@ public class AuctionManager {
                 // Remove the item from the player's inventory
                 player.getInventory().removeItem(itemStack);
 
+                long unitPrice = quantity > 0 ? price / quantity : price;
+
+                // Feed the market price statistics
+                plugin.getPriceStatsManager().recordListing(itemKey, getItemDisplayName(itemToSell), unitPrice);
+
+                // Index the new listing and let waiting buy orders match against it
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        plugin.getOrderBookManager().onListingAdded(keys.getInt(1), player.getUniqueId(),
+                                player.getName(), itemKey, itemName.toLowerCase(), itemToSell, price);
+                    }
+                }
+
                 // Send success message
                 plugin.getMessageManager().sendMessage(player, "item_listed_successfully", 
                         "${price}", plugin.getMessageManager().formatPrice(price));
@@ -120,24 +161,148 @@ public class AuctionManager {
     }
 
     /**
-     * Purchases an item from the auction house.
+     * Lists several stacks at once, one listing per stack, all at the same unit price.
+     * The auction limit is checked once and all listings are inserted with a single multi-row
+     * statement in one transaction, so either every allowed stack is listed or none is.
+     * <p>
+     * The caller removes the listed stacks from wherever they came from, and only if this
+     * method returns a result; stacks beyond the player's limit are not listed.
+     *
+     * @param player The player listing the items.
+     * @param stacks The stacks to list, in the order they should be listed.
+     * @param unitPrice The price per item.
+     * @return The result, or null if nothing was listed (the player has been told why).
+     */
+    public BulkListResult listItems(Player player, List<ItemStack> stacks, long unitPrice) {
+        if (unitPrice <= 0) {
+            plugin.getMessageManager().sendMessage(player, "must_be_positive_amount");
+            return null;
+        }
+
+        List<ItemStack> toList = new ArrayList<>();
+        for (ItemStack stack : stacks) {
+            if (stack != null && !stack.getType().isAir()) {
+                toList.add(stack.clone());
+            }
+        }
+        if (toList.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "cannot_sell_air");
+            return null;
+        }
+
+        // Check the auction limit once for the whole batch
+        int playerLimit = getPlayerAuctionLimit(player);
+        int available = playerLimit - getPlayerListingsCount(player.getUniqueId());
+        if (available <= 0) {
+            plugin.getMessageManager().sendMessage(player, "auction_limit_reached", "{limit}", String.valueOf(playerLimit));
+            return null;
+        }
+        int skippedStacks = Math.max(0, toList.size() - available);
+        toList = toList.subList(0, toList.size() - skippedStacks);
+
+        long[] prices = new long[toList.size()];
+        try {
+            for (int i = 0; i < prices.length; i++) {
+                prices[i] = Math.multiplyExact(unitPrice, toList.get(i).getAmount());
+            }
+        } catch (ArithmeticException e) {
+            plugin.getMessageManager().sendMessage(player, "invalid_price_format");
+            return null;
+        }
+
+        String rows = String.join(", ", Collections.nCopies(toList.size(), "(?, ?, ?, ?, ?, ?, ?, ?)"));
+        List<Integer> listingIds = new ArrayList<>();
+        try (Connection conn = databaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO active_auctions (seller_uuid, seller_name, item_serialized, item_name_lowercase, " +
+                    "price_total, quantity_initial, quantity_remaining, item_key) VALUES " + rows,
+                    PreparedStatement.RETURN_GENERATED_KEYS)) {
+
+                int index = 1;
+                for (int i = 0; i < toList.size(); i++) {
+                    ItemStack stack = toList.get(i);
+                    stmt.setString(index++, player.getUniqueId().toString());
+                    stmt.setString(index++, player.getName());
+                    stmt.setBytes(index++, ItemSerializer.serializeItemStack(stack));
+                    stmt.setString(index++, getCleanItemName(stack).toLowerCase());
+                    stmt.setLong(index++, prices[i]);
+                    stmt.setInt(index++, stack.getAmount());
+                    stmt.setInt(index++, stack.getAmount());
+                    stmt.setString(index++, ItemKeys.of(stack));
+                }
+
+                if (stmt.executeUpdate() != toList.size()) {
+                    throw new SQLException("Not all listings were inserted");
+                }
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        listingIds.add(keys.getInt(1));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error listing items for auction", e);
+            plugin.getMessageManager().sendMessage(player, "error_listing_item");
+            return null;
+        }
+
+        // Feed the market price statistics and let waiting buy orders match
+        int listedItems = 0;
+        long totalPrice = 0;
+        for (int i = 0; i < toList.size(); i++) {
+            ItemStack stack = toList.get(i);
+            String itemKey = ItemKeys.of(stack);
+            plugin.getPriceStatsManager().recordListing(itemKey, getItemDisplayName(stack), unitPrice);
+            if (i < listingIds.size()) {
+                plugin.getOrderBookManager().onListingAdded(listingIds.get(i), player.getUniqueId(),
+                        player.getName(), itemKey, getCleanItemName(stack).toLowerCase(), stack, prices[i]);
+            }
+            listedItems += stack.getAmount();
+            totalPrice += prices[i];
+        }
+        plugin.getMetricsManager().add("auctions.bulk_listed", toList.size());
+
+        plugin.getMessageManager().sendMessage(player, "items_listed_bulk",
+                "{stacks}", String.valueOf(toList.size()),
+                "{items}", String.valueOf(listedItems),
+                "${price}", plugin.getMessageManager().formatPrice(totalPrice));
+        if (skippedStacks > 0) {
+            plugin.getMessageManager().sendMessage(player, "items_listed_limit_reached",
+                    "{skipped}", String.valueOf(skippedStacks),
+                    "{limit}", String.valueOf(playerLimit));
+        }
+
+        return new BulkListResult(toList.size(), listedItems, totalPrice, skippedStacks, playerLimit);
+    }
+
+    /**
+     * Purchases an item from the auction house at the state the player confirmed. Only the item
+     * data of the listing is read again, since views may show a shared template of the item; the
+     * purchase only goes through if the row is still at the quoted version, which is checked by
+     * the update that takes the items off it.
      *
      * @param player The player making the purchase.
-     * @param auctionId The ID of the auction.
+     * @param quote The listing as the player saw it.
      * @param quantity The quantity to purchase.
      * @return true if the purchase was successful, false otherwise.
      */
-    public boolean purchaseItem(Player player, int auctionId, int quantity) {
+    public boolean purchaseItem(Player player, PurchaseQuote quote, int quantity) {
         if (quantity <= 0) {
             plugin.getMessageManager().sendMessage(player, "must_be_positive_amount");
             return false;
         }
 
-        AuctionItem auctionItem = getAuctionItem(auctionId);
-        if (auctionItem == null) {
-            plugin.getMessageManager().sendMessage(player, "auction_not_found");
-            return false;
-        }
+        AuctionItem auctionItem = quote.getListing();
+        int auctionId = quote.getAuctionId();
 
         // Check if player is trying to buy their own item
         if (auctionItem.getSellerUUID().equals(player.getUniqueId())) {
@@ -146,14 +311,14 @@ public class AuctionManager {
         }
 
         // Check if quantity is valid
-        if (quantity > auctionItem.getQuantityRemaining()) {
+        if (quantity > quote.getQuantity()) {
             plugin.getMessageManager().sendRawMessage(player, "&cThere are only " + 
-                    auctionItem.getQuantityRemaining() + " items available.");
+                    quote.getQuantity() + " items available.");
             return false;
         }
 
         // Calculate price for the requested quantity
-        long pricePerItem = auctionItem.getPricePerItem();
+        long pricePerItem = quote.getUnitPrice();
         long totalPrice = pricePerItem * quantity;
 
         // Check if player has enough money
@@ -162,53 +327,61 @@ public class AuctionManager {
             return false;
         }
 
-        // Process the transaction
+        // Hand out the item stored with this listing, never the shared template of a browse view
+        ItemStack purchasedItem = databaseManager.getItemStacks("active_auctions", List.of(auctionId)).get(auctionId);
+        if (purchasedItem == null) {
+            plugin.getMetricsManager().increment("purchase.stale_version");
+            plugin.getMessageManager().sendRawMessage(player, "&cThis listing changed while you were looking at it. Please try again.");
+            return false;
+        }
+        purchasedItem.setAmount(quantity);
+
+        // Take the payment first, on its own, so no row locks are held while the economy plugin works
+        EconomyOutboxManager outbox = plugin.getEconomyOutboxManager();
+        int paymentId = outbox.withdraw(player, totalPrice, "Purchase of auction " + auctionId,
+                EconomyOutboxEntry.Purpose.PURCHASE);
+        if (paymentId == 0) {
+            plugin.getMessageManager().sendMessage(player, "not_enough_money");
+            return false;
+        }
+        if (paymentId < 0) {
+            plugin.getMessageManager().sendRawMessage(player, "&cAn error occurred while processing your purchase. Please try again.");
+            return false;
+        }
+
+        // Process the transaction; if it does not commit, the payment is refunded
+        String itemName;
         try (Connection conn = databaseManager.getConnection()) {
             conn.setAutoCommit(false);
 
             try {
-                // Update the auction item quantity
-                if (!updateAuctionItemQuantity(conn, auctionId, quantity)) {
-                    throw new SQLException("Failed to update auction item quantity");
+                // Update the auction item quantity, only if nobody changed the listing in the meantime
+                if (!updateAuctionItemQuantity(conn, quote, quantity)) {
+                    conn.rollback();
+                    outbox.refund(paymentId, player.getUniqueId(), totalPrice, EconomyOutboxEntry.Purpose.PURCHASE);
+                    plugin.getMetricsManager().increment("purchase.stale_version");
+                    plugin.getMessageManager().sendRawMessage(player, "&cThis listing changed while you were looking at it. Please try again.");
+                    return false;
                 }
 
-                // Withdraw money from buyer
-                economy.withdrawPlayer(player, totalPrice);
-
-                // Create a copy of the item with the purchased quantity
-                ItemStack purchasedItem = auctionItem.createItemStackWithQuantity(quantity);
-
                 // Add item to buyer's mailbox
                 String sourceInfo = "Purchased from " + auctionItem.getSellerName();
                 addToMailbox(conn, player.getUniqueId(), MailboxItem.Type.ITEM, purchasedItem, 0, sourceInfo);
 
                 // Add money to seller's mailbox
-                OfflinePlayer seller = Bukkit.getOfflinePlayer(auctionItem.getSellerUUID());
-                String itemName = purchasedItem.getType().name();
-                if (purchasedItem.hasItemMeta() && purchasedItem.getItemMeta().hasDisplayName()) {
-                    itemName = purchasedItem.getItemMeta().getDisplayName();
-                }
+                itemName = getItemDisplayName(purchasedItem);
                 String sellerSourceInfo = "Sold: " + itemName + " x" + quantity;
                 addToMailbox(conn, auctionItem.getSellerUUID(), MailboxItem.Type.MONEY, null, totalPrice, sellerSourceInfo);
 
-                // If the seller is online, notify them
-                Player sellerPlayer = Bukkit.getPlayer(auctionItem.getSellerUUID());
-                if (sellerPlayer != null && sellerPlayer.isOnline()) {
-                    plugin.getMessageManager().sendMessage(sellerPlayer, "item_sold", 
-                            "{item_name}", itemName, 
-                            "${price}", plugin.getMessageManager().formatPrice(totalPrice));
+                // The payment counts as applied only together with the sale
+                if (!databaseManager.markEconomyOutboxEntryApplied(conn, paymentId)) {
+                    throw new SQLException("Payment " + paymentId + " is no longer being applied");
                 }
-
-                // Send success message to buyer
-                plugin.getMessageManager().sendMessage(player, "item_purchased", 
-                        "{item_name}", itemName, 
-                        "${price}", plugin.getMessageManager().formatPrice(totalPrice));
-
                 conn.commit();
-                return true;
 
             } catch (Exception e) {
                 conn.rollback();
+                outbox.refund(paymentId, player.getUniqueId(), totalPrice, EconomyOutboxEntry.Purpose.PURCHASE);
                 plugin.getLogger().log(Level.SEVERE, "Error processing purchase", e);
                 plugin.getMessageManager().sendRawMessage(player, "&cAn error occurred while processing your purchase. Please try again.");
                 return false;
@@ -217,14 +390,36 @@ public class AuctionManager {
             }
 
         } catch (SQLException e) {
+            outbox.refund(paymentId, player.getUniqueId(), totalPrice, EconomyOutboxEntry.Purpose.PURCHASE);
             plugin.getLogger().log(Level.SEVERE, "Error connecting to database for purchase", e);
             plugin.getMessageManager().sendRawMessage(player, "&cAn error occurred while processing your purchase. Please try again.");
             return false;
         }
+
+        // If the seller is online, notify them
+        Player sellerPlayer = Bukkit.getPlayer(auctionItem.getSellerUUID());
+        if (sellerPlayer != null && sellerPlayer.isOnline()) {
+            plugin.getMessageManager().sendMessage(sellerPlayer, "item_sold", 
+                    "{item_name}", itemName, 
+                    "${price}", plugin.getMessageManager().formatPrice(totalPrice));
+        }
+
+        // Send success message to buyer
+        plugin.getMessageManager().sendMessage(player, "item_purchased", 
+                "{item_name}", itemName, 
+                "${price}", plugin.getMessageManager().formatPrice(totalPrice));
+
+        plugin.getMailboxSummaryManager().recordAdded(player.getUniqueId(), MailboxItem.Type.ITEM, 0);
+        plugin.getMailboxSummaryManager().recordAdded(auctionItem.getSellerUUID(), MailboxItem.Type.MONEY, totalPrice);
+
+        // Feed the market price statistics
+        plugin.getPriceStatsManager().recordSale(auctionItem.getItemKey(), itemName, pricePerItem);
+        plugin.getOrderBookManager().onListingPurchased(auctionId, quantity);
+        return true;
     }
 
     /**
-     * Gets an auction item by ID.
+     * Gets an auction item by ID, including its item data.
      *
      * @param auctionId The ID of the auction.
      * @return The auction item, or null if not found.
@@ -232,13 +427,13 @@ public class AuctionManager {
     public AuctionItem getAuctionItem(int auctionId) {
         try (Connection conn = databaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM active_auctions WHERE id = ?")) {
+                     "SELECT " + AUCTION_FULL_COLUMNS + " FROM active_auctions WHERE id = ?")) {
 
             stmt.setInt(1, auctionId);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return createAuctionItemFromResultSet(rs);
+                    return createAuctionItemFromResultSet(rs, true);
                 }
             }
 
@@ -250,32 +445,48 @@ public class AuctionManager {
     }
 
     /**
-     * Gets all active auction items.
+     * Gets all active auction items, including their item data.
+     * Prefer {@link #forEachActiveAuction(boolean, Consumer)} for large scans.
      *
      * @return A list of all active auction items.
      */
     public List<AuctionItem> getAllAuctionItems() {
         List<AuctionItem> items = new ArrayList<>();
+        forEachActiveAuction(true, items::add);
+        return items;
+    }
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM active_auctions WHERE quantity_remaining > 0 ORDER BY listed_at DESC")) {
+    /**
+     * Streams all active auctions to a consumer without buffering the whole result set.
+     * The consumer runs on the calling thread while the result set is open, so it should be quick.
+     *
+     * @param includeItems Whether to read and deserialize the item data as well.
+     * @param consumer Receives each auction item.
+     * @return true if the scan completed, false if an error occurred.
+     */
+    public boolean forEachActiveAuction(boolean includeItems, Consumer<AuctionItem> consumer) {
+        String columns = includeItems ? AUCTION_FULL_COLUMNS : AUCTION_SUMMARY_COLUMNS;
+
+        try (Connection conn = databaseManager.getScanConnection();
+             PreparedStatement stmt = databaseManager.prepareStreamingStatement(conn,
+                     "SELECT " + columns + " FROM active_auctions WHERE quantity_remaining > 0 ORDER BY listed_at DESC")) {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    items.add(createAuctionItemFromResultSet(rs));
+                    consumer.accept(createAuctionItemFromResultSet(rs, includeItems));
                 }
             }
+            return true;
 
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error getting all auction items", e);
+            plugin.getLogger().log(Level.SEVERE, "Error scanning active auction items", e);
+            return false;
         }
-
-        return items;
     }
 
     /**
-     * Gets auction items for a specific player.
+     * Gets auction items for a specific player, without their item data.
+     * Use {@link #loadItemStacks(List)} for the items that are displayed.
      *
      * @param playerUUID The UUID of the player.
      * @return A list of auction items for the player.
@@ -285,13 +496,14 @@ public class AuctionManager {
 
         try (Connection conn = databaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM active_auctions WHERE seller_uuid = ? AND quantity_remaining > 0 ORDER BY listed_at DESC")) {
+                     "SELECT " + AUCTION_SUMMARY_COLUMNS + " FROM active_auctions " +
+                     "WHERE seller_uuid = ? AND quantity_remaining > 0 ORDER BY listed_at DESC")) {
 
             stmt.setString(1, playerUUID.toString());
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    items.add(createAuctionItemFromResultSet(rs));
+                    items.add(createAuctionItemFromResultSet(rs, false));
                 }
             }
 
@@ -303,25 +515,118 @@ public class AuctionManager {
     }
 
     /**
-     * Gets players with auctions, sorted by rank and name.
+     * Loads the item data of the given auction items that do not have it yet,
+     * with a single query for all of them.
+     *
+     * @param items The auction items, typically the visible page.
      */
-    public List<DatabaseManager.PlayerAuctionInfo> getPlayersWithAuctions() {
-        List<DatabaseManager.PlayerAuctionInfo> players = databaseManager.getPlayersWithAuctions();
-        return sortPlayersByRank(players);
+    public void loadItemStacks(List<AuctionItem> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (AuctionItem item : items) {
+            if (!item.hasItemStack()) {
+                ids.add(item.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, ItemStack> itemStacks = databaseManager.getItemStacks("active_auctions", ids);
+        for (AuctionItem item : items) {
+            if (!item.hasItemStack()) {
+                item.attachItemStack(itemStacks.get(item.getId()));
+            }
+        }
     }
 
     /**
-     * Gets players with auctions that match the search term.
+     * Loads the sellers for the main view off the main thread, sorted by rank and name.
+     * The rank of every seller is resolved concurrently, so the whole load takes about as long
+     * as the seller query plus the slowest rank lookup. Results are cached per normalized term
+     * in the {@link SearchCacheManager}, and concurrent loads of the same term share one query.
+     *
+     * @param searchTerm Only include sellers with matching items, or null for all sellers.
+     * @return A future completed with the sorted sellers.
      */
-    public List<DatabaseManager.PlayerAuctionInfo> getPlayersWithMatchingItems(String searchTerm) {
-        List<DatabaseManager.PlayerAuctionInfo> players = databaseManager.getPlayersWithMatchingItems(searchTerm);
-        return sortPlayersByRank(players);
+    public CompletableFuture<List<DatabaseManager.PlayerAuctionInfo>> loadSellersAsync(String searchTerm) {
+        String term = normalizeSearchTerm(searchTerm);
+        SearchCacheManager cache = plugin.getSearchCacheManager();
+        List<DatabaseManager.PlayerAuctionInfo> cached = cache.get(term);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return sellerLoads.load(term, () -> {
+            long version = cache.begin(term);
+            IoExecutor io = plugin.getIoExecutor();
+            return io.supply(() -> !term.isEmpty()
+                            ? databaseManager.getPlayersWithMatchingItems(term)
+                            : databaseManager.getPlayersWithAuctions())
+                    .thenCompose(players -> loadRankPriorities(players)
+                            .thenApply(ranks -> sortPlayersByRank(players, ranks)))
+                    .thenApply(sorted -> {
+                        cache.complete(term, version, sorted);
+                        return sorted;
+                    });
+        }).thenApply(ArrayList::new); // Every caller gets its own copy
+    }
+
+    /**
+     * Resolves the rank priority of every seller. Ranks are cached per seller until LuckPerms
+     * recalculates the user or {@link #RANK_CACHE_TTL_MILLIS} passed; of the sellers missing from
+     * the cache, users LuckPerms already has in memory are answered directly, the others are
+     * loaded concurrently.
+     */
+    private CompletableFuture<Map<UUID, Integer>> loadRankPriorities(List<DatabaseManager.PlayerAuctionInfo> players) {
+        Map<UUID, Integer> ranks = new ConcurrentHashMap<>();
+        if (luckPerms == null) {
+            return CompletableFuture.completedFuture(ranks);
+        }
+
+        long now = System.currentTimeMillis();
+        rankCache.values().removeIf(cached -> now - cached.cachedAt > RANK_CACHE_TTL_MILLIS);
+
+        List<CompletableFuture<?>> lookups = new ArrayList<>();
+        int hits = 0;
+        for (DatabaseManager.PlayerAuctionInfo info : players) {
+            UUID playerUUID = info.getUuid();
+            CachedRank cached = rankCache.get(playerUUID);
+            if (cached != null) {
+                ranks.put(playerUUID, cached.priority);
+                hits++;
+                continue;
+            }
+
+            User user = luckPerms.getUserManager().getUser(playerUUID);
+            if (user != null) {
+                cacheRank(ranks, playerUUID, getRankPriority(user));
+                continue;
+            }
+
+            lookups.add(luckPerms.getUserManager().loadUser(playerUUID)
+                    .thenAccept(loaded -> cacheRank(ranks, playerUUID, getRankPriority(loaded)))
+                    .exceptionally(e -> {
+                        plugin.getLogger().log(Level.WARNING, "Error loading player rank for sorting", e);
+                        return null;
+                    }));
+        }
+
+        plugin.getMetricsManager().add("rank_cache.hits", hits);
+        plugin.getMetricsManager().add("rank_cache.loads", lookups.size());
+        plugin.getMetricsManager().setGauge("rank_cache.size", rankCache.size());
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0])).thenApply(ignored -> ranks);
+    }
+
+    private void cacheRank(Map<UUID, Integer> ranks, UUID playerUUID, int priority) {
+        ranks.put(playerUUID, priority);
+        rankCache.put(playerUUID, new CachedRank(priority, System.currentTimeMillis()));
     }
 
     /**
      * Sorts players by rank (Deluxe -> Premium -> Default) and then alphabetically.
      */
-    private List<DatabaseManager.PlayerAuctionInfo> sortPlayersByRank(List<DatabaseManager.PlayerAuctionInfo> players) {
+    private List<DatabaseManager.PlayerAuctionInfo> sortPlayersByRank(List<DatabaseManager.PlayerAuctionInfo> players,
+                                                                      Map<UUID, Integer> ranks) {
         if (luckPerms == null) {
             // If LuckPerms is not available, just sort alphabetically
             players.sort(Comparator.comparing(DatabaseManager.PlayerAuctionInfo::getName));
@@ -329,8 +634,8 @@ public class AuctionManager {
         }
 
         players.sort((p1, p2) -> {
-            int rank1 = getPlayerRankPriority(p1.getUuid());
-            int rank2 = getPlayerRankPriority(p2.getUuid());
+            int rank1 = ranks.getOrDefault(p1.getUuid(), 3);
+            int rank2 = ranks.getOrDefault(p2.getUuid(), 3);
 
             if (rank1 != rank2) {
                 return Integer.compare(rank1, rank2); // Lower number = higher priority
@@ -345,17 +650,12 @@ public class AuctionManager {
     /**
      * Gets the rank priority for sorting (lower number = higher priority).
      */
-    private int getPlayerRankPriority(UUID playerUUID) {
-        if (luckPerms == null) {
-            return 3; // Default if LuckPerms not available
+    private int getRankPriority(User user) {
+        if (user == null) {
+            return 3; // Default
         }
 
         try {
-            User user = luckPerms.getUserManager().getUser(playerUUID);
-            if (user == null) {
-                return 3; // Default
-            }
-
             for (var group : user.getInheritedGroups(user.getQueryOptions())) {
                 String groupName = group.getName().toLowerCase();
                 switch (groupName) {
@@ -402,27 +702,38 @@ public class AuctionManager {
     }
 
     /**
-     * Gets mailbox items for a player.
+     * Gets mailbox items for a player, without their item data.
      */
     public List<MailboxItem> getPlayerMailboxItems(UUID playerUUID) {
         return databaseManager.getPlayerMailboxItems(playerUUID);
     }
 
+    /**
+     * Loads the item data of the given mailbox entries that do not have it yet.
+     */
+    public void loadMailboxItemStacks(List<MailboxItem> items) {
+        databaseManager.loadMailboxItemStacks(items);
+    }
+
     /**
      * Claims a mailbox item for a player.
      */
     public boolean claimMailboxItem(Player player, MailboxItem mailboxItem) {
         if (mailboxItem.isMoney()) {
-            // Give money to player
-            economy.depositPlayer(player, mailboxItem.getMoneyAmount());
-
-            // Remove from mailbox
-            if (databaseManager.removeMailboxItem(mailboxItem.getId())) {
+            // Remove from mailbox and queue the deposit in one transaction
+            int depositId = databaseManager.removeMailboxItemsWithDeposit(Collections.singletonList(mailboxItem.getId()),
+                    player.getUniqueId(), mailboxItem.getMoneyAmount());
+            if (depositId >= 0) {
+                plugin.getEconomyOutboxManager().process(Collections.singletonList(depositId));
+                plugin.getMailboxSummaryManager().recordClaimed(player.getUniqueId(), 1, mailboxItem.getMoneyAmount(), 0);
                 plugin.getMessageManager().sendMessage(player, "mailbox_money_claimed", 
                         "${amount}", plugin.getMessageManager().formatPrice(mailboxItem.getMoneyAmount()));
                 return true;
             }
         } else if (mailboxItem.isItem()) {
+            if (mailboxItem.needsItemStack()) {
+                loadMailboxItemStacks(Collections.singletonList(mailboxItem));
+            }
             ItemStack item = mailboxItem.getItemStack();
             if (item != null) {
                 // Check if player has space in inventory
@@ -434,6 +745,7 @@ public class AuctionManager {
 
                     // Remove from mailbox
                     if (databaseManager.removeMailboxItem(mailboxItem.getId())) {
+                        plugin.getMailboxSummaryManager().recordClaimed(player.getUniqueId(), 0, 0, 1);
                         String itemName = item.hasItemMeta() && item.getItemMeta().hasDisplayName() 
                                 ? item.getItemMeta().getDisplayName() 
                                 : item.getType().name();
@@ -451,6 +763,148 @@ public class AuctionManager {
         return false;
     }
 
+    /**
+     * Claims as much of a player's mailbox as possible in one operation.
+     * All money entries are paid out with a single deposit, item entries are claimed while
+     * they fit into the player's inventory, and every claimed entry is removed with one
+     * multi-row statement in a single transaction.
+     *
+     * @param player The player claiming their mailbox.
+     * @return The result of the claim, or null if nothing could be claimed.
+     */
+    public ClaimAllResult claimAllMailboxItems(Player player) {
+        List<MailboxItem> mailboxItems = getPlayerMailboxItems(player.getUniqueId());
+        if (mailboxItems.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "mailbox_empty");
+            return null;
+        }
+
+        // Every item entry may be handed out, so this is the one place that reads all blobs
+        loadMailboxItemStacks(mailboxItems);
+
+        // Work out what fits without touching the real inventory yet
+        ItemStack[] simulatedInventory = copyStorageContents(player);
+        List<Integer> claimedIds = new ArrayList<>();
+        List<ItemStack> claimedItems = new ArrayList<>();
+        long claimedMoney = 0;
+        int skippedItems = 0;
+
+        for (MailboxItem mailboxItem : mailboxItems) {
+            if (mailboxItem.isMoney()) {
+                if (claimedMoney > Long.MAX_VALUE - mailboxItem.getMoneyAmount()) {
+                    continue; // Leave the rest for a later claim rather than overflowing
+                }
+                claimedMoney += mailboxItem.getMoneyAmount();
+                claimedIds.add(mailboxItem.getId());
+            } else if (mailboxItem.isItem()) {
+                ItemStack item = mailboxItem.getItemStack();
+                if (item != null && addToSimulatedInventory(simulatedInventory, item)) {
+                    claimedItems.add(item);
+                    claimedIds.add(mailboxItem.getId());
+                } else {
+                    skippedItems++;
+                }
+            }
+        }
+
+        if (claimedIds.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "inventory_full_claiming");
+            return null;
+        }
+
+        // Remove everything and queue the deposit together, so a failure can never pay out twice
+        int depositId = databaseManager.removeMailboxItemsWithDeposit(claimedIds, player.getUniqueId(), claimedMoney);
+        if (depositId < 0) {
+            plugin.getMessageManager().sendRawMessage(player, "&cAn error occurred while claiming your mailbox. Please try again.");
+            return null;
+        }
+
+        plugin.getMailboxSummaryManager().recordClaimed(player.getUniqueId(),
+                claimedIds.size() - claimedItems.size(), claimedMoney, claimedItems.size());
+
+        if (depositId > 0) {
+            plugin.getEconomyOutboxManager().process(Collections.singletonList(depositId));
+        }
+
+        for (ItemStack item : claimedItems) {
+            // The simulation guarantees space, but never lose items if the inventory changed
+            for (ItemStack leftover : player.getInventory().addItem(item).values()) {
+                player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+            }
+        }
+
+        plugin.getMessageManager().sendMessage(player, "mailbox_claimed_all",
+                "${amount}", plugin.getMessageManager().formatPrice(claimedMoney),
+                "{items}", String.valueOf(claimedItems.size()));
+        if (skippedItems > 0) {
+            plugin.getMessageManager().sendMessage(player, "mailbox_claim_all_skipped",
+                    "{items}", String.valueOf(skippedItems));
+        }
+
+        return new ClaimAllResult(claimedIds, claimedMoney, claimedItems.size(), skippedItems);
+    }
+
+    /**
+     * Copies the storage contents of a player's inventory for simulating item additions.
+     */
+    private ItemStack[] copyStorageContents(Player player) {
+        ItemStack[] contents = player.getInventory().getStorageContents();
+        ItemStack[] copy = new ItemStack[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            copy[i] = contents[i] != null ? contents[i].clone() : null;
+        }
+        return copy;
+    }
+
+    /**
+     * Adds an item to a simulated inventory if it fits completely.
+     *
+     * @param contents The simulated inventory contents, modified only if the item fits.
+     * @param item The item to add.
+     * @return true if the whole item fit, false otherwise.
+     */
+    private boolean addToSimulatedInventory(ItemStack[] contents, ItemStack item) {
+        int maxStackSize = item.getMaxStackSize();
+        int remaining = item.getAmount();
+        int[] added = new int[contents.length];
+
+        // Top up similar stacks first, like Inventory#addItem does
+        for (int i = 0; i < contents.length && remaining > 0; i++) {
+            ItemStack slot = contents[i];
+            if (slot != null && !slot.getType().isAir() && slot.isSimilar(item)) {
+                int take = Math.min(Math.max(0, maxStackSize - slot.getAmount()), remaining);
+                added[i] = take;
+                remaining -= take;
+            }
+        }
+
+        // Then use empty slots
+        for (int i = 0; i < contents.length && remaining > 0; i++) {
+            if (contents[i] == null || contents[i].getType().isAir()) {
+                int take = Math.min(maxStackSize, remaining);
+                added[i] = take;
+                remaining -= take;
+            }
+        }
+
+        if (remaining > 0) {
+            return false;
+        }
+
+        for (int i = 0; i < contents.length; i++) {
+            if (added[i] == 0) {
+                continue;
+            }
+            if (contents[i] == null || contents[i].getType().isAir()) {
+                contents[i] = item.clone();
+                contents[i].setAmount(added[i]);
+            } else {
+                contents[i].setAmount(contents[i].getAmount() + added[i]);
+            }
+        }
+        return true;
+    }
+
     /**
      * Gets the auction limit for a player based on their permissions.
      *
@@ -459,7 +913,8 @@ public class AuctionManager {
      */
     public int getPlayerAuctionLimit(Player player) {
         // Default limit from config
-        int defaultLimit = plugin.getConfig().getInt("limits.default", 20);
+        Settings settings = plugin.getSettings();
+        int defaultLimit = settings.getDefaultAuctionLimit();
 
         if (luckPerms == null) {
             return defaultLimit;
@@ -473,10 +928,9 @@ public class AuctionManager {
 
             // Check for specific group limits in config
             for (var group : user.getInheritedGroups(user.getQueryOptions())) {
-                String groupName = group.getName();
-                String limitPath = "limits." + groupName.toLowerCase();
-                if (plugin.getConfig().contains(limitPath)) {
-                    return plugin.getConfig().getInt(limitPath);
+                Integer limit = settings.getGroupAuctionLimit(group.getName());
+                if (limit != null) {
+                    return limit;
                 }
             }
         } catch (Exception e) {
@@ -526,31 +980,51 @@ public class AuctionManager {
     }
 
     /**
-     * Updates the quantity of an auction item after a purchase.
+     * Updates the quantity of an auction item after a purchase, if the row is still at the quoted
+     * version. At that version the remaining quantity is the quoted one, so it is not checked again.
      *
      * @param conn The database connection.
-     * @param auctionId The ID of the auction.
-     * @param quantityPurchased The quantity purchased.
-     * @return true if successful, false otherwise.
+     * @param quote The listing as the player saw it.
+     * @param quantityPurchased The quantity purchased, at most the quoted quantity.
+     * @return true if successful, false if the listing changed or is gone.
      */
-    private boolean updateAuctionItemQuantity(Connection conn, int auctionId, int quantityPurchased) throws SQLException {
+    private boolean updateAuctionItemQuantity(Connection conn, PurchaseQuote quote, int quantityPurchased) throws SQLException {
         try (PreparedStatement stmt = conn.prepareStatement(
-                "UPDATE active_auctions SET quantity_remaining = quantity_remaining - ? WHERE id = ?")) {
+                "UPDATE active_auctions SET quantity_remaining = quantity_remaining - ?, version = version + 1 " +
+                "WHERE id = ? AND version = ? AND quantity_remaining >= ?")) {
 
             stmt.setInt(1, quantityPurchased);
-            stmt.setInt(2, auctionId);
-
-            if (stmt.executeUpdate() > 0) {
-                // Remove the auction entirely if no items remain
-                try (PreparedStatement cleanup = conn.prepareStatement(
-                        "DELETE FROM active_auctions WHERE id = ? AND quantity_remaining <= 0")) {
-                    cleanup.setInt(1, auctionId);
-                    cleanup.executeUpdate();
-                }
-                return true;
+            stmt.setInt(2, quote.getAuctionId());
+            stmt.setInt(3, quote.getVersion());
+            stmt.setInt(4, quantityPurchased);
+
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+
+        if (quantityPurchased == quote.getQuantity()) {
+            // Remove the auction entirely if no items remain
+            try (PreparedStatement cleanup = conn.prepareStatement(
+                    "DELETE FROM active_auctions WHERE id = ? AND quantity_remaining <= 0")) {
+                cleanup.setInt(1, quote.getAuctionId());
+                cleanup.executeUpdate();
             }
-            return false;
         }
+        return true;
+    }
+
+    /**
+     * Gets the name shown to players for an item: its display name, or the material name.
+     *
+     * @param itemStack The item.
+     * @return The display name of the item.
+     */
+    public String getItemDisplayName(ItemStack itemStack) {
+        if (itemStack.hasItemMeta() && itemStack.getItemMeta().hasDisplayName()) {
+            return itemStack.getItemMeta().getDisplayName();
+        }
+        return itemStack.getType().name();
     }
 
     /**
@@ -571,14 +1045,7 @@ public class AuctionManager {
             itemName = itemStack.getItemMeta().getDisplayName();
         }
 
-        // Remove color codes
-        itemName = ChatColor.stripColor(itemName);
-
-        // Remove Unicode characters (keep only ASCII)
-        itemName = itemName.replaceAll("[^\\x00-\\x7F]", "");
-
-        // Remove any remaining special characters that might cause issues
-        itemName = itemName.replaceAll("[^a-zA-Z0-9\\s]", "");
+        itemName = cleanText(itemName);
 
         // Ensure we have at least something to search for
         if (itemName.trim().isEmpty()) {
@@ -588,6 +1055,28 @@ public class AuctionManager {
         return itemName;
     }
 
+    /**
+     * Normalizes a search term the same way item names are cleaned for storage, so it can be
+     * matched against item_name_lowercase and used as a cache key.
+     *
+     * @param searchTerm The term as typed, or null.
+     * @return The normalized term; empty for no filter.
+     */
+    public static String normalizeSearchTerm(String searchTerm) {
+        return searchTerm == null ? "" : cleanText(searchTerm).toLowerCase().trim();
+    }
+
+    private static String cleanText(String text) {
+        // Remove color codes
+        text = ChatColor.stripColor(text);
+
+        // Remove Unicode characters (keep only ASCII)
+        text = text.replaceAll("[^\\x00-\\x7F]", "");
+
+        // Remove any remaining special characters that might cause issues
+        return text.replaceAll("[^a-zA-Z0-9\\s]", "");
+    }
+
     /**
      * Cancels an auction and returns the item to the player's mailbox.
      * 
@@ -613,9 +1102,11 @@ public class AuctionManager {
 
             try {
                 // Delete the auction from the database
+                // Only if nothing was sold since it was read, so the returned quantity is right
                 try (PreparedStatement stmt = conn.prepareStatement(
-                        "DELETE FROM active_auctions WHERE id = ?")) {
+                        "DELETE FROM active_auctions WHERE id = ? AND quantity_remaining = ?")) {
                     stmt.setInt(1, auctionId);
+                    stmt.setInt(2, auctionItem.getQuantityRemaining());
                     int affectedRows = stmt.executeUpdate();
 
                     if (affectedRows == 0) {
@@ -634,6 +1125,8 @@ public class AuctionManager {
                 plugin.getMessageManager().sendRawMessage(player, "&aAuction canceled. The item has been returned to your mailbox.");
 
                 conn.commit();
+                plugin.getMailboxSummaryManager().recordAdded(player.getUniqueId(), MailboxItem.Type.ITEM, 0);
+                plugin.getOrderBookManager().onListingRemoved(auctionId);
                 return true;
 
             } catch (Exception e) {
@@ -652,19 +1145,163 @@ public class AuctionManager {
         }
     }
 
-    private AuctionItem createAuctionItemFromResultSet(ResultSet rs) throws SQLException {
+    private AuctionItem createAuctionItemFromResultSet(ResultSet rs, boolean includeItem) throws SQLException {
         int id = rs.getInt("id");
         UUID sellerUUID = UUID.fromString(rs.getString("seller_uuid"));
         String sellerName = rs.getString("seller_name");
-        byte[] itemData = rs.getBytes("item_serialized");
-        ItemStack itemStack = ItemSerializer.deserializeItemStack(itemData);
+        ItemStack itemStack = includeItem ? ItemSerializer.deserializeItemStack(rs.getBytes("item_serialized")) : null;
         String itemNameLowercase = rs.getString("item_name_lowercase");
         long priceTotal = rs.getLong("price_total");
         int quantityInitial = rs.getInt("quantity_initial");
         int quantityRemaining = rs.getInt("quantity_remaining");
         long listedAt = rs.getTimestamp("listed_at").getTime();
+        int version = rs.getInt("version");
 
-        return new AuctionItem(id, sellerUUID, sellerName, itemStack, itemNameLowercase, 
-                              priceTotal, quantityInitial, quantityRemaining, listedAt);
+        AuctionItem auctionItem = new AuctionItem(id, sellerUUID, sellerName, itemStack, itemNameLowercase,
+                priceTotal, quantityInitial, quantityRemaining, listedAt, version);
+        auctionItem.attachItemKey(rs.getString("item_key"));
+        return auctionItem;
+    }
+
+    /**
+     * Result of claiming a whole mailbox at once.
+     */
+    public static class ClaimAllResult {
+        private final List<Integer> claimedIds;
+        private final long claimedMoney;
+        private final int claimedItems;
+        private final int skippedItems;
+
+        public ClaimAllResult(List<Integer> claimedIds, long claimedMoney, int claimedItems, int skippedItems) {
+            this.claimedIds = claimedIds;
+            this.claimedMoney = claimedMoney;
+            this.claimedItems = claimedItems;
+            this.skippedItems = skippedItems;
+        }
+
+        public List<Integer> getClaimedIds() {
+            return claimedIds;
+        }
+
+        public long getClaimedMoney() {
+            return claimedMoney;
+        }
+
+        public int getClaimedItems() {
+            return claimedItems;
+        }
+
+        public int getSkippedItems() {
+            return skippedItems;
+        }
+    }
+
+    /**
+     * Result of listing several stacks at once.
+     */
+    public static class BulkListResult {
+        private final int listedStacks;
+        private final int listedItems;
+        private final long totalPrice;
+        private final int skippedStacks;
+        private final int limit;
+
+        public BulkListResult(int listedStacks, int listedItems, long totalPrice, int skippedStacks, int limit) {
+            this.listedStacks = listedStacks;
+            this.listedItems = listedItems;
+            this.totalPrice = totalPrice;
+            this.skippedStacks = skippedStacks;
+            this.limit = limit;
+        }
+
+        /**
+         * @return The number of stacks listed; these are always the first stacks passed in.
+         */
+        public int getListedStacks() {
+            return listedStacks;
+        }
+
+        public int getListedItems() {
+            return listedItems;
+        }
+
+        public long getTotalPrice() {
+            return totalPrice;
+        }
+
+        /**
+         * @return The number of stacks not listed because the auction limit was reached.
+         */
+        public int getSkippedStacks() {
+            return skippedStacks;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+    }
+
+    /**
+     * A listing as a player saw it when they opened the purchase confirmation: its id, row version,
+     * unit price and remaining quantity. Carried through the confirmation so the purchase can be
+     * checked with one guarded update instead of reading the listing again.
+     */
+    public static class PurchaseQuote {
+        private final AuctionItem listing;
+        private final int auctionId;
+        private final int version;
+        private final long unitPrice;
+        private final int quantity;
+
+        /**
+         * @param listing The listing, with its item data loaded.
+         */
+        public PurchaseQuote(AuctionItem listing) {
+            this.listing = listing;
+            this.auctionId = listing.getId();
+            ListingStock stock = listing.getStock(); // Read once, so quantity and version match
+            this.version = stock.getVersion();
+            this.unitPrice = listing.getPricePerItem();
+            this.quantity = stock.getQuantityRemaining();
+        }
+
+        /**
+         * @return The listing, for its item, seller and key. Its quantity may have changed since.
+         */
+        public AuctionItem getListing() {
+            return listing;
+        }
+
+        public int getAuctionId() {
+            return auctionId;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public long getUnitPrice() {
+            return unitPrice;
+        }
+
+        /**
+         * @return The remaining quantity at the quoted version.
+         */
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+
+    /**
+     * A seller's rank priority and when it was looked up.
+     */
+    private static class CachedRank {
+        private final int priority;
+        private final long cachedAt;
+
+        CachedRank(int priority, long cachedAt) {
+            this.priority = priority;
+            this.cachedAt = cachedAt;
+        }
     }
 }
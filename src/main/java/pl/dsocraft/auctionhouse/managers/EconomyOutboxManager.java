@@ -0,0 +1,341 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.DatabaseManager;
+import pl.dsocraft.auctionhouse.database.EconomyOutboxEntry;
+import pl.dsocraft.auctionhouse.database.MailboxItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Applies the withdrawals and deposits of the economy outbox to Vault.
+ * <p>
+ * Claims only write a deposit entry in their own transaction, so no row locks are held while the
+ * economy plugin works, and a crash can never separate the money from the items. After the commit
+ * the entry is applied on the main thread. Purchases withdraw first instead, see {@link #withdraw},
+ * so the buyer's money is taken before anything is handed out and the same balance can never pay
+ * for two purchases; the short sale transaction that follows only marks the withdrawal applied, and
+ * a sale that does not commit queues a refund deposit.
+ * <p>
+ * Right before Vault is called, an entry is marked APPLYING together with the player's balance at
+ * that moment. This marker makes every entry recoverable: if the server stops before the entry is
+ * marked done, the next start compares the recorded balance with the balance after it and finishes
+ * the entry, hands it back to the worker or undoes it. Only if the balance was also changed by
+ * something else in the meantime is the entry left for manual review. An entry that Vault refuses
+ * is undone: a failed deposit goes back to the player's mailbox, a declined purchase withdrawal
+ * cancels the purchase. Every entry is applied at most once.
+ */
+public class EconomyOutboxManager {
+
+    private static final int BATCH_SIZE = 100;
+    private static final double BALANCE_TOLERANCE = 0.005;
+
+    private final DSOAuctionHouse plugin;
+    private final Economy economy;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    public EconomyOutboxManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+        this.economy = DSOAuctionHouse.getEconomy();
+    }
+
+    /**
+     * Resolves entries left APPLYING by a crash and starts the worker for pending entries.
+     * Call from onEnable, before players can join, so their balances did not change since.
+     */
+    public void start() {
+        recover();
+
+        long intervalTicks = plugin.getSettings().getEconomyOutboxIntervalSeconds() * 20;
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::drain, intervalTicks, intervalTicks);
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Purchases and buy orders
+    // ------------------------------------------------------------------------------------------
+
+    /**
+     * Withdraws money for a change the caller is about to commit. The withdrawal is recorded as
+     * APPLYING on its own and applied to Vault right away, before the caller opens the transaction
+     * of its change, so no row locks are held while the economy plugin works. The caller marks the
+     * entry applied in that transaction with {@link DatabaseManager#markEconomyOutboxEntryApplied},
+     * and calls {@link #refund} if it does not commit. Must run on the main thread.
+     *
+     * @param player The player paying.
+     * @param amount The amount to withdraw.
+     * @param reason The reason stored with the entry.
+     * @param purpose What the money pays for, {@link EconomyOutboxEntry.Purpose#isPaidBeforeCommit()}.
+     * @return The id of the withdrawal, 0 if the economy declined it, or -1 if an error occurred.
+     */
+    public int withdraw(Player player, long amount, String reason, EconomyOutboxEntry.Purpose purpose) {
+        DatabaseManager database = plugin.getDatabaseManager();
+        int entryId = database.beginEconomyOutboxEntry(player.getUniqueId(), EconomyOutboxEntry.Kind.WITHDRAW, amount,
+                reason, purpose, economy.getBalance(player));
+        if (entryId < 0) {
+            return -1;
+        }
+
+        EconomyOutboxEntry entry = new EconomyOutboxEntry(entryId, player.getUniqueId(), EconomyOutboxEntry.Kind.WITHDRAW,
+                amount, reason, purpose, null);
+        if (!apply(player, entry)) {
+            database.failEconomyOutboxEntry(entry, 0, null);
+            plugin.getMetricsManager().increment("economy_outbox.declined");
+            return 0;
+        }
+        plugin.getMetricsManager().increment("economy_outbox.applied");
+        return entryId;
+    }
+
+    /**
+     * Gives back a withdrawal from {@link #withdraw} whose change did not commit, as a queued
+     * deposit. If the change did commit after all, the entry is no longer APPLYING and nothing is
+     * refunded. The database work runs on the I/O threads; if it fails, the next start finds the
+     * entry APPLYING and refunds it then.
+     *
+     * @param entryId The id returned by {@link #withdraw}.
+     * @param playerUUID The player who paid.
+     * @param amount The amount withdrawn.
+     * @param purpose The purpose of the withdrawal.
+     */
+    public void refund(int entryId, UUID playerUUID, long amount, EconomyOutboxEntry.Purpose purpose) {
+        EconomyOutboxEntry entry = new EconomyOutboxEntry(entryId, playerUUID, EconomyOutboxEntry.Kind.WITHDRAW,
+                amount, null, purpose, null);
+        plugin.getIoExecutor().supply(() -> plugin.getDatabaseManager().refundEconomyOutboxEntry(entry, refundReason(purpose)))
+                .thenAccept(depositId -> {
+                    if (depositId > 0) {
+                        plugin.getMetricsManager().increment("economy_outbox.refunded");
+                        process(List.of(depositId));
+                    }
+                })
+                .exceptionally(e -> {
+                    plugin.getLogger().log(Level.SEVERE, "Error refunding economy outbox entry " + entryId, e);
+                    return null;
+                });
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Queued entries
+    // ------------------------------------------------------------------------------------------
+
+    /**
+     * Applies committed entries right away instead of waiting for the worker.
+     *
+     * @param ids The entries that were just committed.
+     */
+    public void process(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        plugin.getIoExecutor().supply(() -> plugin.getDatabaseManager().getPendingEconomyOutboxEntries(ids, ids.size()))
+                .thenAccept(entries -> Bukkit.getScheduler().runTask(plugin, () -> claimAndApply(entries)))
+                .exceptionally(e -> {
+                    plugin.getLogger().log(Level.SEVERE, "Error processing economy outbox entries", e);
+                    return null;
+                });
+    }
+
+    /**
+     * Reads pending entries in batches and hands them to the main thread. Runs on the scheduler's
+     * async threads.
+     */
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<EconomyOutboxEntry> entries = plugin.getDatabaseManager().getPendingEconomyOutboxEntries(null, BATCH_SIZE);
+            if (!entries.isEmpty()) {
+                plugin.getMetricsManager().add("economy_outbox.recovered", entries.size());
+                Bukkit.getScheduler().runTask(plugin, () -> claimAndApply(entries));
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * Reads the players' balances and claims the whole batch with one update on the I/O threads,
+     * then applies the claimed entries. Must run on the main thread, which Vault is read on.
+     */
+    private void claimAndApply(List<EconomyOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Double> balances = new HashMap<>();
+        for (EconomyOutboxEntry entry : entries) {
+            balances.put(entry.getId(), economy.getBalance(Bukkit.getOfflinePlayer(entry.getPlayerUUID()))); // By UUID, no lookup
+        }
+        plugin.getIoExecutor().supply(() -> plugin.getDatabaseManager().claimEconomyOutboxEntries(balances))
+                .thenAccept(claimed -> Bukkit.getScheduler().runTask(plugin, () -> apply(entries, claimed)))
+                .exceptionally(e -> {
+                    plugin.getLogger().log(Level.SEVERE, "Error claiming economy outbox entries", e);
+                    return null;
+                });
+    }
+
+    /**
+     * Applies claimed entries, and marks or undoes them in the background. Must run on the main
+     * thread. Entries that were claimed elsewhere are skipped.
+     *
+     * @param claimed The ids of the entries this server claimed.
+     */
+    private void apply(List<EconomyOutboxEntry> entries, Set<Integer> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        List<Integer> applied = new ArrayList<>();
+        List<EconomyOutboxEntry> failed = new ArrayList<>();
+        for (EconomyOutboxEntry entry : entries) {
+            if (!claimed.contains(entry.getId())) {
+                continue;
+            }
+            if (apply(Bukkit.getOfflinePlayer(entry.getPlayerUUID()), entry)) {
+                applied.add(entry.getId());
+            } else {
+                failed.add(entry);
+            }
+        }
+
+        plugin.getMetricsManager().add("economy_outbox.applied", applied.size());
+        plugin.getMetricsManager().add("economy_outbox.failed", failed.size());
+        plugin.getIoExecutor().supply(() -> {
+            plugin.getDatabaseManager().completeEconomyOutboxEntries(applied);
+            failed.forEach(this::undo);
+            return null;
+        });
+    }
+
+    /**
+     * Applies one entry to Vault.
+     *
+     * @return true if the economy accepted it.
+     */
+    private boolean apply(OfflinePlayer player, EconomyOutboxEntry entry) {
+        EconomyResponse response;
+        try {
+            response = entry.getKind() == EconomyOutboxEntry.Kind.WITHDRAW
+                    ? economy.withdrawPlayer(player, entry.getAmount())
+                    : economy.depositPlayer(player, entry.getAmount());
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Economy error applying outbox entry " + entry.getId(), e);
+            response = null;
+        }
+
+        if (response != null && response.transactionSuccess()) {
+            return true;
+        }
+        plugin.getLogger().warning("Could not apply economy outbox entry " + entry.getId() + ": "
+                + entry.getKind() + " " + entry.getAmount() + " for " + entry.getPlayerUUID()
+                + " (" + entry.getReason() + ")" + (response != null ? ": " + response.errorMessage : ""));
+        return false;
+    }
+
+    /**
+     * Undoes an APPLYING entry that was not applied. Runs on the I/O threads.
+     */
+    private void undo(EconomyOutboxEntry entry) {
+        if (entry.getKind() == EconomyOutboxEntry.Kind.DEPOSIT) {
+            // The money was already taken out of the mailbox, put it back
+            if (plugin.getDatabaseManager().failEconomyOutboxEntry(entry, entry.getAmount(), "Returned: payout failed")) {
+                Bukkit.getScheduler().runTask(plugin, () -> plugin.getMailboxSummaryManager()
+                        .recordAdded(entry.getPlayerUUID(), MailboxItem.Type.MONEY, entry.getAmount()));
+            }
+        } else if (entry.getPurpose() != null && entry.getPurpose().isPaidBeforeCommit()) {
+            // The purchase or order did not commit, nothing was handed out
+            plugin.getDatabaseManager().failEconomyOutboxEntry(entry, 0, null);
+        } else {
+            // Queued by an older version after its purchase committed, nothing can be undone
+            plugin.getDatabaseManager().failEconomyOutboxEntry(entry, 0, null);
+            plugin.getLogger().severe("Economy outbox entry " + entry.getId() + " (" + entry.getReason()
+                    + ") could not be withdrawn from " + entry.getPlayerUUID() + " and needs manual review.");
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Recovery
+    // ------------------------------------------------------------------------------------------
+
+    /**
+     * Resolves the entries left APPLYING by a crash. The entries of a player are checked in the
+     * order they were applied: the balance recorded by the next entry, or the current balance for
+     * the last one, shows whether an entry went through. Runs on the main thread at startup.
+     */
+    private void recover() {
+        List<EconomyOutboxEntry> entries = plugin.getDatabaseManager().getApplyingEconomyOutboxEntries();
+        if (entries == null || entries.isEmpty()) {
+            plugin.getMetricsManager().setGauge("economy_outbox.unresolved", 0);
+            return;
+        }
+
+        int resolved = 0;
+        int unresolved = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            EconomyOutboxEntry entry = entries.get(i);
+            Double before = entry.getBalanceBefore();
+            EconomyOutboxEntry next = i + 1 < entries.size() ? entries.get(i + 1) : null;
+            Double after = next != null && next.getPlayerUUID().equals(entry.getPlayerUUID())
+                    ? next.getBalanceBefore()
+                    : Double.valueOf(economy.getBalance(Bukkit.getOfflinePlayer(entry.getPlayerUUID())));
+
+            if (before == null || after == null) {
+                unresolved++; // Claimed by an older version without a recorded balance
+            } else if (Math.abs(after - (before + entry.getDelta())) < BALANCE_TOLERANCE) {
+                resolveApplied(entry);
+                resolved++;
+            } else if (Math.abs(after - before) < BALANCE_TOLERANCE) {
+                resolveNotApplied(entry);
+                resolved++;
+            } else {
+                unresolved++;
+            }
+        }
+
+        plugin.getMetricsManager().add("economy_outbox.resolved", resolved);
+        plugin.getMetricsManager().setGauge("economy_outbox.unresolved", unresolved);
+        if (resolved > 0) {
+            plugin.getLogger().info("Resolved " + resolved + " economy outbox entries left by the last shutdown.");
+        }
+        if (unresolved > 0) {
+            plugin.getLogger().warning(unresolved + " economy outbox entries were being applied when the server stopped, "
+                    + "and the balances changed since. Check the APPLYING rows of economy_outbox and resolve them manually.");
+        }
+    }
+
+    private void resolveApplied(EconomyOutboxEntry entry) {
+        DatabaseManager database = plugin.getDatabaseManager();
+        if (entry.getPurpose() != null && entry.getPurpose().isPaidBeforeCommit()) {
+            // Withdrawn, but the purchase or order never committed: the worker gives the money back
+            database.refundEconomyOutboxEntry(entry, refundReason(entry.getPurpose()));
+        } else {
+            database.completeEconomyOutboxEntries(List.of(entry.getId()));
+        }
+    }
+
+    private void resolveNotApplied(EconomyOutboxEntry entry) {
+        if (entry.getPurpose() != null && entry.getPurpose().isPaidBeforeCommit()) {
+            plugin.getDatabaseManager().failEconomyOutboxEntry(entry, 0, null); // Nothing happened
+        } else {
+            plugin.getDatabaseManager().retryEconomyOutboxEntry(entry.getId()); // Applied again by the worker
+        }
+    }
+
+    private static String refundReason(EconomyOutboxEntry.Purpose purpose) {
+        return purpose == EconomyOutboxEntry.Purpose.ESCROW
+                ? "Refund: buy order not placed"
+                : "Refund: purchase not completed";
+    }
+}
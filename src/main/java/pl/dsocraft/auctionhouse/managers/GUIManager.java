@@ -3,19 +3,29 @@ package pl.dsocraft.auctionhouse.managers;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
 import pl.dsocraft.auctionhouse.database.AuctionItem;
 import pl.dsocraft.auctionhouse.database.DatabaseManager;
+import pl.dsocraft.auctionhouse.database.ListingStock;
 import pl.dsocraft.auctionhouse.database.MailboxItem;
+import pl.dsocraft.auctionhouse.database.MailboxSummary;
+import pl.dsocraft.auctionhouse.utils.ListingColumns;
 import pl.dsocraft.auctionhouse.utils.Paginator;
+import pl.dsocraft.auctionhouse.utils.RequestCoalescer;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * Manages GUI creation and interaction.
@@ -24,15 +34,15 @@ public class GUIManager {
 
     private final DSOAuctionHouse plugin;
 
-    // Different paginators for different GUI types
-    private final Map<UUID, Paginator<DatabaseManager.PlayerAuctionInfo>> playerHeadPaginators = new HashMap<>();
-    private final Map<UUID, Paginator<AuctionItem>> playerItemPaginators = new HashMap<>();
-    private final Map<UUID, Paginator<MailboxItem>> mailboxPaginators = new HashMap<>();
+    // Per-player GUI state
+    private final GuiSessionRegistry sessions;
 
-    // Purchase-related data
-    private final Map<UUID, Integer> pendingPurchases = new HashMap<>();
-    private final Map<UUID, Integer> pendingPurchaseQuantities = new HashMap<>();
-    private final Set<UUID> awaitingChatInput = new HashSet<>();
+    // Chat messages of players asked for a quantity, handed from the chat thread to the main thread
+    private final Queue<ChatInput> chatInputs = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean chatDrainScheduled = new AtomicBoolean(false);
+
+    // Main view loads per player and search term, so repeated /ah while loading opens it once
+    private final RequestCoalescer<String, Void> mainViewLoads;
 
     // GUI constants
     private static final int INVENTORY_SIZE = 54; // 6 rows
@@ -42,9 +52,19 @@ public class GUIManager {
     private static final int NEXT_PAGE_SLOT = 53;
     private static final int MAILBOX_SLOT = 46; // Bottom-left slot in main GUI
     private static final int BACK_BUTTON_SLOT = 49; // Back navigation in sub GUIs
+    private static final int CLAIM_ALL_SLOT = 47; // Claim everything in the mailbox GUI
+    private static final int SORT_BUTTON_SLOT = 47; // Sort control in the seller view
+    private static final int FILTER_BUTTON_SLOT = 51; // Material filter in the seller view
+    private static final int SELL_BOX_CANCEL_SLOT = 45;
+    private static final int SELL_BOX_CONFIRM_SLOT = 49;
+    private static final String SELL_BOX_TITLE = "Sell Box";
+    public static final String BROWSE_TITLE_MARKER = "Cheapest: ";
 
     public GUIManager(DSOAuctionHouse plugin) {
         this.plugin = plugin;
+        this.sessions = new GuiSessionRegistry(plugin);
+        sessions.start();
+        this.mainViewLoads = new RequestCoalescer<>(() -> plugin.getMetricsManager().increment("coalesced.main_view"));
     }
 
     /**
@@ -56,224 +76,515 @@ public class GUIManager {
 
     /**
      * Opens the main auction house GUI with optional search filtering.
+     * <p>
+     * The seller list (with ranks) and the mailbox summary are loaded concurrently off the main
+     * thread and joined before the GUI is rendered. Heads are filled in as their textures arrive.
      */
     public void openMainGUI(Player player, String searchTerm) {
-        List<DatabaseManager.PlayerAuctionInfo> players;
+        mainViewLoads.load(player.getUniqueId() + "|" + AuctionManager.normalizeSearchTerm(searchTerm),
+                () -> loadMainGUI(player, searchTerm));
+    }
 
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            players = plugin.getAuctionManager().getPlayersWithMatchingItems(searchTerm);
-        } else {
-            players = plugin.getAuctionManager().getPlayersWithAuctions();
-        }
+    private CompletableFuture<Void> loadMainGUI(Player player, String searchTerm) {
+        UUID playerUUID = player.getUniqueId();
+        long startedAt = System.nanoTime();
+
+        CompletableFuture<List<DatabaseManager.PlayerAuctionInfo>> sellers =
+                plugin.getAuctionManager().loadSellersAsync(searchTerm);
+        CompletableFuture<MailboxSummary> summary = plugin.getMailboxSummaryManager().getOrLoadAsync(playerUUID);
 
-        Paginator<DatabaseManager.PlayerAuctionInfo> paginator = new Paginator<>(players, ITEMS_PER_PAGE);
-        playerHeadPaginators.put(player.getUniqueId(), paginator);
+        return CompletableFuture.allOf(sellers, summary).whenComplete((ignored, error) ->
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    plugin.getMetricsManager().recordTime("gui.main.load", System.nanoTime() - startedAt);
+                    if (!player.isOnline()) {
+                        return;
+                    }
+                    if (error != null) {
+                        plugin.getLogger().log(Level.SEVERE, "Error loading the auction house", error);
+                        plugin.getMessageManager().sendMessage(player, "auction_house_unavailable");
+                        return;
+                    }
 
-        updateMainGUI(player, searchTerm);
+                    sessions.get(playerUUID).headPaginator = new Paginator<>(sellers.join(), ITEMS_PER_PAGE);
+                    renderMainGUI(player, searchTerm);
+                }));
     }
 
     /**
-     * Updates the main auction house GUI.
+     * Updates the main auction house GUI, e.g. after a page change.
      */
     public void updateMainGUI(Player player, String searchTerm) {
-        Paginator<DatabaseManager.PlayerAuctionInfo> paginator = playerHeadPaginators.get(player.getUniqueId());
-        if (paginator == null) {
+        if (sessions.get(player.getUniqueId()).headPaginator == null) {
             openMainGUI(player, searchTerm);
             return;
         }
+        renderMainGUI(player, searchTerm);
+    }
 
-        String titleTemplate = plugin.getConfig().getString("gui.main_title", "&1&lDSO Auction House");
-        String title = ChatColor.translateAlternateColorCodes('&', titleTemplate);
-
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            title += " - Search: " + searchTerm;
+    /**
+     * Fills in the heads of an open main GUI page once the missing skull textures arrived.
+     * The heads are built on the thread that completed the lookups; nothing happens if the player
+     * moved on to another inventory in the meantime.
+     */
+    private void fillHeadsWhenLoaded(Player player, Inventory inventory, List<DatabaseManager.PlayerAuctionInfo> pageItems) {
+        CompletableFuture<Void> textures = plugin.getSkullCacheManager().fetch(pageItems);
+        if (textures.isDone()) {
+            return; // Every head already had its texture
         }
+        textures.whenComplete((ignored, error) -> {
+            ItemStack[] heads = new ItemStack[pageItems.size()];
+            for (int slot = 0; slot < heads.length; slot++) {
+                heads[slot] = createPlayerHeadItemStack(pageItems.get(slot));
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline() || player.getOpenInventory().getTopInventory() != inventory) {
+                    return;
+                }
+                for (int slot = 0; slot < heads.length; slot++) {
+                    inventory.setItem(slot, heads[slot]);
+                }
+            });
+        });
+    }
+
+    /**
+     * Builds the contents of a view on an I/O thread and shows them on the main thread.
+     * <p>
+     * The stacks shown in the GUIs are detached from any world, so loading their item data,
+     * cloning them and building their lore happens off the main thread, together with any query
+     * the view needs. The main thread only swaps in the finished contents. If the player opened
+     * another view in the meantime, the older result is dropped. Until the result is shown, clicks
+     * on items are ignored, see {@link GuiSession#isRenderPending()}.
+     *
+     * @param player The player to show the view to.
+     * @param view Name of the view for the metrics, e.g. "browse".
+     * @param build Loads and builds the view; runs on the I/O executor.
+     * @param apply Shows the built view; runs on the main thread.
+     */
+    private <T> void renderAsync(Player player, String view, Supplier<T> build, Consumer<T> apply) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        long render = ++session.renderSequence;
+        MetricsManager metrics = plugin.getMetricsManager();
+
+        plugin.getIoExecutor().supply(() -> {
+            long startedAt = System.nanoTime();
+            T built = build.get();
+            metrics.recordTime("gui." + view + ".build", System.nanoTime() - startedAt);
+            return built;
+        }).whenComplete((built, error) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (!player.isOnline() || sessions.peek(player.getUniqueId()) != session || session.renderSequence != render) {
+                metrics.increment("gui.render.dropped");
+                return;
+            }
+            if (error != null) {
+                plugin.getLogger().log(Level.SEVERE, "Error building the " + view + " view", error);
+                plugin.getMessageManager().sendMessage(player, "auction_house_unavailable");
+                player.closeInventory(); // What it shows no longer matches the paginators
+                return;
+            }
+            long startedAt = System.nanoTime();
+            session.appliedSequence = render;
+            apply.accept(built);
+            metrics.recordTime("gui." + view + ".apply", System.nanoTime() - startedAt);
+        }));
+    }
 
+    /**
+     * Opens a new inventory with the given contents.
+     */
+    private Inventory openInventory(Player player, String title, ItemStack[] contents) {
         Inventory inventory = Bukkit.createInventory(null, INVENTORY_SIZE, title);
+        inventory.setContents(contents);
+        player.openInventory(inventory);
+        return inventory;
+    }
 
-        // Add player heads for the current page
-        List<DatabaseManager.PlayerAuctionInfo> pageItems = paginator.getCurrentPageItems();
-        int slot = 0;
-        for (DatabaseManager.PlayerAuctionInfo playerInfo : pageItems) {
-            inventory.setItem(slot, createPlayerHeadItemStack(playerInfo));
-            slot++;
+    /**
+     * Renders the main auction house GUI from the loaded paginator. Must run on the main thread.
+     */
+    private void renderMainGUI(Player player, String searchTerm) {
+        Paginator<DatabaseManager.PlayerAuctionInfo> paginator = sessions.get(player.getUniqueId()).headPaginator;
+        if (paginator == null) {
+            return;
         }
 
-        // Fill empty slots with filler item
-        ItemStack fillerItem = createFillerItem();
-        for (int i = pageItems.size(); i < ITEMS_PER_PAGE; i++) {
-            inventory.setItem(i, fillerItem);
-        }
+        String titleTemplate = plugin.getSettings().getMainTitle();
+        String baseTitle = ChatColor.translateAlternateColorCodes('&', titleTemplate);
+        String title = searchTerm != null && !searchTerm.trim().isEmpty()
+                ? baseTitle + " - Search: " + searchTerm
+                : baseTitle;
+
+        List<DatabaseManager.PlayerAuctionInfo> pageItems = new ArrayList<>(paginator.getCurrentPageItems());
+        boolean hasPrevious = paginator.hasPreviousPage();
+        boolean hasNext = paginator.hasNextPage();
+        MailboxSummary summary = plugin.getMailboxSummaryManager().getSummary(player.getUniqueId());
+
+        renderAsync(player, "main", () -> {
+            ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+            // Add player heads for the current page
+            for (int slot = 0; slot < pageItems.size(); slot++) {
+                contents[slot] = createPlayerHeadItemStack(pageItems.get(slot));
+            }
+            // Add mailbox shortcut, with a badge showing what is waiting
+            contents[MAILBOX_SLOT] = createMailboxButton(summary);
+            addPageButtons(contents, hasPrevious, hasNext,
+                    plugin.getSettings().getPreviousPageButton(), plugin.getSettings().getNextPageButton());
+            return contents;
+        }, contents -> {
+            Inventory inventory = Bukkit.createInventory(null, INVENTORY_SIZE, title);
+            inventory.setContents(contents);
+            player.openInventory(inventory);
+            fillHeadsWhenLoaded(player, inventory, pageItems);
+        });
+    }
 
-        // Add navigation buttons
-        if (paginator.hasPreviousPage()) {
-            inventory.setItem(PREV_PAGE_SLOT, createNavigationButton(
-                    Material.ARROW, plugin.getConfig().getString("gui.buttons.previous_page", "&cPrevious Page")));
-        } else {
-            inventory.setItem(PREV_PAGE_SLOT, fillerItem);
-        }
+    /**
+     * Opens the player items GUI for a player. The seller's listings are loaded off the main thread.
+     */
+    public void openPlayerItemsGUI(Player player, UUID targetUUID, String targetName) {
+        UUID viewerUUID = player.getUniqueId();
+        String title = playerItemsTitle(targetName);
+
+        renderAsync(player, "seller", () -> {
+            List<AuctionItem> items = plugin.getAuctionManager().getPlayerAuctionItems(targetUUID);
+            GuiSession.SellerView sellerView = new GuiSession.SellerView(items);
+            Paginator<AuctionItem> paginator = new Paginator<>(items, ITEMS_PER_PAGE);
+            ItemStack[] contents = buildListingPage(new ArrayList<>(paginator.getCurrentPageItems()),
+                    paginator.hasPreviousPage(), paginator.hasNextPage(), false, viewerUUID,
+                    sellerView.sortMode, sellerView.filterMaterial);
+            return new LoadedView<>(paginator, sellerView, contents);
+        }, loaded -> {
+            GuiSession session = sessions.get(viewerUUID);
+            session.itemPaginator = loaded.paginator;
+            session.sellerView = loaded.sellerView;
+            session.viewedSeller = targetUUID;
+            session.browseItemKey = null;
+            openInventory(player, title, loaded.contents);
+            plugin.getShopViewerManager().watch(viewerUUID, targetUUID);
+        });
+    }
 
-        if (paginator.hasNextPage()) {
-            inventory.setItem(NEXT_PAGE_SLOT, createNavigationButton(
-                    Material.ARROW, plugin.getConfig().getString("gui.buttons.next_page", "&aNext Page")));
-        } else {
-            inventory.setItem(NEXT_PAGE_SLOT, fillerItem);
+    /**
+     * Updates the player items GUI for a player.
+     */
+    public void updatePlayerItemsGUI(Player player, String targetName) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        if (session.itemPaginator == null) {
+            return;
         }
+        GuiSession.SellerView view = session.sellerView;
+        renderListingPage(player, "seller", playerItemsTitle(targetName), session.itemPaginator, false,
+                view != null ? view.sortMode : null, view != null ? view.filterMaterial : -1);
+    }
 
-        // Add mailbox shortcut
-        inventory.setItem(MAILBOX_SLOT, createNavigationButton(
+    private String playerItemsTitle(String targetName) {
+        String titleTemplate = plugin.getSettings().getPlayerItemsTitleTemplate();
+        return ChatColor.translateAlternateColorCodes('&', titleTemplate.replace("{player_name}", targetName));
+    }
 
-                Material.CHEST, plugin.getConfig().getString("gui.buttons.mailbox", "&eMailbox")));
+    /**
+     * Cycles the sort order of the seller view a player has open and shows the first page.
+     */
+    private boolean handleSortClick(Player player, String currentInventoryTitle) {
+        GuiSession.SellerView view = sessions.get(player.getUniqueId()).sellerView;
+        if (view == null) {
+            return false;
+        }
+        view.sortMode = view.sortMode.next();
+        applySellerView(player, view);
+        updatePlayerItemsGUI(player, ChatColor.stripColor(currentInventoryTitle).replace("'s Auctions", ""));
+        return true;
+    }
 
-        // Fill remaining slots with filler item
-        for (int i = ITEMS_PER_PAGE; i < INVENTORY_SIZE; i++) {
-            if (i != PREV_PAGE_SLOT && i != NEXT_PAGE_SLOT && i != MAILBOX_SLOT) {
+    /**
+     * Cycles the material filter of the seller view a player has open through the materials the
+     * seller lists, then back to all items, and shows the first page.
+     */
+    private boolean handleFilterClick(Player player, String currentInventoryTitle) {
+        GuiSession.SellerView view = sessions.get(player.getUniqueId()).sellerView;
+        if (view == null) {
+            return false;
+        }
+        int[] materials = view.columns.distinctMaterials();
+        int next = -1;
+        for (int material : materials) {
+            if (material > view.filterMaterial) {
+                next = material;
+                break;
+            }
+        }
+        view.filterMaterial = next;
+        applySellerView(player, view);
+        updatePlayerItemsGUI(player, ChatColor.stripColor(currentInventoryTitle).replace("'s Auctions", ""));
+        return true;
+    }
 
-                inventory.setItem(i, fillerItem);
+    /**
+     * Rebuilds the paginator of a seller view from its snapshot: a primitive sort of the positions,
+     * then the filter bitmap. Listings keep any item data that was already loaded.
+     */
+    private void applySellerView(Player player, GuiSession.SellerView view) {
+        int[] positions = view.columns.sortedPositions(view.sortMode);
+        BitSet filter = view.filterMaterial >= 0 ? view.columns.withMaterial(view.filterMaterial) : null;
+
+        List<AuctionItem> visible = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            if (filter == null || filter.get(position)) {
+                visible.add(view.items.get(position));
             }
         }
+        sessions.get(player.getUniqueId()).itemPaginator = new Paginator<>(visible, ITEMS_PER_PAGE);
+    }
 
-        player.openInventory(inventory);
+    private ItemStack createSortButton(ListingColumns.SortMode sortMode) {
+        ItemStack button = createNavigationButton(Material.COMPARATOR, "&eSort: &f" + sortMode.getLabel());
+        ItemMeta meta = button.getItemMeta();
+        meta.setLore(Collections.singletonList(ChatColor.GRAY + "Click to change the order"));
+        button.setItemMeta(meta);
+        return button;
+    }
+
+    private ItemStack createFilterButton(int filterMaterial) {
+        Material filter = filterMaterial >= 0 ? Material.values()[filterMaterial] : null;
+        ItemStack button = createNavigationButton(filter != null ? filter : Material.HOPPER,
+                "&eShow: &f" + (filter != null ? filter.name() : "All items"));
+        ItemMeta meta = button.getItemMeta();
+        meta.setLore(Collections.singletonList(ChatColor.GRAY + "Click to show one item type at a time"));
+        button.setItemMeta(meta);
+        return button;
     }
 
     /**
-     * Opens the player items GUI for a player.
+     * Opens the cheapest-first view of an item: the listings of every seller, sorted by unit price.
+     * The listings come from the in-memory listing index, so opening the view runs no query.
+     *
+     * @param player The player to open the GUI for.
+     * @param itemKey The item key to browse.
+     * @param itemName The display name of the item.
      */
-    public void openPlayerItemsGUI(Player player, UUID targetUUID, String targetName) {
-        List<AuctionItem> items = plugin.getAuctionManager().getPlayerAuctionItems(targetUUID);
-        Paginator<AuctionItem> paginator = new Paginator<>(items, ITEMS_PER_PAGE);
-        playerItemPaginators.put(player.getUniqueId(), paginator);
+    public void openBrowseGUI(Player player, String itemKey, String itemName) {
+        ListingIndexManager index = plugin.getListingIndexManager();
+        if (!index.isReady()) {
+            plugin.getMessageManager().sendMessage(player, "browse_loading");
+            return;
+        }
 
-        updatePlayerItemsGUI(player, targetName);
+        long startedAt = System.nanoTime();
+        List<AuctionItem> items = index.getListings(itemKey);
+        if (items.isEmpty()) {
+            plugin.getMessageManager().sendMessage(player, "browse_no_listings", "{item_name}", itemName);
+            return;
+        }
+
+        GuiSession session = sessions.get(player.getUniqueId());
+        session.itemPaginator = new Paginator<>(items, ITEMS_PER_PAGE);
+        session.viewedSeller = null;
+        session.browseItemKey = itemKey;
+        updateBrowseGUI(player, itemName);
+        plugin.getMetricsManager().recordTime("gui.browse.open", System.nanoTime() - startedAt);
     }
 
     /**
-     * Updates the player items GUI for a player.
+     * Opens the results of a facet search in the cheapest-first view.
+     *
+     * @param player The player to open the GUI for.
+     * @param queryText The search as typed, used as the title.
+     * @param results The matching listings, cheapest first.
      */
-    public void updatePlayerItemsGUI(Player player, String targetName) {
-        Paginator<AuctionItem> paginator = playerItemPaginators.get(player.getUniqueId());
+    public void openSearchResultsGUI(Player player, String queryText, List<AuctionItem> results) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        session.itemPaginator = new Paginator<>(results, ITEMS_PER_PAGE);
+        session.viewedSeller = null;
+        session.browseItemKey = null;
+        updateBrowseGUI(player, queryText);
+    }
+
+    /**
+     * Updates the cheapest-first view of an item for a player.
+     *
+     * @param player The player to update the GUI for.
+     * @param itemName The display name of the item.
+     */
+    public void updateBrowseGUI(Player player, String itemName) {
+        Paginator<AuctionItem> paginator = sessions.get(player.getUniqueId()).itemPaginator;
         if (paginator == null) {
             return;
         }
 
-        String titleTemplate = plugin.getConfig().getString("gui.player_items_title_template", "&1&l{player_name}'s Auctions");
-        String title = ChatColor.translateAlternateColorCodes('&', titleTemplate.replace("{player_name}", targetName));
+        String titleTemplate = plugin.getSettings().getBrowseTitleTemplate();
+        String title = ChatColor.translateAlternateColorCodes('&', titleTemplate.replace("{item_name}", itemName));
 
-        Inventory inventory = Bukkit.createInventory(null, INVENTORY_SIZE, title);
+        renderListingPage(player, "browse", title, paginator, true, null, -1);
+    }
 
-        // Add items for the current page
-        List<AuctionItem> pageItems = paginator.getCurrentPageItems();
-        int slot = 0;
+    /**
+     * Renders the current page of a listing view off the main thread and opens it.
+     *
+     * @param view Name of the view for the metrics.
+     * @param showSeller Whether the listings come from different sellers, so each shows its seller.
+     * @param sortMode The sort order of a seller view, or null for views without sort and filter buttons.
+     * @param filterMaterial The material filter of a seller view, or -1.
+     */
+    private void renderListingPage(Player player, String view, String title, Paginator<AuctionItem> paginator,
+                                   boolean showSeller, ListingColumns.SortMode sortMode, int filterMaterial) {
+        List<AuctionItem> pageItems = new ArrayList<>(paginator.getCurrentPageItems());
+        List<ListingStock> stocks = new ArrayList<>(pageItems.size());
         for (AuctionItem item : pageItems) {
-            inventory.setItem(slot, createAuctionItemStack(item, player));
-            slot++;
+            stocks.add(item.getStock());
         }
+        boolean hasPrevious = paginator.hasPreviousPage();
+        boolean hasNext = paginator.hasNextPage();
+        UUID viewerUUID = player.getUniqueId();
+
+        renderAsync(player, view,
+                () -> buildListingPage(pageItems, hasPrevious, hasNext, showSeller, viewerUUID, sortMode, filterMaterial),
+                contents -> {
+                    Inventory inventory = openInventory(player, title, contents);
+                    // Live updates that arrived while the page was being built were not drawn yet
+                    for (int slot = 0; slot < pageItems.size(); slot++) {
+                        AuctionItem item = pageItems.get(slot);
+                        if (item.getStock() != stocks.get(slot)) {
+                            inventory.setItem(slot, showSeller ? createBrowseItemStack(item, viewerUUID) : createAuctionItemStack(item, viewerUUID));
+                        }
+                    }
+                });
+    }
 
-        // Fill empty slots with filler item
-        ItemStack fillerItem = createFillerItem();
-        for (int i = pageItems.size(); i < ITEMS_PER_PAGE; i++) {
-            inventory.setItem(i, fillerItem);
+    /**
+     * Builds a page of a listing view with its navigation buttons. Runs off the main thread.
+     *
+     * @param pageItems The listings of the page.
+     * @param showSeller Whether the listings come from different sellers, so each shows its seller.
+     * @param viewerUUID The player viewing the page.
+     * @param sortMode The sort order of a seller view, or null for views without sort and filter buttons.
+     * @param filterMaterial The material filter of a seller view, or -1.
+     * @return The contents of the inventory.
+     */
+    private ItemStack[] buildListingPage(List<AuctionItem> pageItems, boolean hasPrevious, boolean hasNext,
+                                         boolean showSeller, UUID viewerUUID,
+                                         ListingColumns.SortMode sortMode, int filterMaterial) {
+        ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+
+        // Add items for the current page, fetching item data only for the visible slots
+        plugin.getAuctionManager().loadItemStacks(pageItems);
+        for (int slot = 0; slot < pageItems.size(); slot++) {
+            AuctionItem item = pageItems.get(slot);
+            contents[slot] = showSeller ? createBrowseItemStack(item, viewerUUID) : createAuctionItemStack(item, viewerUUID);
         }
 
-        // Add navigation buttons
-        if (paginator.hasPreviousPage()) {
-            inventory.setItem(PREV_PAGE_SLOT, createNavigationButton(
-                    Material.ARROW, 
-                    plugin.getConfig().getString("gui.buttons.previous_page", "&cPrevious Page")));
-        } else {
-            inventory.setItem(PREV_PAGE_SLOT, fillerItem);
+        // Add back button, and the sort and filter buttons of a seller view
+        contents[BACK_BUTTON_SLOT] = createNavigationButton(Material.BARRIER, plugin.getSettings().getBackButton());
+        if (sortMode != null) {
+            contents[SORT_BUTTON_SLOT] = createSortButton(sortMode);
+            contents[FILTER_BUTTON_SLOT] = createFilterButton(filterMaterial);
         }
 
-        if (paginator.hasNextPage()) {
-            inventory.setItem(NEXT_PAGE_SLOT, createNavigationButton(
-                    Material.ARROW, 
-                    plugin.getConfig().getString("gui.buttons.next_page", "&aNext Page")));
-        } else {
-            inventory.setItem(NEXT_PAGE_SLOT, fillerItem);
-        }
+        addPageButtons(contents, hasPrevious, hasNext,
+                plugin.getSettings().getPreviousPageButton(), plugin.getSettings().getNextPageButton());
+        return contents;
+    }
 
-        // Add back button
-        inventory.setItem(BACK_BUTTON_SLOT, createNavigationButton(
-                Material.BARRIER,
-                plugin.getConfig().getString("gui.buttons.back", "&eBack")));
+    /**
+     * Adds the page buttons to the contents of a paged view and fills every slot left empty.
+     */
+    private void addPageButtons(ItemStack[] contents, boolean hasPrevious, boolean hasNext,
+                                String previousName, String nextName) {
+        if (hasPrevious) {
+            contents[PREV_PAGE_SLOT] = createNavigationButton(Material.ARROW, previousName);
+        }
+        if (hasNext) {
+            contents[NEXT_PAGE_SLOT] = createNavigationButton(Material.ARROW, nextName);
+        }
 
-        // Fill remaining slots with filler item
-        for (int i = ITEMS_PER_PAGE; i < INVENTORY_SIZE; i++) {
-            if (i != PREV_PAGE_SLOT && i != NEXT_PAGE_SLOT && i != BACK_BUTTON_SLOT) {
-                inventory.setItem(i, fillerItem);
+        ItemStack fillerItem = createFillerItem();
+        for (int i = 0; i < INVENTORY_SIZE; i++) {
+            if (contents[i] == null) {
+                contents[i] = fillerItem;
             }
         }
-
-        player.openInventory(inventory);
     }
 
     /**
-     * Opens the mailbox GUI for a player.
+     * Opens the mailbox GUI for a player. The mailbox is loaded off the main thread.
      */
     public void openMailboxGUI(Player player) {
-        List<MailboxItem> items = plugin.getAuctionManager().getPlayerMailboxItems(player.getUniqueId());
-        Paginator<MailboxItem> paginator = new Paginator<>(items, ITEMS_PER_PAGE);
-        mailboxPaginators.put(player.getUniqueId(), paginator);
-
-        updateMailboxGUI(player);
+        UUID playerUUID = player.getUniqueId();
+
+        renderAsync(player, "mailbox", () -> {
+            List<MailboxItem> items = plugin.getMailboxSummaryManager().loadMailbox(playerUUID);
+            Paginator<MailboxItem> paginator = new Paginator<>(items, ITEMS_PER_PAGE);
+            ItemStack[] contents = buildMailboxPage(new ArrayList<>(paginator.getCurrentPageItems()),
+                    paginator.hasPreviousPage(), paginator.hasNextPage(), paginator.getTotalItems() > 0);
+            return new LoadedView<>(paginator, null, contents);
+        }, loaded -> {
+            sessions.get(playerUUID).mailboxPaginator = loaded.paginator;
+            openInventory(player, mailboxTitle(), loaded.contents);
+        });
     }
 
     /**
-     * Updates the mailbox GUI for a player.
+     * Updates the mailbox GUI for a player, redrawing it in place if it is open.
      */
     public void updateMailboxGUI(Player player) {
-        Paginator<MailboxItem> paginator = mailboxPaginators.get(player.getUniqueId());
+        renderMailboxPage(player, true);
+    }
+
+    /**
+     * Renders the current mailbox page off the main thread. If the player is looking at their
+     * mailbox, it is redrawn in place; otherwise a new mailbox GUI is opened if requested.
+     */
+    private void renderMailboxPage(Player player, boolean openIfClosed) {
+        Paginator<MailboxItem> paginator = sessions.get(player.getUniqueId()).mailboxPaginator;
         if (paginator == null) {
-            openMailboxGUI(player);
+            if (openIfClosed) {
+                openMailboxGUI(player);
+            }
             return;
         }
 
-        String titleTemplate = plugin.getConfig().getString("gui.mailbox_title", "&1&lYour Mailbox");
-        String title = ChatColor.translateAlternateColorCodes('&', titleTemplate);
-
-        Inventory inventory = Bukkit.createInventory(null, INVENTORY_SIZE, title);
-
-        // Add mailbox items for the current page
-        List<MailboxItem> pageItems = paginator.getCurrentPageItems();
-        int slot = 0;
-        for (MailboxItem item : pageItems) {
-            inventory.setItem(slot, createMailboxItemStack(item));
-            slot++;
-        }
+        List<MailboxItem> pageItems = new ArrayList<>(paginator.getCurrentPageItems());
+        boolean hasPrevious = paginator.hasPreviousPage();
+        boolean hasNext = paginator.hasNextPage();
+        boolean hasItems = paginator.getTotalItems() > 0;
+
+        renderAsync(player, "mailbox",
+                () -> buildMailboxPage(pageItems, hasPrevious, hasNext, hasItems),
+                contents -> {
+                    InventoryView view = player.getOpenInventory();
+                    if (view != null && ChatColor.stripColor(view.getTitle()).equals("Your Mailbox")) {
+                        view.getTopInventory().setContents(contents);
+                    } else if (openIfClosed) {
+                        openInventory(player, mailboxTitle(), contents);
+                    }
+                });
+    }
 
-        // Fill empty slots with filler item
-        ItemStack fillerItem = createFillerItem();
-        for (int i = pageItems.size(); i < ITEMS_PER_PAGE; i++) {
-            inventory.setItem(i, fillerItem);
-        }
+    private String mailboxTitle() {
+        return ChatColor.translateAlternateColorCodes('&', plugin.getSettings().getMailboxTitle());
+    }
 
-        // Add navigation buttons
-        if (paginator.hasPreviousPage()) {
-            inventory.setItem(PREV_PAGE_SLOT, createNavigationButton(
-                    Material.ARROW, "Previous Page"));
-        } else {
-            inventory.setItem(PREV_PAGE_SLOT, fillerItem);
-        }
+    /**
+     * Builds a mailbox page with its navigation buttons. Runs off the main thread.
+     */
+    private ItemStack[] buildMailboxPage(List<MailboxItem> pageItems, boolean hasPrevious, boolean hasNext, boolean hasItems) {
+        ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
 
-        if (paginator.hasNextPage()) {
-            inventory.setItem(NEXT_PAGE_SLOT, createNavigationButton(
-                    Material.ARROW, "Next Page"));
-        } else {
-            inventory.setItem(NEXT_PAGE_SLOT, fillerItem);
+        // Add mailbox items for the current page, fetching item data only for the visible slots
+        plugin.getAuctionManager().loadMailboxItemStacks(pageItems);
+        for (int slot = 0; slot < pageItems.size(); slot++) {
+            contents[slot] = createMailboxItemStack(pageItems.get(slot));
         }
 
         // Add back button
-        inventory.setItem(BACK_BUTTON_SLOT, createNavigationButton(
-                Material.BARRIER, "Back"));
+        contents[BACK_BUTTON_SLOT] = createNavigationButton(Material.BARRIER, "Back");
 
-        // Fill remaining slots with filler item
-        for (int i = ITEMS_PER_PAGE; i < INVENTORY_SIZE; i++) {
-            if (i != PREV_PAGE_SLOT && i != NEXT_PAGE_SLOT && i != BACK_BUTTON_SLOT) {
-                inventory.setItem(i, fillerItem);
-            }
+        // Add claim all button
+        if (hasItems) {
+            contents[CLAIM_ALL_SLOT] = createNavigationButton(Material.HOPPER, plugin.getSettings().getClaimAllButton());
         }
 
-        player.openInventory(inventory);
+        addPageButtons(contents, hasPrevious, hasNext, "Previous Page", "Next Page");
+        return contents;
     }
 
     /**
@@ -283,13 +594,20 @@ public class GUIManager {
      * @param auctionItem The auction item being purchased.
      */
     public void openPurchaseConfirmGUI(Player player, AuctionItem auctionItem) {
-        pendingPurchases.put(player.getUniqueId(), auctionItem.getId());
+        if (!auctionItem.hasItemStack()) {
+            plugin.getMessageManager().sendMessage(player, "auction_not_found");
+            return;
+        }
+
+        GuiSession session = sessions.get(player.getUniqueId());
+        session.pendingPurchase = new AuctionManager.PurchaseQuote(auctionItem);
+        session.appliedSequence = ++session.renderSequence; // Opened right away, so drop any view still being built
 
         String title = ChatColor.translateAlternateColorCodes('&', "&aConfirm Purchase");
         Inventory inventory = Bukkit.createInventory(null, 27, title);
 
         // Item being purchased in the center
-        inventory.setItem(13, createAuctionItemStack(auctionItem, player));
+        inventory.setItem(13, createAuctionItemStack(auctionItem, player.getUniqueId()));
 
         // Confirmation button setup depends on stackability
         boolean isStackable = auctionItem.getItemStack().getMaxStackSize() > 1;
@@ -299,9 +617,9 @@ public class GUIManager {
         List<String> confirmLore = new ArrayList<>();
 
         if (isStackable) {
-            String buyAllText = plugin.getConfig().getString("gui.buttons.confirm_purchase_lmb", "&aBuy All (LMB)");
-            String buyOneText = plugin.getConfig().getString("gui.buttons.confirm_purchase_rmb", "&aBuy One (RMB)");
-            String buyAmountText = plugin.getConfig().getString("gui.buttons.confirm_purchase_mmb", "&aBuy Amount (MMB)");
+            String buyAllText = plugin.getSettings().getBuyAllButton();
+            String buyOneText = plugin.getSettings().getBuyOneButton();
+            String buyAmountText = plugin.getSettings().getBuyAmountButton();
 
             confirmMeta.setDisplayName(ChatColor.translateAlternateColorCodes('&', buyAllText));
             confirmLore.add(ChatColor.translateAlternateColorCodes('&', buyOneText));
@@ -312,7 +630,7 @@ public class GUIManager {
             confirmLore.add(ChatColor.YELLOW + "Price Per Item: " +
                     ChatColor.GREEN + plugin.getMessageManager().formatPrice(auctionItem.getPricePerItem()));
         } else {
-            String buyItemText = plugin.getConfig().getString("gui.buttons.confirm_purchase_single", "&aBuy Item");
+            String buyItemText = plugin.getSettings().getBuySingleButton();
             confirmMeta.setDisplayName(ChatColor.translateAlternateColorCodes('&', buyItemText));
             confirmLore.add("");
             confirmLore.add(ChatColor.YELLOW + "Price: " +
@@ -351,17 +669,15 @@ public class GUIManager {
         if (meta != null) {
             meta.setDisplayName(ChatColor.YELLOW + playerInfo.getName() + "'s Shop");
 
-            // Set the skull owner
-            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(playerInfo.getUuid());
-            meta.setOwningPlayer(offlinePlayer);
+            // Cached textures only; without them this stays a placeholder head until they arrive
+            plugin.getSkullCacheManager().apply(meta, playerInfo.getUuid(), playerInfo.getName());
 
             List<String> lore = new ArrayList<>();
             lore.add("");
             lore.add(ChatColor.GREEN + "Click to view " + playerInfo.getName() + "'s auctions");
 
-            // Add item count
-            int itemCount = plugin.getAuctionManager().getPlayerAuctionItems(playerInfo.getUuid()).size();
-            lore.add(ChatColor.GRAY + "Items for sale: " + ChatColor.WHITE + itemCount);
+            // Add item count, already loaded with the seller list
+            lore.add(ChatColor.GRAY + "Items for sale: " + ChatColor.WHITE + playerInfo.getListingCount());
 
             meta.setLore(lore);
             head.setItemMeta(meta);
@@ -371,14 +687,30 @@ public class GUIManager {
     }
 
     /**
-     * Creates an ItemStack for an auction item.
+     * Creates an ItemStack for an auction item. Safe off the main thread.
      * 
      * @param auctionItem The auction item to create an ItemStack for.
-     * @param player The player viewing the item, or null if not applicable.
+     * @param viewerUUID The player viewing the item, or null if not applicable.
      * @return The created ItemStack.
      */
-    private ItemStack createAuctionItemStack(AuctionItem auctionItem, Player player) {
-        ItemStack itemStack = auctionItem.getItemStack().clone();
+    private ItemStack createAuctionItemStack(AuctionItem auctionItem, UUID viewerUUID) {
+        return createAuctionItemStack(auctionItem, viewerUUID, false);
+    }
+
+    /**
+     * Creates an ItemStack for an auction item, optionally naming its seller in the lore.
+     */
+    private ItemStack createAuctionItemStack(AuctionItem auctionItem, UUID viewerUUID, boolean showSeller) {
+        if (!auctionItem.hasItemStack() || auctionItem.isSoldOut()) {
+            // The listing disappeared after the list was loaded, e.g. someone else bought it
+            ItemStack unavailable = new ItemStack(Material.BARRIER);
+            ItemMeta meta = unavailable.getItemMeta();
+            meta.setDisplayName(ChatColor.RED + "No longer available");
+            unavailable.setItemMeta(meta);
+            return unavailable;
+        }
+
+        ItemStack itemStack = auctionItem.getItemStack();
         ItemMeta meta = itemStack.getItemMeta();
 
         if (meta != null) {
@@ -386,6 +718,9 @@ public class GUIManager {
 
             // Add auction information to lore
             lore.add("");
+            if (showSeller) {
+                lore.add(ChatColor.YELLOW + "Seller: " + ChatColor.WHITE + auctionItem.getSellerName());
+            }
             lore.add(ChatColor.YELLOW + "Price: " + ChatColor.GREEN + 
                     plugin.getMessageManager().formatPrice(auctionItem.getPricePerItem()) + " each");
             lore.add(ChatColor.YELLOW + "Quantity: " + ChatColor.WHITE + 
@@ -393,7 +728,7 @@ public class GUIManager {
             lore.add("");
 
             // Show different message based on whether the player is the owner
-            if (player != null && auctionItem.getSellerUUID().equals(player.getUniqueId())) {
+            if (auctionItem.getSellerUUID().equals(viewerUUID)) {
                 lore.add(ChatColor.RED + "Click to cancel auction");
             } else {
                 lore.add(ChatColor.GREEN + "Click to purchase");
@@ -407,10 +742,15 @@ public class GUIManager {
     }
 
     /**
-     * Creates an ItemStack for an auction item (overloaded method for backward compatibility).
+     * Creates an ItemStack for a listing in the cheapest-first view, with its seller and
+     * the remaining quantity as the stack size.
      */
-    private ItemStack createAuctionItemStack(AuctionItem auctionItem) {
-        return createAuctionItemStack(auctionItem, null);
+    private ItemStack createBrowseItemStack(AuctionItem auctionItem, UUID viewerUUID) {
+        ItemStack itemStack = createAuctionItemStack(auctionItem, viewerUUID, true);
+        if (auctionItem.hasItemStack()) {
+            itemStack.setAmount(Math.max(1, Math.min(auctionItem.getQuantityRemaining(), itemStack.getMaxStackSize())));
+        }
+        return itemStack;
     }
 
     /**
@@ -481,15 +821,45 @@ public class GUIManager {
         return button;
     }
 
+    /**
+     * Creates the mailbox shortcut button, showing the cached mailbox summary if available.
+     *
+     * @param summary The cached mailbox summary of the viewer, or null.
+     * @return The created ItemStack.
+     */
+    private ItemStack createMailboxButton(MailboxSummary summary) {
+        ItemStack button = createNavigationButton(
+                Material.CHEST, plugin.getSettings().getMailboxButton());
+
+        if (summary == null || summary.isEmpty()) {
+            return button;
+        }
+
+        // The stack size doubles as an unread counter
+        button.setAmount(Math.min(64, summary.getEntryCount()));
+
+        ItemMeta meta = button.getItemMeta();
+        List<String> lore = new ArrayList<>();
+        lore.add("");
+        if (summary.getMoneyEntries() > 0) {
+            lore.add(ChatColor.YELLOW + "Money: " + ChatColor.GREEN +
+                    plugin.getMessageManager().formatPrice(summary.getMoneyTotal()));
+        }
+        if (summary.getItemEntries() > 0) {
+            lore.add(ChatColor.YELLOW + "Items: " + ChatColor.WHITE + summary.getItemEntries());
+        }
+        meta.setLore(lore);
+        button.setItemMeta(meta);
+        return button;
+    }
+
     /**
      * Creates a filler item for empty slots.
      *
      * @return The created ItemStack.
      */
     private ItemStack createFillerItem() {
-        Material fillerMaterial = Material.valueOf(
-                plugin.getConfig().getString("gui.filler_item", "BLACK_STAINED_GLASS_PANE"));
-        ItemStack filler = new ItemStack(fillerMaterial);
+        ItemStack filler = new ItemStack(plugin.getSettings().getFillerMaterial());
         ItemMeta meta = filler.getItemMeta();
         meta.setDisplayName(" ");
         filler.setItemMeta(meta);
@@ -500,10 +870,14 @@ public class GUIManager {
      * Handles a player clicking on a player head in the main GUI.
      */
     public boolean handlePlayerHeadClick(Player player, int slot) {
-        Paginator<DatabaseManager.PlayerAuctionInfo> paginator = playerHeadPaginators.get(player.getUniqueId());
+        GuiSession session = sessions.get(player.getUniqueId());
+        Paginator<DatabaseManager.PlayerAuctionInfo> paginator = session.headPaginator;
         if (paginator == null || slot >= ITEMS_PER_PAGE) {
             return false;
         }
+        if (ignorePendingClick(session)) {
+            return true;
+        }
 
         List<DatabaseManager.PlayerAuctionInfo> pageItems = paginator.getCurrentPageItems();
         if (slot >= pageItems.size()) {
@@ -515,14 +889,29 @@ public class GUIManager {
         return true;
     }
 
+    /**
+     * Checks whether an item click has to be ignored because the view is still being built.
+     */
+    private boolean ignorePendingClick(GuiSession session) {
+        if (!session.isRenderPending()) {
+            return false;
+        }
+        plugin.getMetricsManager().increment("gui.click.pending");
+        return true;
+    }
+
     /**
      * Handles a player clicking on an auction item.
      */
     public boolean handleAuctionItemClick(Player player, int slot, boolean isRightClick, boolean isShiftClick) {
-        Paginator<AuctionItem> paginator = playerItemPaginators.get(player.getUniqueId());
+        GuiSession session = sessions.get(player.getUniqueId());
+        Paginator<AuctionItem> paginator = session.itemPaginator;
         if (paginator == null || slot >= ITEMS_PER_PAGE) {
             return false;
         }
+        if (ignorePendingClick(session)) {
+            return true;
+        }
 
         List<AuctionItem> pageItems = paginator.getCurrentPageItems();
         if (slot >= pageItems.size()) {
@@ -530,6 +919,11 @@ public class GUIManager {
         }
 
         AuctionItem clickedItem = pageItems.get(slot);
+        if (clickedItem.isSoldOut()) {
+            // Known to be gone from a live update, no need to ask the database
+            plugin.getMessageManager().sendMessage(player, "auction_not_found");
+            return true;
+        }
 
         // Check if player is the owner of this auction
         if (clickedItem.getSellerUUID().equals(player.getUniqueId())) {
@@ -550,14 +944,63 @@ public class GUIManager {
         return true;
     }
 
+    /**
+     * Shows committed changes of a seller's listings in the shop a player has open, redrawing only
+     * the slots of the changed listings. Called by the {@link ShopViewerManager} on the main thread.
+     *
+     * @param player The player viewing the shop.
+     * @param sellerUUID The seller whose listings changed.
+     * @param remaining The remaining quantity and version per changed listing id, 0 for listings that are gone.
+     * @return The number of slots redrawn, or -1 if the player no longer has that shop open.
+     */
+    int applyListingChanges(Player player, UUID sellerUUID, Map<Integer, ShopViewerManager.ListingChange> remaining) {
+        GuiSession session = sessions.peek(player.getUniqueId());
+        if (session == null || session.itemPaginator == null || !sellerUUID.equals(session.viewedSeller)) {
+            return -1;
+        }
+        InventoryView view = player.getOpenInventory();
+        if (view == null || !ChatColor.stripColor(view.getTitle()).contains("'s Auctions")) {
+            return -1;
+        }
+
+        // Keep the loaded listings current, also those on other pages
+        List<AuctionItem> loaded = session.sellerView != null ? session.sellerView.items : session.itemPaginator.getCurrentPageItems();
+        for (AuctionItem item : loaded) {
+            ShopViewerManager.ListingChange change = remaining.get(item.getId());
+            if (change != null) {
+                item.setStock(change.getStock());
+            }
+        }
+
+        if (session.isRenderPending()) {
+            return 0; // The page being built redraws the changed listings when it is shown
+        }
+
+        int updated = 0;
+        Inventory inventory = view.getTopInventory();
+        List<AuctionItem> pageItems = session.itemPaginator.getCurrentPageItems();
+        for (int slot = 0; slot < pageItems.size(); slot++) {
+            AuctionItem item = pageItems.get(slot);
+            if (remaining.containsKey(item.getId())) {
+                inventory.setItem(slot, createAuctionItemStack(item, player.getUniqueId()));
+                updated++;
+            }
+        }
+        return updated;
+    }
+
     /**
      * Handles a player clicking on a mailbox item.
      */
     public boolean handleMailboxItemClick(Player player, int slot) {
-        Paginator<MailboxItem> paginator = mailboxPaginators.get(player.getUniqueId());
+        GuiSession session = sessions.get(player.getUniqueId());
+        Paginator<MailboxItem> paginator = session.mailboxPaginator;
         if (paginator == null || slot >= ITEMS_PER_PAGE) {
             return false;
         }
+        if (ignorePendingClick(session)) {
+            return true;
+        }
 
         List<MailboxItem> pageItems = paginator.getCurrentPageItems();
         if (slot >= pageItems.size()) {
@@ -568,13 +1011,33 @@ public class GUIManager {
 
         // Try to claim the item
         if (plugin.getAuctionManager().claimMailboxItem(player, clickedItem)) {
-            // Refresh the mailbox GUI
-            openMailboxGUI(player);
+            // Drop the claimed entry and redraw the open view, no need to reload everything
+            paginator.removeItems(item -> item.getId() == clickedItem.getId());
+            updateMailboxGUI(player);
         }
 
         return true;
     }
 
+    /**
+     * Claims everything that fits from the player's mailbox and updates the open view in place.
+     *
+     * @param player The player claiming their mailbox.
+     */
+    public void claimAllMailboxItems(Player player) {
+        AuctionManager.ClaimAllResult result = plugin.getAuctionManager().claimAllMailboxItems(player);
+        if (result == null) {
+            return;
+        }
+
+        Paginator<MailboxItem> paginator = sessions.get(player.getUniqueId()).mailboxPaginator;
+        if (paginator != null) {
+            Set<Integer> claimedIds = new HashSet<>(result.getClaimedIds());
+            paginator.removeItems(item -> claimedIds.contains(item.getId()));
+            renderMailboxPage(player, false);
+        }
+    }
+
     /**
      * Handles a player clicking on a navigation button.
      */
@@ -586,6 +1049,13 @@ public class GUIManager {
         } else if (slot == MAILBOX_SLOT && currentInventoryTitle.contains("Auction House")) {
             openMailboxGUI(player);
             return true;
+        } else if (slot == CLAIM_ALL_SLOT && currentInventoryTitle.contains("Your Mailbox")) {
+            claimAllMailboxItems(player);
+            return true;
+        } else if (slot == SORT_BUTTON_SLOT && currentInventoryTitle.contains("'s Auctions")) {
+            return handleSortClick(player, currentInventoryTitle);
+        } else if (slot == FILTER_BUTTON_SLOT && currentInventoryTitle.contains("'s Auctions")) {
+            return handleFilterClick(player, currentInventoryTitle);
         } else if (slot == BACK_BUTTON_SLOT) {
             return handleBackButtonClick(player, currentInventoryTitle);
         } else if (slot == MAILBOX_BUTTON_SLOT && currentInventoryTitle.contains("Auction House")) {
@@ -598,14 +1068,23 @@ public class GUIManager {
 
     private boolean handlePreviousPageClick(Player player, String currentInventoryTitle) {
         if (currentInventoryTitle.contains("Your Mailbox")) {
-            Paginator<MailboxItem> paginator = mailboxPaginators.get(player.getUniqueId());
+            Paginator<MailboxItem> paginator = sessions.get(player.getUniqueId()).mailboxPaginator;
             if (paginator != null && paginator.hasPreviousPage()) {
                 paginator.previousPage();
                 updateMailboxGUI(player);
                 return true;
             }
+        } else if (currentInventoryTitle.contains(BROWSE_TITLE_MARKER)) {
+            Paginator<AuctionItem> paginator = sessions.get(player.getUniqueId()).itemPaginator;
+            if (paginator != null && paginator.hasPreviousPage()) {
+                paginator.previousPage();
+                String itemName = currentInventoryTitle.substring(
+                        currentInventoryTitle.indexOf(BROWSE_TITLE_MARKER) + BROWSE_TITLE_MARKER.length());
+                updateBrowseGUI(player, itemName);
+                return true;
+            }
         } else if (currentInventoryTitle.contains("'s Auctions")) {
-            Paginator<AuctionItem> paginator = playerItemPaginators.get(player.getUniqueId());
+            Paginator<AuctionItem> paginator = sessions.get(player.getUniqueId()).itemPaginator;
             if (paginator != null && paginator.hasPreviousPage()) {
                 paginator.previousPage();
                 String targetName = ChatColor.stripColor(currentInventoryTitle).replace("'s Auctions", "");
@@ -613,7 +1092,7 @@ public class GUIManager {
                 return true;
             }
         } else {
-            Paginator<DatabaseManager.PlayerAuctionInfo> paginator = playerHeadPaginators.get(player.getUniqueId());
+            Paginator<DatabaseManager.PlayerAuctionInfo> paginator = sessions.get(player.getUniqueId()).headPaginator;
             if (paginator != null && paginator.hasPreviousPage()) {
                 paginator.previousPage();
                 updateMainGUI(player, null);
@@ -626,14 +1105,23 @@ public class GUIManager {
 
     private boolean handleNextPageClick(Player player, String currentInventoryTitle) {
         if (currentInventoryTitle.contains("Your Mailbox")) {
-            Paginator<MailboxItem> paginator = mailboxPaginators.get(player.getUniqueId());
+            Paginator<MailboxItem> paginator = sessions.get(player.getUniqueId()).mailboxPaginator;
             if (paginator != null && paginator.hasNextPage()) {
                 paginator.nextPage();
                 updateMailboxGUI(player);
                 return true;
             }
+        } else if (currentInventoryTitle.contains(BROWSE_TITLE_MARKER)) {
+            Paginator<AuctionItem> paginator = sessions.get(player.getUniqueId()).itemPaginator;
+            if (paginator != null && paginator.hasNextPage()) {
+                paginator.nextPage();
+                String itemName = currentInventoryTitle.substring(
+                        currentInventoryTitle.indexOf(BROWSE_TITLE_MARKER) + BROWSE_TITLE_MARKER.length());
+                updateBrowseGUI(player, itemName);
+                return true;
+            }
         } else if (currentInventoryTitle.contains("'s Auctions")) {
-            Paginator<AuctionItem> paginator = playerItemPaginators.get(player.getUniqueId());
+            Paginator<AuctionItem> paginator = sessions.get(player.getUniqueId()).itemPaginator;
             if (paginator != null && paginator.hasNextPage()) {
                 paginator.nextPage();
                 String targetName = ChatColor.stripColor(currentInventoryTitle).replace("'s Auctions", "");
@@ -641,7 +1129,7 @@ public class GUIManager {
                 return true;
             }
         } else {
-            Paginator<DatabaseManager.PlayerAuctionInfo> paginator = playerHeadPaginators.get(player.getUniqueId());
+            Paginator<DatabaseManager.PlayerAuctionInfo> paginator = sessions.get(player.getUniqueId()).headPaginator;
             if (paginator != null && paginator.hasNextPage()) {
                 paginator.nextPage();
                 updateMainGUI(player, null);
@@ -653,7 +1141,8 @@ public class GUIManager {
     }
 
     private boolean handleBackButtonClick(Player player, String currentInventoryTitle) {
-        if (currentInventoryTitle.contains("'s Auctions") || currentInventoryTitle.contains("Your Mailbox")) {
+        if (currentInventoryTitle.contains("'s Auctions") || currentInventoryTitle.contains("Your Mailbox")
+                || currentInventoryTitle.contains(BROWSE_TITLE_MARKER)) {
             openMainGUI(player);
             return true;
         }
@@ -671,18 +1160,12 @@ public class GUIManager {
      * @return true if the click was handled, false otherwise.
      */
     public boolean handlePurchaseConfirmClick(Player player, int slot, boolean isRightClick, boolean isMiddleClick) {
-        Integer auctionId = pendingPurchases.get(player.getUniqueId());
-        if (auctionId == null) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        AuctionManager.PurchaseQuote quote = session.pendingPurchase;
+        if (quote == null) {
             return false;
         }
-
-        AuctionItem auctionItem = plugin.getAuctionManager().getAuctionItem(auctionId);
-        if (auctionItem == null) {
-            player.closeInventory();
-            plugin.getMessageManager().sendMessage(player, "auction_not_found");
-            pendingPurchases.remove(player.getUniqueId());
-            return true;
-        }
+        AuctionItem auctionItem = quote.getListing(); // The purchase checks the quoted version, no need to read it again
 
         if (slot == 11) { // Confirm button
             boolean isStackable = auctionItem.getItemStack().getMaxStackSize() > 1;
@@ -690,45 +1173,35 @@ public class GUIManager {
             if (!isStackable) {
                 // Non-stackable item: always buy the whole item
                 player.closeInventory();
-                plugin.getAuctionManager().purchaseItem(player, auctionId, auctionItem.getQuantityRemaining());
-                pendingPurchases.remove(player.getUniqueId());
+                plugin.getAuctionManager().purchaseItem(player, quote, quote.getQuantity());
+                session.pendingPurchase = null;
             } else if (isMiddleClick) {
                 // Middle click - buy specific amount
                 player.closeInventory();
-                awaitingChatInput.add(player.getUniqueId());
-                pendingPurchaseQuantities.put(player.getUniqueId(), auctionItem.getQuantityRemaining());
+                session.awaitingChatInput = true;
                 plugin.getMessageManager().sendMessage(player, "enter_amount_to_buy");
             } else if (isRightClick) {
                 // Right click - buy one
                 player.closeInventory();
-                plugin.getAuctionManager().purchaseItem(player, auctionId, 1);
-                pendingPurchases.remove(player.getUniqueId());
+                plugin.getAuctionManager().purchaseItem(player, quote, 1);
+                session.pendingPurchase = null;
             } else {
                 // Left click - buy all
                 player.closeInventory();
-                plugin.getAuctionManager().purchaseItem(player, auctionId, auctionItem.getQuantityRemaining());
-                pendingPurchases.remove(player.getUniqueId());
+                plugin.getAuctionManager().purchaseItem(player, quote, quote.getQuantity());
+                session.pendingPurchase = null;
             }
             return true;
         } else if (slot == 15) { // Cancel button
             player.closeInventory();
             plugin.getMessageManager().sendMessage(player, "purchase_cancelled");
 
-            // Use the existing auctionId variable to determine which player's shop to return to
-            if (auctionItem != null) {
-                // Return to the player's shop GUI after a short delay
-                final AuctionItem finalItem = auctionItem; // Create a final copy for the lambda
-                Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                    openPlayerItemsGUI(player, finalItem.getSellerUUID(), finalItem.getSellerName());
-                }, 1L);
-            } else {
-                // If we couldn't get the auction item, just return to the main GUI
-                Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                    openMainGUI(player);
-                }, 1L);
-            }
+            // Return to the player's shop GUI (or the item view) after a short delay
+            Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                returnToListingView(player, auctionItem);
+            }, 1L);
 
-            pendingPurchases.remove(player.getUniqueId());
+            session.pendingPurchase = null;
             return true;
         }
 
@@ -736,94 +1209,281 @@ public class GUIManager {
     }
 
     /**
-     * Handles a player entering a quantity in chat.
+     * Reopens the view a purchase was started from: the cheapest-first view of the item if the
+     * player was browsing it, otherwise the seller's listings.
+     */
+    private void returnToListingView(Player player, AuctionItem auctionItem) {
+        String itemKey = sessions.get(player.getUniqueId()).browseItemKey;
+        if (itemKey != null && itemKey.equals(auctionItem.getItemKey())) {
+            openBrowseGUI(player, itemKey, plugin.getAuctionManager().getItemDisplayName(auctionItem.getItemStack()));
+        } else {
+            openPlayerItemsGUI(player, auctionItem.getSellerUUID(), auctionItem.getSellerName());
+        }
+    }
+
+    /**
+     * Hands a quantity a player entered in chat over to the main thread, where it is handled like
+     * any GUI click. Called from the async chat thread, so it only queues the message.
+     *
+     * @param player The player who entered the message.
+     * @param message The message entered.
+     */
+    public void queueChatInput(Player player, String message) {
+        chatInputs.add(new ChatInput(player.getUniqueId(), message));
+        if (chatDrainScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTask(plugin, this::drainChatInputs);
+        }
+    }
+
+    /**
+     * Handles all queued chat input. Runs on the main thread.
+     */
+    private void drainChatInputs() {
+        chatDrainScheduled.set(false);
+        ChatInput input;
+        while ((input = chatInputs.poll()) != null) {
+            Player player = Bukkit.getPlayer(input.playerUUID);
+            if (player != null && player.isOnline()) {
+                handleChatInput(player, input.message);
+            }
+        }
+    }
+
+    /**
+     * Handles a player entering a quantity in chat. Must run on the main thread.
      *
      * @param player The player who entered the message.
      * @param message The message entered.
      * @return true if the message was handled, false otherwise.
      */
-    public boolean handleChatInput(Player player, String message) {
-        if (!awaitingChatInput.contains(player.getUniqueId())) {
+    private boolean handleChatInput(Player player, String message) {
+        GuiSession session = sessions.peek(player.getUniqueId());
+        if (session == null || !session.awaitingChatInput) {
             return false;
         }
 
-        awaitingChatInput.remove(player.getUniqueId());
+        session.touch();
+        session.awaitingChatInput = false;
 
         if (message.equalsIgnoreCase("cancel")) {
             plugin.getMessageManager().sendMessage(player, "purchase_cancelled");
 
-            // Get the auction item to determine which player's shop to return to
-            Integer auctionId = pendingPurchases.get(player.getUniqueId());
-            pendingPurchases.remove(player.getUniqueId());
-            pendingPurchaseQuantities.remove(player.getUniqueId());
-
-            if (auctionId != null) {
-                AuctionItem item = plugin.getAuctionManager().getAuctionItem(auctionId);
-                if (item != null) {
-                    // Return to the player's shop GUI after a short delay
-                    Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                        openPlayerItemsGUI(player, item.getSellerUUID(), item.getSellerName());
-                    }, 1L);
-                    return true;
-                }
+            // The quoted listing tells which player's shop to return to
+            AuctionManager.PurchaseQuote quote = session.pendingPurchase;
+            session.pendingPurchase = null;
+
+            if (quote != null) {
+                // Return to the player's shop GUI (or the item view) after a short delay
+                Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                    returnToListingView(player, quote.getListing());
+                }, 1L);
+                return true;
             }
 
-            // If we couldn't get the auction item, just return to the main GUI
+            // Without a pending purchase, just return to the main GUI
             Bukkit.getScheduler().runTaskLater(plugin, () -> {
                 openMainGUI(player);
             }, 1L);
             return true;
         }
 
+        int quantity;
         try {
-            int quantity = Integer.parseInt(message);
-            Integer auctionId = pendingPurchases.get(player.getUniqueId());
-            Integer maxQuantity = pendingPurchaseQuantities.get(player.getUniqueId());
+            quantity = Integer.parseInt(message.trim()); // Whole items only, no "2.5" or "1k"
+        } catch (NumberFormatException e) {
+            plugin.getMessageManager().sendMessage(player, "invalid_amount_entered");
+            return true;
+        }
 
-            if (auctionId == null || maxQuantity == null) {
-                return false;
-            }
+        AuctionManager.PurchaseQuote quote = session.pendingPurchase;
+        if (quote == null) {
+            return false;
+        }
+        int maxQuantity = quote.getQuantity();
 
-            if (quantity <= 0) {
-                plugin.getMessageManager().sendMessage(player, "must_be_positive_amount");
-                return true;
-            }
+        if (quantity <= 0) {
+            plugin.getMessageManager().sendMessage(player, "must_be_positive_amount");
+            return true;
+        }
+
+        if (quantity > maxQuantity) {
+            plugin.getMessageManager().sendRawMessage(player, "&cThere are only " + maxQuantity + " items available.");
+            return true;
+        }
+
+        plugin.getAuctionManager().purchaseItem(player, quote, quantity);
+        session.pendingPurchase = null;
+
+        return true;
+    }
+
+    /**
+     * Opens the sell box, an inventory the player drags items into to list them all at once.
+     *
+     * @param player The player to open the GUI for.
+     * @param unitPrice The price per item for everything in the box.
+     */
+    public void openSellBoxGUI(Player player, long unitPrice) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        session.sellBoxPrice = unitPrice;
+        session.appliedSequence = ++session.renderSequence; // Opened right away, so drop any view still being built
+
+        SellBoxHolder holder = new SellBoxHolder();
+        Inventory inventory = Bukkit.createInventory(holder, INVENTORY_SIZE, SELL_BOX_TITLE);
+        holder.setInventory(inventory);
+
+        ItemStack fillerItem = createFillerItem();
+        for (int i = ITEMS_PER_PAGE; i < INVENTORY_SIZE; i++) {
+            inventory.setItem(i, fillerItem);
+        }
+
+        ItemStack confirmButton = createNavigationButton(Material.EMERALD_BLOCK, "&aList all items");
+        ItemMeta confirmMeta = confirmButton.getItemMeta();
+        confirmMeta.setLore(Arrays.asList(
+                ChatColor.GRAY + "Price per item: " + ChatColor.GREEN + plugin.getMessageManager().formatPrice(unitPrice),
+                ChatColor.GRAY + "Each stack becomes one listing."));
+        confirmButton.setItemMeta(confirmMeta);
+        inventory.setItem(SELL_BOX_CONFIRM_SLOT, confirmButton);
+        inventory.setItem(SELL_BOX_CANCEL_SLOT, createNavigationButton(Material.BARRIER, "&cCancel"));
+
+        player.openInventory(inventory);
+    }
+
+    /**
+     * Handles a click in the sell box. Items may be moved freely, except in the button row.
+     *
+     * @param player The player who clicked.
+     * @param rawSlot The raw slot of the click, counting the sell box first.
+     * @return true if the click must be cancelled.
+     */
+    public boolean handleSellBoxClick(Player player, int rawSlot) {
+        if (rawSlot < ITEMS_PER_PAGE || rawSlot >= INVENTORY_SIZE) {
+            return false;
+        }
 
-            if (quantity > maxQuantity) {
-                plugin.getMessageManager().sendRawMessage(player, "&cThere are only " + maxQuantity + " items available.");
+        if (rawSlot == SELL_BOX_CONFIRM_SLOT) {
+            confirmSellBox(player);
+        } else if (rawSlot == SELL_BOX_CANCEL_SLOT) {
+            player.closeInventory();
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a drag touches the button row of the sell box.
+     *
+     * @param rawSlots The raw slots of the drag.
+     * @return true if the drag must be cancelled.
+     */
+    public boolean isSellBoxButtonDrag(Set<Integer> rawSlots) {
+        for (int rawSlot : rawSlots) {
+            if (rawSlot >= ITEMS_PER_PAGE && rawSlot < INVENTORY_SIZE) {
                 return true;
             }
+        }
+        return false;
+    }
 
-            plugin.getAuctionManager().purchaseItem(player, auctionId, quantity);
-            pendingPurchases.remove(player.getUniqueId());
-            pendingPurchaseQuantities.remove(player.getUniqueId());
+    /**
+     * Lists everything in the sell box with one batch and closes it.
+     * Whatever was not listed is handed back when the box closes.
+     */
+    private void confirmSellBox(Player player) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        Long unitPrice = session.sellBoxPrice;
+        session.sellBoxPrice = null;
+        if (unitPrice == null) {
+            player.closeInventory();
+            return;
+        }
 
-        } catch (NumberFormatException e) {
-            plugin.getMessageManager().sendMessage(player, "invalid_amount_entered");
+        Inventory box = player.getOpenInventory().getTopInventory();
+        List<Integer> slots = new ArrayList<>();
+        List<ItemStack> stacks = new ArrayList<>();
+        for (int slot = 0; slot < ITEMS_PER_PAGE; slot++) {
+            ItemStack stack = box.getItem(slot);
+            if (stack != null && !stack.getType().isAir()) {
+                slots.add(slot);
+                stacks.add(stack);
+            }
         }
 
-        return true;
+        if (!stacks.isEmpty()) {
+            AuctionManager.BulkListResult result = plugin.getAuctionManager().listItems(player, stacks, unitPrice);
+            if (result != null) {
+                for (int i = 0; i < result.getListedStacks(); i++) {
+                    box.clear(slots.get(i));
+                }
+            }
+        }
+
+        player.closeInventory();
+    }
+
+    /**
+     * Hands back everything left in a sell box when it is closed.
+     *
+     * @param player The player who closed the box.
+     * @param box The sell box inventory.
+     */
+    public void handleSellBoxClose(Player player, Inventory box) {
+        sessions.get(player.getUniqueId()).sellBoxPrice = null;
+
+        for (int slot = 0; slot < ITEMS_PER_PAGE; slot++) {
+            ItemStack stack = box.getItem(slot);
+            if (stack == null || stack.getType().isAir()) {
+                continue;
+            }
+            box.clear(slot);
+            for (ItemStack leftover : player.getInventory().addItem(stack).values()) {
+                player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+            }
+        }
     }
 
     /**
-     * Checks if a player is awaiting chat input.
+     * Checks if a player is awaiting chat input. Safe from the async chat thread.
      *
      * @param playerUUID The UUID of the player to check.
      * @return true if the player is awaiting chat input, false otherwise.
      */
     public boolean isAwaitingChatInput(UUID playerUUID) {
-        return awaitingChatInput.contains(playerUUID);
+        GuiSession session = sessions.peek(playerUUID);
+        return session != null && session.awaitingChatInput;
     }
 
     /**
      * Cleans up data for a player when they quit.
      */
     public void cleanupPlayerData(UUID playerUUID) {
-        playerHeadPaginators.remove(playerUUID);
-        playerItemPaginators.remove(playerUUID);
-        mailboxPaginators.remove(playerUUID);
-        pendingPurchases.remove(playerUUID);
-        pendingPurchaseQuantities.remove(playerUUID);
-        awaitingChatInput.remove(playerUUID);
+        sessions.remove(playerUUID);
+    }
+
+    /**
+     * A chat message waiting to be handled on the main thread.
+     */
+    private static class ChatInput {
+        private final UUID playerUUID;
+        private final String message;
+
+        ChatInput(UUID playerUUID, String message) {
+            this.playerUUID = playerUUID;
+            this.message = message;
+        }
+    }
+
+    /**
+     * A view loaded off the main thread, ready to be stored in the session and shown.
+     */
+    private static class LoadedView<T> {
+        private final Paginator<T> paginator;
+        private final GuiSession.SellerView sellerView;
+        private final ItemStack[] contents;
+
+        LoadedView(Paginator<T> paginator, GuiSession.SellerView sellerView, ItemStack[] contents) {
+            this.paginator = paginator;
+            this.sellerView = sellerView;
+            this.contents = contents;
+        }
     }
 }
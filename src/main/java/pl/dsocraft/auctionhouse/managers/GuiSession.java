@@ -0,0 +1,108 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import pl.dsocraft.auctionhouse.database.AuctionItem;
+import pl.dsocraft.auctionhouse.database.DatabaseManager;
+import pl.dsocraft.auctionhouse.database.MailboxItem;
+import pl.dsocraft.auctionhouse.utils.ListingColumns;
+import pl.dsocraft.auctionhouse.utils.Paginator;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Everything the GUIs remember about one player: the pages of the views they opened, the
+ * purchase they are confirming and the sell box price.
+ * <p>
+ * Only used on the main thread, except {@link #awaitingChatInput} and the access time, which
+ * the async chat thread and the eviction task read.
+ */
+public class GuiSession {
+
+    // Rough sizes per entry, for the memory estimate
+    private static final int SESSION_BYTES = 256;
+    private static final int SELLER_BYTES = 96;
+    private static final int LISTING_BYTES = 160;
+    private static final int MAILBOX_BYTES = 128;
+    private static final int COLUMN_BYTES = 40;
+
+    Paginator<DatabaseManager.PlayerAuctionInfo> headPaginator;
+    Paginator<AuctionItem> itemPaginator;
+    Paginator<MailboxItem> mailboxPaginator;
+
+    // Sort and filter state of the seller view, and whose shop it shows
+    SellerView sellerView;
+    UUID viewedSeller;
+
+    // Item key of the cheapest-first view being browsed; its listings use itemPaginator
+    String browseItemKey;
+
+    // Purchase being confirmed, as the listing was when the confirmation opened
+    AuctionManager.PurchaseQuote pendingPurchase;
+    volatile boolean awaitingChatInput;
+
+    Long sellBoxPrice;
+
+    // Incremented for every view rendered off the main thread, so an older result is not shown
+    long renderSequence;
+    // The render shown in the open inventory; behind renderSequence while a view is being built
+    long appliedSequence;
+
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    /**
+     * Checks whether a view is still being built. The paginators already point at the new page
+     * then, so clicks on the inventory shown would map to the wrong entries.
+     */
+    boolean isRenderPending() {
+        return appliedSequence != renderSequence;
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Estimates the memory held by the session, mostly the loaded lists.
+     *
+     * @return The estimate in bytes.
+     */
+    long estimateBytes() {
+        long bytes = SESSION_BYTES;
+        Paginator<DatabaseManager.PlayerAuctionInfo> heads = headPaginator;
+        Paginator<AuctionItem> items = itemPaginator;
+        Paginator<MailboxItem> mailbox = mailboxPaginator;
+        SellerView view = sellerView;
+        if (heads != null) {
+            bytes += (long) heads.getTotalItems() * SELLER_BYTES;
+        }
+        if (items != null) {
+            bytes += (long) items.getTotalItems() * LISTING_BYTES;
+        }
+        if (mailbox != null) {
+            bytes += (long) mailbox.getTotalItems() * MAILBOX_BYTES;
+        }
+        if (view != null) {
+            bytes += (long) view.items.size() * (LISTING_BYTES + COLUMN_BYTES);
+        }
+        return bytes;
+    }
+
+    /**
+     * A seller's listings as loaded, with their column snapshot and the chosen order and filter.
+     */
+    static class SellerView {
+        final List<AuctionItem> items;
+        final ListingColumns columns;
+        ListingColumns.SortMode sortMode = ListingColumns.SortMode.NEWEST;
+        int filterMaterial = -1; // Material ordinal, or -1 for all items
+
+        SellerView(List<AuctionItem> items) {
+            this.items = items;
+            this.columns = ListingColumns.of(items);
+        }
+    }
+}
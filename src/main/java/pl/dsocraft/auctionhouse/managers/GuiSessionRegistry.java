@@ -0,0 +1,87 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.Bukkit;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the {@link GuiSession} of every player using the auction house GUIs.
+ * <p>
+ * Sessions are created on first use and dropped when the player quits or has not touched the
+ * GUIs for a while, so lists loaded for a view someone walked away from do not stay in memory
+ * until they log out. The number of sessions and an estimate of their memory are reported as
+ * metrics on every eviction run.
+ */
+public class GuiSessionRegistry {
+
+    private static final long EVICTION_INTERVAL_TICKS = 60 * 20;
+
+    private final DSOAuctionHouse plugin;
+    private final Map<UUID, GuiSession> sessions = new ConcurrentHashMap<>();
+
+    public GuiSessionRegistry(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts evicting idle sessions. Eviction runs on the main thread, like every other change
+     * to a session.
+     */
+    public void start() {
+        Bukkit.getScheduler().runTaskTimer(plugin, this::evictIdle, EVICTION_INTERVAL_TICKS, EVICTION_INTERVAL_TICKS);
+    }
+
+    /**
+     * Gets a player's session, creating it if needed, and marks it as used.
+     */
+    GuiSession get(UUID playerUUID) {
+        GuiSession session = sessions.computeIfAbsent(playerUUID, uuid -> new GuiSession());
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Gets a player's session without creating it or marking it as used. Safe from any thread.
+     *
+     * @return The session, or null if the player has none.
+     */
+    GuiSession peek(UUID playerUUID) {
+        return sessions.get(playerUUID);
+    }
+
+    /**
+     * Drops a player's session, e.g. when they quit.
+     */
+    void remove(UUID playerUUID) {
+        sessions.remove(playerUUID);
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        long idleMillis = TimeUnit.MINUTES.toMillis(plugin.getSettings().getGuiSessionIdleMinutes());
+        long bytes = 0;
+        int evicted = 0;
+        Iterator<GuiSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            GuiSession session = iterator.next();
+            if (now - session.getLastAccess() > idleMillis) {
+                iterator.remove();
+                evicted++;
+            } else {
+                bytes += session.estimateBytes();
+            }
+        }
+
+        MetricsManager metrics = plugin.getMetricsManager();
+        if (evicted > 0) {
+            metrics.add("gui.sessions.evicted", evicted);
+        }
+        metrics.setGauge("gui.sessions.count", sessions.size());
+        metrics.setGauge("gui.sessions.bytes_estimate", bytes);
+    }
+}
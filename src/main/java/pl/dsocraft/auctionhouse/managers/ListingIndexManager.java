@@ -0,0 +1,378 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.AuctionItem;
+import pl.dsocraft.auctionhouse.database.ListingStock;
+import pl.dsocraft.auctionhouse.utils.FacetIndex;
+import pl.dsocraft.auctionhouse.utils.FacetQuery;
+import pl.dsocraft.auctionhouse.utils.IdBitmap;
+import pl.dsocraft.auctionhouse.utils.ItemFacets;
+import pl.dsocraft.auctionhouse.utils.ItemKeys;
+import pl.dsocraft.auctionhouse.utils.PrefixTrie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the active listings of every item key, sorted cheapest first.
+ * <p>
+ * Each item key has a sorted set ordered by (unit price, listed at, id), so the cheapest listings
+ * of an item across all sellers are a range read without any query. Because every listing of a
+ * key is the same item, one template stack per key is enough to render them all.
+ * <p>
+ * The same listings are also kept in a {@link FacetIndex} for searches by material, enchantment,
+ * custom model data, persistent data keys and price. Facets are extracted once per item key from
+ * its template, so building the index never deserializes more than one stack per key.
+ * <p>
+ * The index is only changed by the matching thread of the {@link OrderBookManager}, in the same
+ * order as the order books, and only with changes that were already committed. Any thread may
+ * read it; the facet bitmaps are guarded by a read-write lock. Every listing that is added or
+ * removed is also reported to the {@link SearchCacheManager}, and every listing that is reduced
+ * or removed to the {@link ShopViewerManager}.
+ * <p>
+ * Item names and seller names of the active listings are kept in prefix tries for tab completion,
+ * so completing {@code /ah find} and {@code /checkah} never queries the database.
+ */
+public class ListingIndexManager {
+
+    private static final int LOAD_CHUNK_SIZE = 500;
+
+    private final DSOAuctionHouse plugin;
+    private final Map<String, NavigableSet<Entry>> byItemKey = new ConcurrentHashMap<>();
+    private final Map<Integer, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, ItemStack> templates = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Facets per item key and the bitmaps of listing ids, only used under facetLock
+    private final Map<String, List<String>> keyFacets = new HashMap<>();
+    private final FacetIndex facetIndex = new FacetIndex();
+    private final ReadWriteLock facetLock = new ReentrantReadWriteLock();
+
+    // Names of the active listings, one use per listing
+    private final PrefixTrie itemNames = new PrefixTrie();
+    private final PrefixTrie sellerNames = new PrefixTrie();
+
+    public ListingIndexManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Checks whether the index was loaded.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Gets the listings of an item key, cheapest first. Listings with the same unit price are
+     * ordered oldest first. The returned items share the key's template stack, so they can be
+     * rendered right away; if no template is known yet the stacks are missing and must be loaded.
+     *
+     * @param itemKey The item key.
+     * @return The listings, or an empty list if there are none.
+     */
+    public List<AuctionItem> getListings(String itemKey) {
+        NavigableSet<Entry> entries = byItemKey.get(itemKey);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+
+        List<AuctionItem> listings = new ArrayList<>();
+        for (Entry entry : entries) {
+            ListingStock stock = entry.stock;
+            if (stock.getQuantityRemaining() <= 0) {
+                continue;
+            }
+            listings.add(toAuctionItem(entry, stock));
+        }
+        return listings;
+    }
+
+    private AuctionItem toAuctionItem(Entry entry, ListingStock stock) {
+        AuctionItem item = new AuctionItem(entry.id, entry.sellerUUID, entry.sellerName, templates.get(entry.itemKey),
+                entry.itemName, entry.priceTotal, entry.quantityInitial, stock.getQuantityRemaining(), entry.listedAt,
+                stock.getVersion());
+        item.attachItemKey(entry.itemKey);
+        return item;
+    }
+
+    /**
+     * Finds the listings matching a facet search, cheapest first.
+     *
+     * @param query The parsed search.
+     * @param limit The maximum number of listings to return.
+     * @return The matching listings, cheapest first.
+     */
+    public List<AuctionItem> search(FacetQuery query, int limit) {
+        long startedAt = System.nanoTime();
+        IdBitmap ids;
+        facetLock.readLock().lock();
+        try {
+            ids = query.evaluate(facetIndex, id -> {
+                Entry entry = byId.get(id);
+                return entry != null ? entry.unitPrice : -1;
+            });
+        } finally {
+            facetLock.readLock().unlock();
+        }
+
+        List<Entry> matches = new ArrayList<>(ids.cardinality());
+        ids.forEach(id -> {
+            Entry entry = byId.get(id);
+            if (entry != null && entry.stock.getQuantityRemaining() > 0) {
+                matches.add(entry);
+            }
+        });
+        matches.sort(null);
+        plugin.getMetricsManager().recordTime("index.facet_query", System.nanoTime() - startedAt);
+
+        List<AuctionItem> listings = new ArrayList<>(Math.min(limit, matches.size()));
+        for (Entry entry : matches.subList(0, Math.min(limit, matches.size()))) {
+            listings.add(toAuctionItem(entry, entry.stock));
+        }
+        return listings;
+    }
+
+    /**
+     * Completes the searchable name of a listed item.
+     *
+     * @param prefix The start of the name, normalized like item_name_lowercase.
+     * @param limit The maximum number of names.
+     * @return The matching names in alphabetical order.
+     */
+    public List<String> completeItemNames(String prefix, int limit) {
+        return itemNames.complete(prefix, limit);
+    }
+
+    /**
+     * Completes the name of a player with active listings.
+     *
+     * @param prefix The start of the name, case-insensitive.
+     * @param limit The maximum number of names.
+     * @return The matching names in alphabetical order.
+     */
+    public List<String> completeSellerNames(String prefix, int limit) {
+        return sellerNames.complete(prefix, limit);
+    }
+
+    /**
+     * Gets the number of listings of an item key.
+     *
+     * @param itemKey The item key.
+     * @return The number of listings.
+     */
+    public int getListingCount(String itemKey) {
+        NavigableSet<Entry> entries = byItemKey.get(itemKey);
+        return entries == null ? 0 : entries.size();
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Changes, only called from the matching thread
+    // ------------------------------------------------------------------------------------------
+
+    /**
+     * Adds a committed listing.
+     *
+     * @param itemStack A copy of the listed item, used as the key's template if it has none yet.
+     */
+    void add(int listingId, UUID sellerUUID, String sellerName, String itemKey, String itemNameLowercase,
+             ItemStack itemStack, long priceTotal, int quantity, long listedAt) {
+        Entry entry = new Entry(listingId, sellerUUID, sellerName, itemKey, itemNameLowercase, priceTotal,
+                quantity, quantity, listedAt, 0);
+        if (byId.putIfAbsent(listingId, entry) != null) {
+            return;
+        }
+        byItemKey.computeIfAbsent(itemKey, k -> new ConcurrentSkipListSet<>()).add(entry);
+        if (itemStack != null) {
+            templates.putIfAbsent(itemKey, itemStack);
+        }
+        addFacets(entry);
+        addNames(entry);
+        plugin.getSearchCacheManager().onListingChanged(itemNameLowercase);
+    }
+
+    /**
+     * Takes a committed purchase or buy order fill off a listing. Each of them advanced the row
+     * version by one.
+     */
+    void reduce(int listingId, int quantity) {
+        Entry entry = byId.get(listingId);
+        if (entry == null) {
+            return;
+        }
+        ListingStock stock = entry.stock.reduce(quantity); // Only the matching thread writes entries
+        if (stock.getQuantityRemaining() > 0) {
+            entry.stock = stock;
+            plugin.getShopViewerManager().onListingChanged(entry.sellerUUID, listingId, stock);
+        } else {
+            remove(listingId);
+        }
+    }
+
+    /**
+     * Removes a listing that was sold out or cancelled.
+     */
+    void remove(int listingId) {
+        Entry entry = byId.remove(listingId);
+        if (entry == null) {
+            return;
+        }
+        ListingStock gone = new ListingStock(0, entry.stock.getVersion() + 1);
+        entry.stock = gone;
+        NavigableSet<Entry> entries = byItemKey.get(entry.itemKey);
+        if (entries != null) {
+            entries.remove(entry);
+            // The template and facets are kept, the same item is likely listed again
+        }
+
+        facetLock.writeLock().lock();
+        try {
+            facetIndex.remove(entry.id, facetsOf(entry.itemKey), entry.unitPrice);
+        } finally {
+            facetLock.writeLock().unlock();
+        }
+        itemNames.remove(entry.itemName);
+        sellerNames.remove(entry.sellerName);
+        plugin.getSearchCacheManager().onListingChanged(entry.itemName);
+        plugin.getShopViewerManager().onListingChanged(entry.sellerUUID, listingId, gone);
+    }
+
+    private void addFacets(Entry entry) {
+        facetLock.writeLock().lock();
+        try {
+            facetIndex.add(entry.id, facetsOf(entry.itemKey), entry.unitPrice);
+        } finally {
+            facetLock.writeLock().unlock();
+        }
+    }
+
+    private void addNames(Entry entry) {
+        itemNames.add(entry.itemName);
+        sellerNames.add(entry.sellerName);
+    }
+
+    /**
+     * Gets the facets of an item key, extracting them from its template the first time.
+     * Without a template only the material is known; that is not cached, so the full facets are
+     * used once a listing brings a template. Removing ids from facets they were never added to
+     * does no harm.
+     */
+    private List<String> facetsOf(String itemKey) {
+        List<String> facets = keyFacets.get(itemKey);
+        if (facets != null) {
+            return facets;
+        }
+        ItemStack template = templates.get(itemKey);
+        if (template == null) {
+            Material material = ItemKeys.materialOf(itemKey);
+            return material != null ? Collections.singletonList(ItemFacets.ofType(material)) : Collections.emptyList();
+        }
+        facets = ItemFacets.of(template);
+        keyFacets.put(itemKey, facets);
+        return facets;
+    }
+
+    /**
+     * Builds the index from the listings loaded at startup and loads one template stack per key.
+     *
+     * @param listings The active listings with their item keys, without item data.
+     */
+    void load(List<AuctionItem> listings) {
+        Map<String, Integer> templateIds = new HashMap<>();
+        for (AuctionItem listing : listings) {
+            String itemKey = listing.getItemKey();
+            if (itemKey == null || listing.getQuantityRemaining() <= 0) {
+                continue;
+            }
+            Entry entry = new Entry(listing.getId(), listing.getSellerUUID(), listing.getSellerName(), itemKey,
+                    listing.getItemNameLowercase(), listing.getPriceTotal(), listing.getQuantityInitial(), listing.getQuantityRemaining(),
+                    listing.getListedAt(), listing.getVersion());
+            byId.put(entry.id, entry);
+            byItemKey.computeIfAbsent(itemKey, k -> new ConcurrentSkipListSet<>()).add(entry);
+            if (!templates.containsKey(itemKey)) {
+                templateIds.putIfAbsent(itemKey, entry.id);
+            }
+        }
+
+        List<Map.Entry<String, Integer>> missing = new ArrayList<>(templateIds.entrySet());
+        for (int from = 0; from < missing.size(); from += LOAD_CHUNK_SIZE) {
+            List<Map.Entry<String, Integer>> chunk = missing.subList(from, Math.min(missing.size(), from + LOAD_CHUNK_SIZE));
+            List<Integer> ids = new ArrayList<>(chunk.size());
+            chunk.forEach(e -> ids.add(e.getValue()));
+
+            Map<Integer, ItemStack> itemStacks = plugin.getDatabaseManager().getItemStacks("active_auctions", ids);
+            for (Map.Entry<String, Integer> e : chunk) {
+                ItemStack itemStack = itemStacks.get(e.getValue());
+                if (itemStack != null) {
+                    itemStack.setAmount(1);
+                    templates.putIfAbsent(e.getKey(), itemStack);
+                }
+            }
+        }
+
+        for (Entry entry : byId.values()) {
+            addFacets(entry);
+            addNames(entry);
+        }
+
+        ready = true;
+        plugin.getMetricsManager().setGauge("index.item_keys", byItemKey.size());
+        plugin.getMetricsManager().setGauge("index.facets", facetIndex.facetCount());
+        plugin.getMetricsManager().setGauge("index.item_names", itemNames.size());
+        plugin.getMetricsManager().setGauge("index.seller_names", sellerNames.size());
+    }
+
+    /**
+     * One listing in the index. The sort fields never change; only the stock does.
+     */
+    private static class Entry implements Comparable<Entry> {
+        private final int id;
+        private final UUID sellerUUID;
+        private final String sellerName;
+        private final String itemKey;
+        private final String itemName; // item_name_lowercase
+        private final long priceTotal;
+        private final int quantityInitial;
+        private final long unitPrice;
+        private final long listedAt;
+        private volatile ListingStock stock;
+
+        Entry(int id, UUID sellerUUID, String sellerName, String itemKey, String itemName, long priceTotal,
+              int quantityInitial, int quantityRemaining, long listedAt, int version) {
+            this.id = id;
+            this.sellerUUID = sellerUUID;
+            this.sellerName = sellerName;
+            this.itemKey = itemKey;
+            this.itemName = itemName;
+            this.priceTotal = priceTotal;
+            this.quantityInitial = quantityInitial;
+            this.unitPrice = quantityInitial > 0 ? priceTotal / quantityInitial : priceTotal; // As AuctionItem.getPricePerItem()
+            this.stock = new ListingStock(quantityRemaining, version);
+            this.listedAt = listedAt;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byPrice = Long.compare(unitPrice, other.unitPrice);
+            if (byPrice != 0) {
+                return byPrice;
+            }
+            int byTime = Long.compare(listedAt, other.listedAt);
+            if (byTime != 0) {
+                return byTime;
+            }
+            return Integer.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.MailboxItem;
+import pl.dsocraft.auctionhouse.database.MailboxSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps mailbox summaries (entry count, pending money, item count) for online players,
+ * so nobody has to load item blobs just to find out whether something is waiting.
+ * <p>
+ * Summaries are loaded asynchronously on join and kept up to date on every insert and claim.
+ * Players without a loaded summary are simply not tracked. A load never overwrites a summary
+ * that was updated while it ran; it reads the mailbox again instead.
+ */
+public class MailboxSummaryManager {
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final DSOAuctionHouse plugin;
+    private final Map<UUID, MailboxSummary> summaries = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> loading = new ConcurrentHashMap<>(); // Running loads per player
+    private final Set<UUID> changedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    public MailboxSummaryManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Loads a player's summary in the background and notifies them if their mailbox is not empty.
+     *
+     * @param player The player who joined.
+     */
+    public void loadAsync(Player player) {
+        UUID playerUUID = player.getUniqueId();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            MailboxSummary summary = load(playerUUID, false);
+            if (summary != null && !summary.isEmpty()) {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    Player online = Bukkit.getPlayer(playerUUID);
+                    if (online != null && online.isOnline()) {
+                        sendNotification(online, summary);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Reloads the summaries of all tracked players, e.g. after the cleanup task archived entries.
+     */
+    public void reloadAllAsync() {
+        List<UUID> tracked = new ArrayList<>(summaries.keySet());
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            for (UUID playerUUID : tracked) {
+                load(playerUUID, true);
+            }
+        });
+    }
+
+    /**
+     * Loads a summary from the database and stores it, see {@link #load(UUID, boolean, Supplier, Function)}.
+     *
+     * @return The stored summary, the loaded one if the player is not tracked, or null if loading failed.
+     */
+    private MailboxSummary load(UUID playerUUID, boolean replace) {
+        MailboxSummary loaded = load(playerUUID, replace,
+                () -> plugin.getDatabaseManager().getMailboxSummary(playerUUID), summary -> summary);
+        MailboxSummary stored = summaries.get(playerUUID);
+        return stored != null ? stored : loaded;
+    }
+
+    /**
+     * Runs a query of a player's mailbox and stores the summary built from its result, unless the
+     * player's summary changed while the query ran; then the query is repeated. Blocking, only
+     * called off the main thread.
+     *
+     * @param playerUUID The UUID of the player.
+     * @param replace Whether to replace a tracked summary; a missing summary is only stored for
+     *                online players either way.
+     * @param query Reads the mailbox, returns null if that failed.
+     * @param summarize Builds the summary from the query's result.
+     * @return The result of the last query, or null if it failed.
+     */
+    private <T> T load(UUID playerUUID, boolean replace, Supplier<T> query, Function<T, MailboxSummary> summarize) {
+        loading.merge(playerUUID, 1, Integer::sum);
+        try {
+            T result = null;
+            for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+                result = query.get();
+                if (result == null) {
+                    return null;
+                }
+
+                MailboxSummary loaded = summarize.apply(result);
+                boolean[] changed = new boolean[1];
+                summaries.compute(playerUUID, (uuid, current) -> {
+                    if (changedWhileLoading.remove(uuid)) {
+                        changed[0] = true; // The loaded summary may miss that change
+                        return current;
+                    }
+                    if (current == null) {
+                        return Bukkit.getPlayer(uuid) != null ? loaded : null; // Not if they quit meanwhile
+                    }
+                    return replace ? loaded : current;
+                });
+                if (!changed[0]) {
+                    return result;
+                }
+                plugin.getMetricsManager().increment("mailbox_summary.load_retries");
+            }
+            return result;
+        } finally {
+            loading.computeIfPresent(playerUUID, (uuid, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Applies a change to a tracked summary, and flags it for a load that is running.
+     */
+    private void applyChange(UUID playerUUID, UnaryOperator<MailboxSummary> change) {
+        summaries.compute(playerUUID, (uuid, summary) -> {
+            if (loading.containsKey(uuid)) {
+                changedWhileLoading.add(uuid);
+            }
+            return summary != null ? change.apply(summary) : null;
+        });
+    }
+
+    /**
+     * Tells a player what is waiting in their mailbox.
+     */
+    private void sendNotification(Player player, MailboxSummary summary) {
+        plugin.getMessageManager().sendMessage(player, "mailbox_join_notification",
+                "{entries}", String.valueOf(summary.getEntryCount()),
+                "{items}", String.valueOf(summary.getItemEntries()),
+                "${amount}", plugin.getMessageManager().formatPrice(summary.getMoneyTotal()));
+    }
+
+    /**
+     * Gets the cached summary of a player's mailbox.
+     *
+     * @param playerUUID The UUID of the player.
+     * @return The summary, or null if it is not loaded.
+     */
+    public MailboxSummary getSummary(UUID playerUUID) {
+        return summaries.get(playerUUID);
+    }
+
+    /**
+     * Gets the cached summary of a player's mailbox, loading it on the I/O executor if needed.
+     *
+     * @param playerUUID The UUID of the player.
+     * @return A future completed with the summary, or with null if it could not be loaded.
+     */
+    public CompletableFuture<MailboxSummary> getOrLoadAsync(UUID playerUUID) {
+        MailboxSummary cached = summaries.get(playerUUID);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return plugin.getIoExecutor().supply(() -> {
+            return load(playerUUID, false);
+        });
+    }
+
+    /**
+     * Loads a player's whole mailbox and replaces their summary with one built from it, with the
+     * same guard as every other load: if the summary changes while the mailbox is read, it is read
+     * again. Blocking, only called off the main thread.
+     *
+     * @param playerUUID The UUID of the player.
+     * @return All mailbox items of the player.
+     */
+    public List<MailboxItem> loadMailbox(UUID playerUUID) {
+        return load(playerUUID, true, () -> plugin.getAuctionManager().getPlayerMailboxItems(playerUUID), MailboxSummary::of);
+    }
+
+    /**
+     * Records a new mailbox entry. Call only after the insert was committed.
+     *
+     * @param playerUUID The UUID of the mailbox owner.
+     * @param type The type of the new entry.
+     * @param moneyAmount The amount of money, 0 for items.
+     */
+    public void recordAdded(UUID playerUUID, MailboxItem.Type type, long moneyAmount) {
+        if (type == MailboxItem.Type.MONEY) {
+            applyChange(playerUUID, summary -> summary.plus(1, moneyAmount, 0));
+        } else {
+            applyChange(playerUUID, summary -> summary.plus(0, 0, 1));
+        }
+    }
+
+    /**
+     * Records claimed mailbox entries. Call only after the delete was committed.
+     *
+     * @param playerUUID The UUID of the mailbox owner.
+     * @param moneyEntries The number of money entries claimed.
+     * @param moneyAmount The total money claimed.
+     * @param itemEntries The number of item entries claimed.
+     */
+    public void recordClaimed(UUID playerUUID, int moneyEntries, long moneyAmount, int itemEntries) {
+        applyChange(playerUUID, summary -> summary.plus(-moneyEntries, -moneyAmount, -itemEntries));
+    }
+
+    /**
+     * Stops tracking a player, e.g. when they quit.
+     *
+     * @param playerUUID The UUID of the player.
+     */
+    public void remove(UUID playerUUID) {
+        summaries.remove(playerUUID);
+    }
+}
@@ -1,22 +1,64 @@
 package pl.dsocraft.auctionhouse.managers;
 
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
-import org.bukkit.entity.Player;
+import org.bukkit.configuration.ConfigurationSection;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.utils.MessageTemplate;
+import pl.dsocraft.auctionhouse.utils.PriceCodec;
+
+import java.text.DecimalFormatSymbols;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Manages sending messages to players with proper formatting.
+ * <p>
+ * Messages are compiled into {@link MessageTemplate}s when the config is loaded, so sending one
+ * does not look up the config, translate color codes or chain replaces. Messages without
+ * placeholders are also kept as ready components.
  */
 public class MessageManager {
 
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacySection();
+
     private final DSOAuctionHouse plugin;
-    private final String prefix;
+    private final char decimalSeparator;
+    private volatile Messages messages;
 
     public MessageManager(DSOAuctionHouse plugin) {
         this.plugin = plugin;
-        this.prefix = ChatColor.translateAlternateColorCodes('&', 
+        // Same separator String.format used for prices
+        this.decimalSeparator = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+        reload();
+    }
+
+    /**
+     * Compiles the messages of the current config. Called at startup and after a config reload.
+     */
+    public void reload() {
+        String prefix = ChatColor.translateAlternateColorCodes('&',
                 plugin.getConfig().getString("messages.prefix", "&7[&6AH&7] "));
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        Map<String, Component> components = new HashMap<>();
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("messages");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                if (!section.isString(key)) {
+                    continue;
+                }
+                MessageTemplate template = MessageTemplate.compile(
+                        ChatColor.translateAlternateColorCodes('&', section.getString(key, "")));
+                templates.put(key, template);
+                if (template.isConstant() && !template.isEmpty()) {
+                    components.put(key, SERIALIZER.deserialize(prefix + template.getText()));
+                }
+            }
+        }
+        this.messages = new Messages(prefix, templates, components);
     }
 
     /**
@@ -26,9 +68,15 @@ public class MessageManager {
      * @param messageKey The key of the message in the config.
      */
     public void sendMessage(CommandSender sender, String messageKey) {
-        String message = getMessageFromConfig(messageKey);
-        if (!message.isEmpty()) {
-            sender.sendMessage(prefix + message);
+        Messages current = messages;
+        Component component = current.components.get(messageKey);
+        if (component != null) {
+            sender.sendMessage(component);
+            return;
+        }
+        MessageTemplate template = current.template(messageKey);
+        if (!template.isEmpty()) {
+            sender.sendMessage(template.render(current.prefix));
         }
     }
 
@@ -40,11 +88,17 @@ public class MessageManager {
      * @param replacements An array of key-value pairs for replacements (e.g., "{player}", "Steve").
      */
     public void sendMessage(CommandSender sender, String messageKey, String... replacements) {
-        String message = getMessageFromConfig(messageKey);
-        if (!message.isEmpty()) {
-            message = applyReplacements(message, replacements);
-            sender.sendMessage(prefix + message);
+        Messages current = messages;
+        MessageTemplate template = current.template(messageKey);
+        if (template.isEmpty()) {
+            return;
+        }
+        if (replacements.length % 2 != 0) {
+            plugin.getLogger().warning("Invalid number of replacement parameters for message: " + messageKey);
+            sender.sendMessage(current.prefix + template.getText());
+            return;
         }
+        sender.sendMessage(template.render(current.prefix, replacements));
     }
 
     /**
@@ -55,57 +109,28 @@ public class MessageManager {
      */
     public void sendRawMessage(CommandSender sender, String message) {
         if (message != null && !message.isEmpty()) {
-            sender.sendMessage(prefix + ChatColor.translateAlternateColorCodes('&', message));
+            sender.sendMessage(messages.prefix + ChatColor.translateAlternateColorCodes('&', message));
         }
     }
 
     /**
-     * Gets a message from the config and translates color codes.
+     * Gets a message from the config with its color codes translated.
      *
      * @param messageKey The key of the message in the config.
      * @return The formatted message.
      */
     public String getMessageFromConfig(String messageKey) {
-        String message = plugin.getConfig().getString("messages." + messageKey, "");
-        return ChatColor.translateAlternateColorCodes('&', message);
-    }
-
-    /**
-     * Applies replacements to a message.
-     *
-     * @param message The message to apply replacements to.
-     * @param replacements An array of key-value pairs for replacements.
-     * @return The message with replacements applied.
-     */
-    private String applyReplacements(String message, String... replacements) {
-        if (replacements.length % 2 != 0) {
-            plugin.getLogger().warning("Invalid number of replacement parameters for message: " + message);
-            return message;
-        }
-
-        String result = message;
-        for (int i = 0; i < replacements.length; i += 2) {
-            result = result.replace(replacements[i], replacements[i + 1]);
-        }
-        return result;
+        return messages.template(messageKey).getText();
     }
 
     /**
-     * Formats a price for display.
+     * Formats a price for display, e.g. 1500 as "1.50k".
      *
      * @param price The price to format.
      * @return The formatted price.
      */
     public String formatPrice(long price) {
-        if (price >= 1_000_000_000) {
-            return String.format("%.2fb", price / 1_000_000_000.0);
-        } else if (price >= 1_000_000) {
-            return String.format("%.2fm", price / 1_000_000.0);
-        } else if (price >= 1_000) {
-            return String.format("%.2fk", price / 1_000.0);
-        } else {
-            return String.valueOf(price);
-        }
+        return PriceCodec.format(price, decimalSeparator);
     }
 
     /**
@@ -114,6 +139,25 @@ public class MessageManager {
      * @return The prefix.
      */
     public String getPrefix() {
-        return prefix;
+        return messages.prefix;
+    }
+
+    /**
+     * The compiled messages of one config load.
+     */
+    private static class Messages {
+        private final String prefix;
+        private final Map<String, MessageTemplate> templates;
+        private final Map<String, Component> components; // Prefixed messages without placeholders
+
+        Messages(String prefix, Map<String, MessageTemplate> templates, Map<String, Component> components) {
+            this.prefix = prefix;
+            this.templates = templates;
+            this.components = components;
+        }
+
+        MessageTemplate template(String messageKey) {
+            return templates.getOrDefault(messageKey, MessageTemplate.EMPTY);
+        }
     }
-}
\ No newline at end of file
+}
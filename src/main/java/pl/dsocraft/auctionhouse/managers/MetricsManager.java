@@ -0,0 +1,126 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects lightweight runtime metrics (counters, gauges and timers) for the auction house.
+ * All methods are thread-safe and can be called from async tasks.
+ */
+public class MetricsManager {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Increments a counter by one.
+     *
+     * @param name The name of the counter.
+     */
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Adds a value to a counter.
+     *
+     * @param name The name of the counter.
+     * @param delta The value to add.
+     */
+    public void add(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Sets the current value of a gauge.
+     *
+     * @param name The name of the gauge.
+     * @param value The new value.
+     */
+    public void setGauge(String name, long value) {
+        gauges.computeIfAbsent(name, k -> new AtomicLong()).set(value);
+    }
+
+    /**
+     * Records a single timed operation.
+     *
+     * @param name The name of the timer.
+     * @param nanos The duration of the operation in nanoseconds.
+     */
+    public void recordTime(String name, long nanos) {
+        timers.computeIfAbsent(name, k -> new Timer()).record(nanos);
+    }
+
+    /**
+     * Gets the current value of a counter.
+     *
+     * @param name The name of the counter.
+     * @return The counter value, or 0 if the counter does not exist.
+     */
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * Gets the current value of a gauge.
+     *
+     * @param name The name of the gauge.
+     * @return The gauge value, or 0 if the gauge does not exist.
+     */
+    public long getGauge(String name) {
+        AtomicLong gauge = gauges.get(name);
+        return gauge != null ? gauge.get() : 0;
+    }
+
+    /**
+     * Builds a sorted, human-readable snapshot of all metrics.
+     *
+     * @param filter Only metrics whose name starts with this prefix are included, or null for all.
+     * @return One line per metric.
+     */
+    public List<String> snapshot(String filter) {
+        Map<String, String> lines = new TreeMap<>();
+
+        counters.forEach((name, counter) -> lines.put(name, String.valueOf(counter.sum())));
+        gauges.forEach((name, gauge) -> lines.put(name, String.valueOf(gauge.get())));
+        timers.forEach((name, timer) -> lines.put(name, timer.describe()));
+
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, String> entry : lines.entrySet()) {
+            if (filter == null || entry.getKey().startsWith(filter)) {
+                result.add(entry.getKey() + " = " + entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Simple timer keeping count, total and maximum duration.
+     */
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        String describe() {
+            long n = count.sum();
+            double avgMillis = n > 0 ? totalNanos.sum() / (double) n / 1_000_000.0 : 0;
+            return n + " calls, avg " + String.format("%.2f", avgMillis) + "ms, max "
+                    + String.format("%.2f", maxNanos.get() / 1_000_000.0) + "ms";
+        }
+    }
+}
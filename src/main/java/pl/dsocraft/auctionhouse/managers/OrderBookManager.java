@@ -0,0 +1,889 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.AuctionItem;
+import pl.dsocraft.auctionhouse.database.BuyOrder;
+import pl.dsocraft.auctionhouse.database.DatabaseManager;
+import pl.dsocraft.auctionhouse.database.EconomyOutboxEntry;
+import pl.dsocraft.auctionhouse.database.MailboxItem;
+import pl.dsocraft.auctionhouse.utils.ItemKeys;
+import pl.dsocraft.auctionhouse.utils.ItemSerializer;
+import pl.dsocraft.auctionhouse.utils.OrderHeap;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the buy order books and matches buy orders against listings.
+ * The matching thread also maintains the {@link ListingIndexManager}.
+ * <p>
+ * Every item key has a book with a bid heap (buy orders) and an ask heap (listings), both in
+ * price-time priority. All books are owned by a single matching thread: changes are queued as
+ * events, the thread applies every queued event in memory, and then writes all resulting fills
+ * and cancellations in one transaction with batched statements. A fill always executes at the
+ * listing's price; the difference to the buyer's maximum is refunded from escrow.
+ * <p>
+ * The database stays the source of truth. Direct purchases and cancellations may race with a
+ * pending fill, so every write is guarded; a fill that loses the race is undone in memory, the
+ * listing is re-read and the book is matched again.
+ */
+public class OrderBookManager {
+
+    private static final int MAX_EVENTS_PER_PASS = 1000;
+    private static final int MAX_FLUSH_ROUNDS = 5;
+    private static final int LOAD_CHUNK_SIZE = 500;
+
+    private final DSOAuctionHouse plugin;
+    private final DatabaseManager databaseManager;
+    private final ListingIndexManager listingIndex;
+    private final BlockingQueue<Runnable> events = new LinkedBlockingQueue<>();
+    private final Thread matchingThread;
+    private volatile boolean running;
+    private volatile boolean ready;
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+
+    // Owned by the matching thread
+    private final Map<String, Book> books = new HashMap<>();
+    private final Map<Integer, Ask> asks = new HashMap<>();
+    private final List<Fill> pendingFills = new ArrayList<>();
+    private final List<BuyOrder> pendingCancels = new ArrayList<>();
+
+    // Read from any thread, only changed by the matching thread after a successful write
+    private final Map<Integer, BuyOrder> openOrders = new ConcurrentHashMap<>();
+
+    public OrderBookManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+        this.databaseManager = plugin.getDatabaseManager();
+        this.listingIndex = plugin.getListingIndexManager();
+        this.matchingThread = new Thread(this::runMatchingLoop, "DSOAuctionHouse-Matcher");
+        this.matchingThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the matching thread and loads the books from the database.
+     */
+    public void start() {
+        running = true;
+        events.add(() -> {
+            try {
+                loadBooks();
+            } finally {
+                loaded.complete(null); // Also if loading failed, buy orders then stay disabled
+            }
+        });
+        matchingThread.start();
+    }
+
+    /**
+     * Gets a future completed once the books and the listing index were loaded, or failed to load.
+     * Check {@link #isReady()} for which one it was.
+     */
+    public CompletableFuture<Void> whenLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Stops the matching thread after the queued events were applied and written.
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        events.add(() -> running = false);
+        try {
+            matchingThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether the books were loaded and orders can be placed.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Public API, called from the main thread
+    // ------------------------------------------------------------------------------------------
+
+    /**
+     * Places a buy order. The money for the whole order is taken into escrow right away, through
+     * the economy outbox before the order is stored, so the order only exists if it was paid for.
+     *
+     * @param player The buyer.
+     * @param itemKey The item key to buy.
+     * @param itemName The display name of the item.
+     * @param quantity The maximum number of items to buy.
+     * @param unitPrice The maximum price per item.
+     * @return The new order, or null if it was not placed (the player has been told why).
+     */
+    public BuyOrder placeOrder(Player player, String itemKey, String itemName, int quantity, long unitPrice) {
+        if (!ready) {
+            plugin.getMessageManager().sendMessage(player, "buy_orders_loading");
+            return null;
+        }
+        if (quantity <= 0 || unitPrice <= 0) {
+            plugin.getMessageManager().sendMessage(player, "must_be_positive_amount");
+            return null;
+        }
+
+        int maxOrders = plugin.getSettings().getMaxBuyOrdersPerPlayer();
+        if (getOpenOrders(player.getUniqueId()).size() >= maxOrders) {
+            plugin.getMessageManager().sendMessage(player, "buy_order_limit_reached", "{limit}", String.valueOf(maxOrders));
+            return null;
+        }
+
+        long escrow;
+        try {
+            escrow = Math.multiplyExact(unitPrice, quantity);
+        } catch (ArithmeticException e) {
+            plugin.getMessageManager().sendMessage(player, "invalid_price_format");
+            return null;
+        }
+
+        if (!DSOAuctionHouse.getEconomy().has(player, escrow)) {
+            plugin.getMessageManager().sendMessage(player, "not_enough_money");
+            return null;
+        }
+
+        // Take the escrow first, on its own, so no row locks are held while the economy plugin works
+        EconomyOutboxManager outbox = plugin.getEconomyOutboxManager();
+        int paymentId = outbox.withdraw(player, escrow, "Escrow for a buy order of " + ChatColor.stripColor(itemName),
+                EconomyOutboxEntry.Purpose.ESCROW);
+        if (paymentId == 0) {
+            plugin.getMessageManager().sendMessage(player, "not_enough_money");
+            return null;
+        }
+        if (paymentId < 0) {
+            plugin.getMessageManager().sendMessage(player, "error_placing_buy_order");
+            return null;
+        }
+
+        // The order commits together with the escrow being marked applied; if it does not, the escrow is refunded
+        BuyOrder order;
+        try (Connection conn = databaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                order = insertOrder(conn, player, itemKey, itemName, quantity, unitPrice);
+                if (!databaseManager.markEconomyOutboxEntryApplied(conn, paymentId)) {
+                    throw new SQLException("Escrow " + paymentId + " is no longer being applied");
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            outbox.refund(paymentId, player.getUniqueId(), escrow, EconomyOutboxEntry.Purpose.ESCROW);
+            plugin.getLogger().log(Level.SEVERE, "Error placing buy order", e);
+            plugin.getMessageManager().sendMessage(player, "error_placing_buy_order");
+            return null;
+        }
+
+        openOrders.put(order.getId(), order);
+        events.add(() -> {
+            book(order.getItemKey()).bids.add(order.getId(), order.getUnitPrice(), order.getCreatedAt(), order.getQuantityRemaining());
+            matchBook(order.getItemKey());
+        });
+
+        plugin.getMessageManager().sendMessage(player, "buy_order_placed",
+                "{id}", String.valueOf(order.getId()),
+                "{quantity}", String.valueOf(quantity),
+                "{item_name}", itemName,
+                "${price}", plugin.getMessageManager().formatPrice(unitPrice),
+                "${escrow}", plugin.getMessageManager().formatPrice(escrow));
+        return order;
+    }
+
+    /**
+     * Cancels a buy order. The remaining escrow is refunded to the buyer's mailbox.
+     *
+     * @param player The buyer.
+     * @param orderId The ID of the order.
+     * @return true if the cancellation was queued.
+     */
+    public boolean cancelOrder(Player player, int orderId) {
+        BuyOrder order = openOrders.get(orderId);
+        if (order == null || !order.getBuyerUUID().equals(player.getUniqueId())) {
+            plugin.getMessageManager().sendMessage(player, "buy_order_not_found", "{id}", String.valueOf(orderId));
+            return false;
+        }
+
+        events.add(() -> {
+            Book book = books.get(order.getItemKey());
+            if (book == null || !book.bids.remove(order.getId())) {
+                return; // Filled in the meantime
+            }
+            pendingCancels.add(order);
+        });
+        return true;
+    }
+
+    /**
+     * Gets the open buy orders of a player.
+     *
+     * @param playerUUID The UUID of the player.
+     * @return The open orders, oldest first.
+     */
+    public List<BuyOrder> getOpenOrders(UUID playerUUID) {
+        return openOrders.values().stream()
+                .filter(order -> order.getBuyerUUID().equals(playerUUID) && order.getQuantityRemaining() > 0)
+                .sorted(Comparator.comparingInt(BuyOrder::getId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds a new listing to the books and the listing index. Call only after the listing was committed.
+     *
+     * @param itemNameLowercase The searchable name of the item, as stored with the listing.
+     * @param itemStack The listed item; its amount is the listed quantity.
+     * @param priceTotal The price of the whole listing.
+     */
+    public void onListingAdded(int listingId, UUID sellerUUID, String sellerName, String itemKey,
+                               String itemNameLowercase, ItemStack itemStack, long priceTotal) {
+        int quantity = itemStack.getAmount();
+        long unitPrice = quantity > 0 ? priceTotal / quantity : priceTotal;
+        if (itemKey == null || unitPrice <= 0 || quantity <= 0) {
+            return;
+        }
+        ItemStack template = itemStack.clone(); // Copied here, the caller's stack belongs to the main thread
+        template.setAmount(1);
+        Ask ask = new Ask(listingId, sellerUUID, sellerName, itemKey, unitPrice, System.currentTimeMillis());
+        events.add(() -> {
+            listingIndex.add(listingId, sellerUUID, sellerName, itemKey, itemNameLowercase, template,
+                    priceTotal, quantity, ask.listedAt);
+            asks.put(listingId, ask);
+            book(itemKey).asks.add(listingId, unitPrice, ask.listedAt, quantity);
+            matchBook(itemKey);
+        });
+    }
+
+    /**
+     * Records a direct purchase from a listing. Call only after the purchase was committed.
+     */
+    public void onListingPurchased(int listingId, int quantity) {
+        events.add(() -> {
+            listingIndex.reduce(listingId, quantity);
+            Ask ask = asks.get(listingId);
+            if (ask == null) {
+                return;
+            }
+            OrderHeap heap = book(ask.itemKey).asks;
+            int remaining = heap.getQuantity(listingId) - quantity;
+            if (remaining > 0) {
+                heap.setQuantity(listingId, remaining);
+            } else {
+                heap.remove(listingId);
+                asks.remove(listingId);
+            }
+        });
+    }
+
+    /**
+     * Removes a cancelled listing from the books. Call only after the cancellation was committed.
+     */
+    public void onListingRemoved(int listingId) {
+        events.add(() -> {
+            listingIndex.remove(listingId);
+            Ask ask = asks.remove(listingId);
+            if (ask != null) {
+                book(ask.itemKey).asks.remove(listingId);
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Matching thread
+    // ------------------------------------------------------------------------------------------
+
+    private void runMatchingLoop() {
+        MetricsManager metrics = plugin.getMetricsManager();
+        List<Runnable> batch = new ArrayList<>();
+
+        while (running) {
+            try {
+                batch.add(events.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            events.drainTo(batch, MAX_EVENTS_PER_PASS - 1);
+
+            long startedAt = System.nanoTime();
+            for (Runnable event : batch) {
+                try {
+                    event.run();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().log(Level.SEVERE, "Error applying a buy order event", e);
+                }
+            }
+            long matchNanos = System.nanoTime() - startedAt;
+            metrics.recordTime("orders.match_pass", matchNanos);
+            metrics.add("orders.events", batch.size());
+            metrics.setGauge("orders.events_per_sec", batch.size() * 1_000_000_000L / Math.max(1, matchNanos));
+            batch.clear();
+
+            flushPending();
+
+            metrics.setGauge("orders.open", openOrders.size());
+            metrics.setGauge("orders.listings", asks.size());
+        }
+    }
+
+    private Book book(String itemKey) {
+        return books.computeIfAbsent(itemKey, k -> new Book());
+    }
+
+    /**
+     * Matches the bids of a book against its asks in price-time priority.
+     * Buyers never fill from their own listings; those asks are skipped for that bid only.
+     */
+    private void matchBook(String itemKey) {
+        Book book = books.get(itemKey);
+        if (book == null) {
+            return;
+        }
+
+        List<long[]> heldBids = new ArrayList<>();
+        List<long[]> heldAsks = new ArrayList<>();
+
+        while (!book.bids.isEmpty() && !book.asks.isEmpty() && book.bids.peekPrice() >= book.asks.peekPrice()) {
+            int bidId = book.bids.peekId();
+            long bidPrice = book.bids.peekPrice();
+            long bidTime = book.bids.peekTime();
+            int bidQuantity = book.bids.peekQuantity();
+            book.bids.poll();
+
+            BuyOrder order = openOrders.get(bidId);
+            if (order == null) {
+                continue;
+            }
+
+            while (bidQuantity > 0 && !book.asks.isEmpty() && book.asks.peekPrice() <= bidPrice) {
+                int askId = book.asks.peekId();
+                int askQuantity = book.asks.peekQuantity();
+                Ask ask = asks.get(askId);
+
+                if (ask == null || ask.sellerUUID.equals(order.getBuyerUUID())) {
+                    // Own listing, keep it for the next bid
+                    heldAsks.add(new long[]{askId, book.asks.peekPrice(), book.asks.peekTime(), askQuantity});
+                    book.asks.poll();
+                    continue;
+                }
+
+                int quantity = Math.min(bidQuantity, askQuantity);
+                pendingFills.add(new Fill(order, ask, quantity));
+                bidQuantity -= quantity;
+
+                if (quantity == askQuantity) {
+                    book.asks.poll();
+                    asks.remove(askId);
+                } else {
+                    book.asks.setPeekQuantity(askQuantity - quantity);
+                }
+            }
+
+            for (long[] held : heldAsks) {
+                book.asks.add((int) held[0], held[1], held[2], (int) held[3]);
+            }
+            heldAsks.clear();
+
+            order.setQuantityRemaining(bidQuantity);
+            if (bidQuantity > 0) {
+                heldBids.add(new long[]{bidId, bidPrice, bidTime, bidQuantity});
+            }
+        }
+
+        for (long[] held : heldBids) {
+            book.bids.add((int) held[0], held[1], held[2], (int) held[3]);
+        }
+    }
+
+    /**
+     * Writes the pending fills and cancellations, first as one batch and, if that fails,
+     * one by one so a single conflicting fill does not hold back the others.
+     */
+    private void flushPending() {
+        for (int round = 0; round < MAX_FLUSH_ROUNDS && (!pendingFills.isEmpty() || !pendingCancels.isEmpty()); round++) {
+            List<Fill> fills = new ArrayList<>(pendingFills);
+            List<BuyOrder> cancels = new ArrayList<>(pendingCancels);
+            pendingFills.clear();
+            pendingCancels.clear();
+
+            long startedAt = System.nanoTime();
+            if (writeBatch(fills, cancels)) {
+                afterCommit(fills, cancels);
+            } else {
+                plugin.getMetricsManager().increment("orders.batch_conflicts");
+                Set<Integer> cancelledIds = cancels.stream().map(BuyOrder::getId).collect(Collectors.toSet());
+                Set<String> rematch = new LinkedHashSet<>();
+                for (Fill fill : fills) {
+                    if (writeBatch(Collections.singletonList(fill), Collections.emptyList())) {
+                        afterCommit(Collections.singletonList(fill), Collections.emptyList());
+                    } else if (undoFill(fill, cancelledIds.contains(fill.order.getId()))) {
+                        rematch.add(fill.ask.itemKey);
+                    }
+                }
+                for (BuyOrder cancel : cancels) {
+                    if (writeBatch(Collections.emptyList(), Collections.singletonList(cancel))) {
+                        afterCommit(Collections.emptyList(), Collections.singletonList(cancel));
+                    } else {
+                        // Keep the order open, the player can try again
+                        OrderHeap bids = book(cancel.getItemKey()).bids;
+                        if (!bids.setQuantity(cancel.getId(), cancel.getQuantityRemaining())) {
+                            bids.add(cancel.getId(), cancel.getUnitPrice(), cancel.getCreatedAt(), cancel.getQuantityRemaining());
+                        }
+                    }
+                }
+                rematch.forEach(this::matchBook);
+            }
+            plugin.getMetricsManager().recordTime("orders.flush", System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Writes fills and cancellations in one transaction.
+     *
+     * @return true if everything was committed, false if nothing was.
+     */
+    private boolean writeBatch(List<Fill> fills, List<BuyOrder> cancels) {
+        Map<Integer, ItemStack> itemStacks = Collections.emptyMap();
+        if (!fills.isEmpty()) {
+            List<Integer> listingIds = fills.stream().map(fill -> fill.ask.listingId).distinct().collect(Collectors.toList());
+            itemStacks = databaseManager.getItemStacks("active_auctions", listingIds);
+        }
+
+        try (Connection conn = databaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement updateListing = conn.prepareStatement(
+                         "UPDATE active_auctions SET quantity_remaining = quantity_remaining - ?, version = version + 1 " +
+                         "WHERE id = ? AND quantity_remaining >= ?");
+                 PreparedStatement updateOrder = conn.prepareStatement(
+                         "UPDATE buy_orders SET quantity_remaining = quantity_remaining - ?, " +
+                         "status = IF(quantity_remaining = 0, 'FILLED', status) " +
+                         "WHERE id = ? AND status = 'OPEN' AND quantity_remaining >= ?");
+                 PreparedStatement cancelOrder = conn.prepareStatement(
+                         "UPDATE buy_orders SET status = 'CANCELLED', quantity_remaining = 0 " +
+                         "WHERE id = ? AND status = 'OPEN' AND quantity_remaining = ?");
+                 PreparedStatement insertMailbox = conn.prepareStatement(
+                         "INSERT INTO player_mailbox (player_uuid, type, item_serialized, money_amount, source_info) " +
+                         "VALUES (?, ?, ?, ?, ?)");
+                 PreparedStatement deleteSoldOut = conn.prepareStatement(
+                         "DELETE FROM active_auctions WHERE id = ? AND quantity_remaining <= 0")) {
+
+                Set<Integer> touchedListings = new HashSet<>();
+                for (Fill fill : fills) {
+                    ItemStack template = itemStacks.get(fill.ask.listingId);
+                    if (template == null) {
+                        throw new SQLException("Listing " + fill.ask.listingId + " no longer exists");
+                    }
+                    ItemStack bought = template.clone();
+                    bought.setAmount(fill.quantity);
+
+                    updateListing.setInt(1, fill.quantity);
+                    updateListing.setInt(2, fill.ask.listingId);
+                    updateListing.setInt(3, fill.quantity);
+                    updateListing.addBatch();
+
+                    updateOrder.setInt(1, fill.quantity);
+                    updateOrder.setInt(2, fill.order.getId());
+                    updateOrder.setInt(3, fill.quantity);
+                    updateOrder.addBatch();
+
+                    addMailboxRow(insertMailbox, fill.order.getBuyerUUID(), MailboxItem.Type.ITEM, bought, 0,
+                            "Buy order #" + fill.order.getId() + " from " + fill.ask.sellerName);
+                    addMailboxRow(insertMailbox, fill.ask.sellerUUID, MailboxItem.Type.MONEY, null, fill.getSellerAmount(),
+                            "Sold: " + fill.order.getItemName() + " x" + fill.quantity + " to a buy order");
+                    if (fill.getRefund() > 0) {
+                        addMailboxRow(insertMailbox, fill.order.getBuyerUUID(), MailboxItem.Type.MONEY, null, fill.getRefund(),
+                                "Buy order #" + fill.order.getId() + " price difference");
+                    }
+
+                    if (touchedListings.add(fill.ask.listingId)) {
+                        deleteSoldOut.setInt(1, fill.ask.listingId);
+                        deleteSoldOut.addBatch();
+                    }
+                }
+
+                for (BuyOrder order : cancels) {
+                    cancelOrder.setInt(1, order.getId());
+                    cancelOrder.setInt(2, order.getQuantityRemaining());
+                    cancelOrder.addBatch();
+
+                    addMailboxRow(insertMailbox, order.getBuyerUUID(), MailboxItem.Type.MONEY, null, order.getEscrowRemaining(),
+                            "Cancelled buy order #" + order.getId());
+                }
+
+                // Every guarded statement must hit exactly one row, otherwise a fill lost a race
+                if (!fills.isEmpty()) {
+                    requireAllApplied(updateListing.executeBatch());
+                    requireAllApplied(updateOrder.executeBatch());
+                    deleteSoldOut.executeBatch();
+                }
+                if (!cancels.isEmpty()) {
+                    requireAllApplied(cancelOrder.executeBatch());
+                }
+                insertMailbox.executeBatch();
+
+                conn.commit();
+                return true;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                if (fills.size() + cancels.size() == 1) {
+                    plugin.getLogger().log(Level.FINE, "Buy order write was rejected", e);
+                }
+                return false;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error writing buy order fills", e);
+            return false;
+        }
+    }
+
+    private void addMailboxRow(PreparedStatement stmt, UUID playerUUID, MailboxItem.Type type, ItemStack itemStack,
+                               long moneyAmount, String sourceInfo) throws SQLException {
+        stmt.setString(1, playerUUID.toString());
+        stmt.setString(2, type.name());
+        stmt.setBytes(3, type == MailboxItem.Type.ITEM ? ItemSerializer.serializeItemStack(itemStack) : null);
+        stmt.setLong(4, type == MailboxItem.Type.MONEY ? moneyAmount : 0);
+        stmt.setString(5, ChatColor.stripColor(sourceInfo).replaceAll("[^\\p{ASCII}]", ""));
+        stmt.addBatch();
+    }
+
+    private void requireAllApplied(int[] counts) throws SQLException {
+        for (int count : counts) {
+            if (count != 1) {
+                throw new SQLException("Guarded update did not apply");
+            }
+        }
+    }
+
+    /**
+     * Reverts a fill that could not be written. The order gets its quantity back and the listing
+     * is re-read from the database, since it was most likely bought or cancelled directly.
+     *
+     * @param fill The fill that was not written.
+     * @param cancelling Whether the order is being cancelled, so it must not go back into the book.
+     * @return true if the book should be matched again.
+     */
+    private boolean undoFill(Fill fill, boolean cancelling) {
+        BuyOrder order = fill.order;
+        Book book = book(order.getItemKey());
+
+        int restored = order.getQuantityRemaining() + fill.quantity;
+        order.setQuantityRemaining(restored);
+        if (!cancelling && !book.bids.setQuantity(order.getId(), restored)) {
+            book.bids.add(order.getId(), order.getUnitPrice(), order.getCreatedAt(), restored);
+        }
+
+        Integer remaining = loadListingRemaining(fill.ask.listingId);
+        if (remaining == null) {
+            // The database is unavailable: put the listing back as it was and retry with the next event
+            if (!book.asks.setQuantity(fill.ask.listingId, book.asks.getQuantity(fill.ask.listingId) + fill.quantity)) {
+                asks.put(fill.ask.listingId, fill.ask);
+                book.asks.add(fill.ask.listingId, fill.ask.unitPrice, fill.ask.listedAt, fill.quantity);
+            }
+            return false;
+        }
+
+        book.asks.remove(fill.ask.listingId);
+        if (remaining > 0) {
+            asks.put(fill.ask.listingId, fill.ask);
+            book.asks.add(fill.ask.listingId, fill.ask.unitPrice, fill.ask.listedAt, remaining);
+        } else {
+            asks.remove(fill.ask.listingId);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the remaining quantity of a listing.
+     *
+     * @return The remaining quantity (0 if the listing is gone), or null on a database error.
+     */
+    private Integer loadListingRemaining(int listingId) {
+        try (Connection conn = databaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT quantity_remaining FROM active_auctions WHERE id = ?")) {
+            stmt.setInt(1, listingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Error reading listing " + listingId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Publishes committed fills and cancellations: updates the listing index, forgets finished
+     * orders and, on the main thread, updates mailbox summaries and price statistics and notifies
+     * online players.
+     */
+    private void afterCommit(List<Fill> fills, List<BuyOrder> cancels) {
+        plugin.getMetricsManager().add("orders.fills", fills.size());
+        for (Fill fill : fills) {
+            listingIndex.reduce(fill.ask.listingId, fill.quantity);
+            if (fill.order.getQuantityRemaining() == 0) {
+                openOrders.remove(fill.order.getId());
+            }
+        }
+        for (BuyOrder order : cancels) {
+            openOrders.remove(order.getId());
+        }
+
+        if (!plugin.isEnabled()) {
+            return; // Shutting down, players get their mailbox counters on the next join
+        }
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            MailboxSummaryManager summaries = plugin.getMailboxSummaryManager();
+            MessageManager messages = plugin.getMessageManager();
+
+            for (Fill fill : fills) {
+                BuyOrder order = fill.order;
+                summaries.recordAdded(order.getBuyerUUID(), MailboxItem.Type.ITEM, 0);
+                summaries.recordAdded(fill.ask.sellerUUID, MailboxItem.Type.MONEY, fill.getSellerAmount());
+                if (fill.getRefund() > 0) {
+                    summaries.recordAdded(order.getBuyerUUID(), MailboxItem.Type.MONEY, fill.getRefund());
+                }
+                plugin.getPriceStatsManager().recordSale(order.getItemKey(), order.getItemName(), fill.ask.unitPrice);
+
+                Player buyer = Bukkit.getPlayer(order.getBuyerUUID());
+                if (buyer != null && buyer.isOnline()) {
+                    messages.sendMessage(buyer, "buy_order_filled",
+                            "{id}", String.valueOf(order.getId()),
+                            "{quantity}", String.valueOf(fill.quantity),
+                            "{item_name}", order.getItemName(),
+                            "${price}", messages.formatPrice(fill.getSellerAmount()));
+                }
+                Player seller = Bukkit.getPlayer(fill.ask.sellerUUID);
+                if (seller != null && seller.isOnline()) {
+                    messages.sendMessage(seller, "item_sold",
+                            "{item_name}", order.getItemName() + " x" + fill.quantity,
+                            "${price}", messages.formatPrice(fill.getSellerAmount()));
+                }
+            }
+
+            for (BuyOrder order : cancels) {
+                summaries.recordAdded(order.getBuyerUUID(), MailboxItem.Type.MONEY, order.getEscrowRemaining());
+                Player buyer = Bukkit.getPlayer(order.getBuyerUUID());
+                if (buyer != null && buyer.isOnline()) {
+                    messages.sendMessage(buyer, "buy_order_cancelled",
+                            "{id}", String.valueOf(order.getId()),
+                            "${amount}", messages.formatPrice(order.getEscrowRemaining()));
+                }
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Persistence
+    // ------------------------------------------------------------------------------------------
+
+    private BuyOrder insertOrder(Connection conn, Player player, String itemKey, String itemName, int quantity,
+                                 long unitPrice) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO buy_orders (buyer_uuid, buyer_name, item_key, item_name, unit_price, " +
+                     "quantity_total, quantity_remaining) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                     PreparedStatement.RETURN_GENERATED_KEYS)) {
+
+            stmt.setString(1, player.getUniqueId().toString());
+            stmt.setString(2, player.getName());
+            stmt.setString(3, itemKey);
+            stmt.setString(4, ChatColor.stripColor(itemName));
+            stmt.setLong(5, unitPrice);
+            stmt.setInt(6, quantity);
+            stmt.setInt(7, quantity);
+            stmt.executeUpdate();
+
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No ID generated for the buy order");
+                }
+                return new BuyOrder(keys.getInt(1), player.getUniqueId(), player.getName(), itemKey,
+                        ChatColor.stripColor(itemName), unitPrice, quantity, quantity, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Loads the open orders and all active listings, then matches every book once.
+     * Runs as the first event on the matching thread.
+     */
+    private void loadBooks() {
+        long startedAt = System.nanoTime();
+
+        try (Connection conn = databaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, buyer_uuid, buyer_name, item_key, item_name, unit_price, quantity_total, " +
+                     "quantity_remaining, created_at FROM buy_orders WHERE status = 'OPEN' AND quantity_remaining > 0")) {
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    BuyOrder order = new BuyOrder(rs.getInt("id"), UUID.fromString(rs.getString("buyer_uuid")),
+                            rs.getString("buyer_name"), rs.getString("item_key"), rs.getString("item_name"),
+                            rs.getLong("unit_price"), rs.getInt("quantity_total"), rs.getInt("quantity_remaining"),
+                            rs.getTimestamp("created_at").getTime());
+                    openOrders.put(order.getId(), order);
+                    if (!ItemKeys.isCurrent(order.getItemKey())) {
+                        // Keyed with an older hash that no item matches anymore; the order stores no
+                        // item to build the key again from, so it is cancelled and its escrow returned
+                        pendingCancels.add(order);
+                        continue;
+                    }
+                    book(order.getItemKey()).bids.add(order.getId(), order.getUnitPrice(),
+                            order.getCreatedAt(), order.getQuantityRemaining());
+                }
+            }
+
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error loading buy orders, buy orders are disabled", e);
+            return;
+        }
+
+        List<AuctionItem> listings = new ArrayList<>();
+        if (!plugin.getAuctionManager().forEachActiveAuction(false, listings::add)) {
+            plugin.getLogger().severe("Error loading listings, buy orders are disabled");
+            return;
+        }
+        backfillItemKeys(listings);
+
+        for (AuctionItem listing : listings) {
+            String itemKey = listing.getItemKey();
+            if (itemKey == null) {
+                continue;
+            }
+            Ask ask = new Ask(listing.getId(), listing.getSellerUUID(), listing.getSellerName(), itemKey,
+                    listing.getPricePerItem(), listing.getListedAt());
+            asks.put(listing.getId(), ask);
+            book(itemKey).asks.add(listing.getId(), ask.unitPrice, ask.listedAt, listing.getQuantityRemaining());
+        }
+
+        listingIndex.load(listings);
+        new ArrayList<>(books.keySet()).forEach(this::matchBook);
+        ready = true;
+
+        plugin.getLogger().info("Loaded " + openOrders.size() + " buy orders and " + asks.size() + " listings in "
+                + (System.nanoTime() - startedAt) / 1_000_000 + " ms.");
+    }
+
+    /**
+     * Computes and stores the item keys of listings made before the column existed, or keyed with
+     * the hash of an older version.
+     */
+    private void backfillItemKeys(List<AuctionItem> listings) {
+        List<AuctionItem> missing = listings.stream()
+                .filter(listing -> !ItemKeys.isCurrent(listing.getItemKey()))
+                .collect(Collectors.toList());
+        missing.forEach(listing -> listing.attachItemKey(null)); // Computed again from the item data
+
+        for (int from = 0; from < missing.size(); from += LOAD_CHUNK_SIZE) {
+            List<AuctionItem> chunk = missing.subList(from, Math.min(missing.size(), from + LOAD_CHUNK_SIZE));
+            plugin.getAuctionManager().loadItemStacks(chunk);
+
+            try (Connection conn = databaseManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("UPDATE active_auctions SET item_key = ? WHERE id = ?")) {
+                for (AuctionItem listing : chunk) {
+                    String itemKey = listing.getItemKey(); // Computed from the item data
+                    if (itemKey != null) {
+                        stmt.setString(1, itemKey);
+                        stmt.setInt(2, listing.getId());
+                        stmt.addBatch();
+                    }
+                    listing.attachItemStack(null); // Only the key is needed
+                }
+                stmt.executeBatch();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.WARNING, "Error storing item keys of older listings", e);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            plugin.getLogger().info("Computed item keys for " + missing.size() + " older listings.");
+        }
+    }
+
+    /**
+     * The bids and asks of one item key.
+     */
+    private static class Book {
+        private final OrderHeap bids = new OrderHeap(true);
+        private final OrderHeap asks = new OrderHeap(false);
+    }
+
+    /**
+     * What the books need to know about a listing besides its heap entry.
+     */
+    private static class Ask {
+        private final int listingId;
+        private final UUID sellerUUID;
+        private final String sellerName;
+        private final String itemKey;
+        private final long unitPrice;
+        private final long listedAt;
+
+        Ask(int listingId, UUID sellerUUID, String sellerName, String itemKey, long unitPrice, long listedAt) {
+            this.listingId = listingId;
+            this.sellerUUID = sellerUUID;
+            this.sellerName = sellerName;
+            this.itemKey = itemKey;
+            this.unitPrice = unitPrice;
+            this.listedAt = listedAt;
+        }
+    }
+
+    /**
+     * A match between a buy order and a listing that still has to be written.
+     */
+    private static class Fill {
+        private final BuyOrder order;
+        private final Ask ask;
+        private final int quantity;
+
+        Fill(BuyOrder order, Ask ask, int quantity) {
+            this.order = order;
+            this.ask = ask;
+            this.quantity = quantity;
+        }
+
+        long getSellerAmount() {
+            return ask.unitPrice * quantity;
+        }
+
+        long getRefund() {
+            return (order.getUnitPrice() - ask.unitPrice) * quantity;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.utils.QuantileEstimator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps incremental market price statistics per item key.
+ * <p>
+ * Every listing and every sale updates the aggregates in O(1). Quantiles are tracked with
+ * streaming estimators, and the number of tracked item keys is capped (least recently
+ * updated keys are dropped first), so memory use stays bounded. Nothing is ever
+ * recomputed from the database.
+ */
+public class PriceStatsManager {
+
+    private final DSOAuctionHouse plugin;
+    private final Map<String, ItemPriceStats> statsByKey;
+
+    public PriceStatsManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+        this.statsByKey = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ItemPriceStats> eldest) {
+                return size() > plugin.getSettings().getPriceStatsMaxItemKeys();
+            }
+        };
+    }
+
+    /**
+     * Records a new listing.
+     *
+     * @param itemKey The item key of the listed item.
+     * @param itemName The display name of the item.
+     * @param unitPrice The asking price per item.
+     */
+    public void recordListing(String itemKey, String itemName, long unitPrice) {
+        if (itemKey == null || unitPrice <= 0) {
+            return;
+        }
+        synchronized (statsByKey) {
+            ItemPriceStats stats = statsByKey.computeIfAbsent(itemKey, k -> new ItemPriceStats());
+            stats.itemName = itemName;
+            stats.listings.add(unitPrice);
+        }
+        plugin.getMetricsManager().increment("price_stats.listings_recorded");
+    }
+
+    /**
+     * Records a completed sale.
+     *
+     * @param itemKey The item key of the sold item.
+     * @param itemName The display name of the item.
+     * @param unitPrice The price paid per item.
+     */
+    public void recordSale(String itemKey, String itemName, long unitPrice) {
+        if (itemKey == null || unitPrice <= 0) {
+            return;
+        }
+        synchronized (statsByKey) {
+            ItemPriceStats stats = statsByKey.computeIfAbsent(itemKey, k -> new ItemPriceStats());
+            stats.itemName = itemName;
+            stats.sales.add(unitPrice);
+        }
+        plugin.getMetricsManager().increment("price_stats.sales_recorded");
+    }
+
+    /**
+     * Gets a snapshot of the statistics for an item key.
+     *
+     * @param itemKey The item key.
+     * @return The snapshot, or null if nothing was recorded for this key.
+     */
+    public Snapshot getStats(String itemKey) {
+        synchronized (statsByKey) {
+            ItemPriceStats stats = statsByKey.get(itemKey);
+            if (stats == null) {
+                return null;
+            }
+            return new Snapshot(stats.itemName, stats.sales.snapshot(), stats.listings.snapshot());
+        }
+    }
+
+    /**
+     * Gets the number of tracked item keys.
+     *
+     * @return The number of item keys.
+     */
+    public int getTrackedKeys() {
+        synchronized (statsByKey) {
+            return statsByKey.size();
+        }
+    }
+
+    /**
+     * Aggregates for one item key.
+     */
+    private static class ItemPriceStats {
+        private String itemName;
+        private final Aggregate sales = new Aggregate();
+        private final Aggregate listings = new Aggregate();
+    }
+
+    /**
+     * Running count, min, mean and quantiles of a stream of prices.
+     */
+    private static class Aggregate {
+        private long count;
+        private long min = Long.MAX_VALUE;
+        private double mean;
+        private final QuantileEstimator median = new QuantileEstimator(0.5);
+        private final QuantileEstimator p90 = new QuantileEstimator(0.9);
+
+        void add(long price) {
+            count++;
+            min = Math.min(min, price);
+            mean += (price - mean) / count; // Running mean, never overflows
+            median.add(price);
+            p90.add(price);
+        }
+
+        PriceSummary snapshot() {
+            if (count == 0) {
+                return null;
+            }
+            return new PriceSummary(count, min, Math.round(mean),
+                    Math.round(median.get()), Math.round(p90.get()));
+        }
+    }
+
+    /**
+     * Immutable view of the statistics of one item key.
+     */
+    public static class Snapshot {
+        private final String itemName;
+        private final PriceSummary sales;
+        private final PriceSummary listings;
+
+        Snapshot(String itemName, PriceSummary sales, PriceSummary listings) {
+            this.itemName = itemName;
+            this.sales = sales;
+            this.listings = listings;
+        }
+
+        public String getItemName() {
+            return itemName;
+        }
+
+        /**
+         * @return The sale statistics, or null if the item was never sold.
+         */
+        public PriceSummary getSales() {
+            return sales;
+        }
+
+        /**
+         * @return The listing statistics, or null if the item was never listed.
+         */
+        public PriceSummary getListings() {
+            return listings;
+        }
+    }
+
+    /**
+     * Immutable summary of a stream of unit prices.
+     */
+    public static class PriceSummary {
+        private final long count;
+        private final long min;
+        private final long mean;
+        private final long median;
+        private final long p90;
+
+        PriceSummary(long count, long min, long mean, long median, long p90) {
+            this.count = count;
+            this.min = min;
+            this.mean = mean;
+            this.median = median;
+            this.p90 = p90;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMean() {
+            return mean;
+        }
+
+        public long getMedian() {
+            return median;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.DatabaseManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the main view's seller lists, keyed by the normalized search term
+ * (the empty term is the unfiltered view).
+ * <p>
+ * A cached list only changes when a listing whose name contains the term is added or removed,
+ * so those are the only changes that invalidate it. Every change advances the catalog version;
+ * a load remembers the version it started at and is only cached if no matching change happened
+ * while it was running. Entries also expire after a while, because ranks and names can change
+ * without any listing changing.
+ */
+public class SearchCacheManager {
+
+    private final DSOAuctionHouse plugin;
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    // Guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> loading = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    public SearchCacheManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets the cached sellers for a term.
+     *
+     * @param term The normalized search term.
+     * @return A copy of the cached list, or null if it is not cached.
+     */
+    public List<DatabaseManager.PlayerAuctionInfo> get(String term) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        long ttlMillis = TimeUnit.SECONDS.toMillis(plugin.getSettings().getSearchCacheTtlSeconds());
+        synchronized (this) {
+            Entry entry = entries.get(term);
+            if (entry != null && System.currentTimeMillis() - entry.cachedAt > ttlMillis) {
+                entries.remove(term);
+                metrics.increment("search_cache.expired");
+                entry = null;
+            }
+
+            if (entry == null) {
+                misses++;
+                metrics.increment("search_cache.misses");
+            } else {
+                hits++;
+                metrics.increment("search_cache.hits");
+            }
+            metrics.setGauge("search_cache.hit_rate_percent", hits * 100 / (hits + misses));
+            return entry != null ? new ArrayList<>(entry.sellers) : null;
+        }
+    }
+
+    /**
+     * Registers a load that is about to query the database.
+     *
+     * @param term The normalized search term.
+     * @return The catalog version the load started at, to pass to {@link #complete}.
+     */
+    public synchronized long begin(String term) {
+        long version = catalogVersion.get();
+        loading.put(term, version);
+        return version;
+    }
+
+    /**
+     * Caches the result of a load, unless a matching listing changed while it was running.
+     *
+     * @param term The normalized search term.
+     * @param version The version returned by {@link #begin}.
+     * @param sellers The sorted sellers.
+     */
+    public synchronized void complete(String term, long version, List<DatabaseManager.PlayerAuctionInfo> sellers) {
+        if (!loading.remove(term, version)) {
+            return; // Invalidated while loading, or a newer load of the same term is running
+        }
+
+        entries.put(term, new Entry(Collections.unmodifiableList(new ArrayList<>(sellers)), System.currentTimeMillis()));
+        int maxEntries = plugin.getSettings().getSearchCacheMaxEntries();
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) { // More than one after the limit was lowered by a reload
+            eldest.next();
+            eldest.remove();
+            plugin.getMetricsManager().increment("search_cache.evictions");
+        }
+        plugin.getMetricsManager().setGauge("search_cache.size", entries.size());
+    }
+
+    /**
+     * Invalidates every cached or loading term that matches a listing which was added or removed.
+     *
+     * @param itemNameLowercase The searchable name of the listing, as stored in item_name_lowercase.
+     */
+    public void onListingChanged(String itemNameLowercase) {
+        String name = itemNameLowercase != null ? itemNameLowercase : "";
+        int invalidated = 0;
+        synchronized (this) {
+            long version = catalogVersion.incrementAndGet();
+            Iterator<String> terms = entries.keySet().iterator();
+            while (terms.hasNext()) {
+                if (name.contains(terms.next())) {
+                    terms.remove();
+                    invalidated++;
+                }
+            }
+            loading.keySet().removeIf(name::contains);
+            plugin.getMetricsManager().setGauge("search_cache.catalog_version", version);
+            plugin.getMetricsManager().setGauge("search_cache.size", entries.size());
+        }
+        if (invalidated > 0) {
+            plugin.getMetricsManager().add("search_cache.invalidations", invalidated);
+        }
+    }
+
+    /**
+     * A cached seller list and when it was cached.
+     */
+    private static class Entry {
+        private final List<DatabaseManager.PlayerAuctionInfo> sellers;
+        private final long cachedAt;
+
+        Entry(List<DatabaseManager.PlayerAuctionInfo> sellers, long cachedAt) {
+            this.sellers = sellers;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+/**
+ * Marks the sell box inventory. Players move their own items in and out of it, so it is
+ * recognized by its holder, not by a title any other plugin or renamed chest could share.
+ */
+public class SellBoxHolder implements InventoryHolder {
+
+    private Inventory inventory;
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Checks whether an inventory is a sell box.
+     *
+     * @param inventory The inventory, may be null.
+     * @return true if it was created by {@link GUIManager#openSellBoxGUI}.
+     */
+    public static boolean isSellBox(Inventory inventory) {
+        return inventory != null && inventory.getHolder() instanceof SellBoxHolder;
+    }
+}
@@ -0,0 +1,128 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.DatabaseManager.KnownPlayerName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Maps player names to UUIDs without asking Mojang, for /checkah.
+ * <p>
+ * Every name a player was seen with is kept, so old names still find a player after a name
+ * change. If two players used the same name, it belongs to the one seen with it last. Names
+ * come from the player_names table and the sellers of active auctions at startup, and from
+ * players joining afterwards; names seen on join are saved in the background.
+ */
+public class SellerDirectoryManager {
+
+    private static final long RETRY_DELAY_TICKS = 60 * 20;
+
+    private final DSOAuctionHouse plugin;
+    private final Map<String, KnownPlayerName> byName = new ConcurrentHashMap<>(); // Lowercase name
+    private final Map<UUID, KnownPlayerName> latestByPlayer = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public SellerDirectoryManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Loads the known names in the background and saves the seller names that were not saved yet.
+     * If that fails, lookups are answered from the names seen on join, and the load is tried once
+     * more a minute later.
+     *
+     * @return A future completed once the names are loaded, or completed exceptionally if that failed.
+     */
+    public CompletableFuture<Void> loadAsync() {
+        return load().whenComplete((ignored, error) -> {
+            ready = true; // Also on failure, so /checkah does not wait forever
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Error loading the player name directory, retrying in a minute", error);
+                Bukkit.getScheduler().runTaskLater(plugin, () -> load().exceptionally(retryError -> {
+                    plugin.getLogger().log(Level.SEVERE, "Error loading the player name directory", retryError);
+                    return null;
+                }), RETRY_DELAY_TICKS);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> load() {
+        return plugin.getIoExecutor().supply(() -> {
+            long startedAt = System.nanoTime();
+            for (KnownPlayerName name : plugin.getDatabaseManager().getSavedPlayerNames()) {
+                record(name);
+            }
+            // Seller names are only saved if they are newer than what the table already knows
+            List<KnownPlayerName> unsaved = new ArrayList<>();
+            for (KnownPlayerName name : plugin.getDatabaseManager().getSellerNames()) {
+                KnownPlayerName known = byName.get(name.getName().toLowerCase());
+                if (record(name) && (known == null || known.getLastSeen() < name.getLastSeen())) {
+                    unsaved.add(name);
+                }
+            }
+            plugin.getDatabaseManager().savePlayerNames(unsaved);
+
+            plugin.getMetricsManager().recordTime("directory.load", System.nanoTime() - startedAt);
+            plugin.getMetricsManager().setGauge("directory.names", byName.size());
+            return null;
+        });
+    }
+
+    /**
+     * Records the name of a player who joined and saves it in the background.
+     *
+     * @param player The player.
+     */
+    public void onJoin(Player player) {
+        KnownPlayerName name = new KnownPlayerName(player.getUniqueId(), player.getName(), System.currentTimeMillis());
+        record(name);
+        plugin.getIoExecutor().supply(() -> {
+            plugin.getDatabaseManager().savePlayerNames(Collections.singletonList(name));
+            return null;
+        });
+    }
+
+    /**
+     * Checks whether the names were loaded.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Finds the player who was last seen with a name.
+     *
+     * @param name The name, case-insensitive. Old names of a player also match.
+     * @return The player's UUID and current name, or null if the name is unknown.
+     */
+    public KnownPlayerName resolve(String name) {
+        KnownPlayerName known = byName.get(name.toLowerCase());
+        if (known == null) {
+            return null;
+        }
+        KnownPlayerName latest = latestByPlayer.get(known.getUuid());
+        return latest != null ? latest : known;
+    }
+
+    /**
+     * Adds a name unless a more recent use of it is already known.
+     *
+     * @return true if the name now belongs to the given player.
+     */
+    private boolean record(KnownPlayerName name) {
+        KnownPlayerName result = byName.merge(name.getName().toLowerCase(), name,
+                (old, candidate) -> candidate.getLastSeen() >= old.getLastSeen() ? candidate : old);
+        latestByPlayer.merge(name.getUuid(), name,
+                (old, candidate) -> candidate.getLastSeen() >= old.getLastSeen() ? candidate : old);
+        return result == name;
+    }
+}
@@ -0,0 +1,147 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.ListingStock;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps open seller shops up to date while other players buy from them.
+ * <p>
+ * Every player looking at a seller's shop is registered under that seller. When the listing
+ * index takes a committed purchase, buy order fill or cancellation off one of the seller's
+ * listings, the new remaining quantity is queued. Once per tick the queue is drained on the main
+ * thread, and only the slots showing a changed listing are redrawn for each viewer. A listing that
+ * is gone stays in its slot as no longer available, so no other slot moves. Viewers that have
+ * closed the shop are dropped on the next update of that seller.
+ */
+public class ShopViewerManager {
+
+    private final DSOAuctionHouse plugin;
+    private final Map<UUID, Set<UUID>> viewersBySeller = new ConcurrentHashMap<>();
+    private final Map<UUID, UUID> sellerByViewer = new ConcurrentHashMap<>();
+
+    // Latest remaining quantity per changed listing, waiting for the next tick
+    private final Map<Integer, ListingChange> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    public ShopViewerManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Registers a player as looking at a seller's shop, replacing any shop they looked at before.
+     *
+     * @param viewerUUID The player viewing the shop.
+     * @param sellerUUID The seller whose shop is shown.
+     */
+    public void watch(UUID viewerUUID, UUID sellerUUID) {
+        UUID previous = sellerByViewer.put(viewerUUID, sellerUUID);
+        if (previous != null && !previous.equals(sellerUUID)) {
+            removeViewer(previous, viewerUUID);
+        }
+        viewersBySeller.computeIfAbsent(sellerUUID, uuid -> ConcurrentHashMap.newKeySet()).add(viewerUUID);
+        plugin.getMetricsManager().setGauge("live_view.viewers", sellerByViewer.size());
+    }
+
+    /**
+     * Forgets the shop a player was looking at, e.g. when they quit.
+     *
+     * @param viewerUUID The player.
+     */
+    public void unwatch(UUID viewerUUID) {
+        UUID sellerUUID = sellerByViewer.remove(viewerUUID);
+        if (sellerUUID != null) {
+            removeViewer(sellerUUID, viewerUUID);
+        }
+        plugin.getMetricsManager().setGauge("live_view.viewers", sellerByViewer.size());
+    }
+
+    private void removeViewer(UUID sellerUUID, UUID viewerUUID) {
+        viewersBySeller.computeIfPresent(sellerUUID, (uuid, viewers) -> {
+            viewers.remove(viewerUUID);
+            return viewers.isEmpty() ? null : viewers;
+        });
+    }
+
+    /**
+     * Queues the new remaining quantity of a listing for the players looking at its seller's shop.
+     * Called from the order book's matching thread after the change was committed.
+     *
+     * @param sellerUUID The seller of the listing.
+     * @param listingId The listing.
+     * @param stock The quantity left, 0 if the listing is gone, and the row version after the change.
+     */
+    void onListingChanged(UUID sellerUUID, int listingId, ListingStock stock) {
+        if (!viewersBySeller.containsKey(sellerUUID)) {
+            return;
+        }
+        pending.put(listingId, new ListingChange(sellerUUID, stock));
+        if (flushScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTask(plugin, this::flush);
+        }
+    }
+
+    /**
+     * Pushes all queued changes to the viewers of their sellers. Runs on the main thread.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+
+        Map<UUID, Map<Integer, ListingChange>> changesBySeller = new HashMap<>();
+        Iterator<Map.Entry<Integer, ListingChange>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, ListingChange> entry = iterator.next();
+            iterator.remove();
+            changesBySeller.computeIfAbsent(entry.getValue().sellerUUID, uuid -> new HashMap<>())
+                    .put(entry.getKey(), entry.getValue());
+        }
+
+        int slots = 0;
+        for (Map.Entry<UUID, Map<Integer, ListingChange>> sellerChanges : changesBySeller.entrySet()) {
+            Set<UUID> viewers = viewersBySeller.get(sellerChanges.getKey());
+            if (viewers == null) {
+                continue;
+            }
+            for (UUID viewerUUID : viewers) {
+                Player viewer = Bukkit.getPlayer(viewerUUID);
+                int updated = viewer != null
+                        ? plugin.getGuiManager().applyListingChanges(viewer, sellerChanges.getKey(), sellerChanges.getValue())
+                        : -1;
+                if (updated < 0) {
+                    unwatch(viewerUUID); // No longer looking at this shop
+                } else {
+                    slots += updated;
+                }
+            }
+        }
+
+        plugin.getMetricsManager().increment("live_view.flushes");
+        plugin.getMetricsManager().add("live_view.slots_updated", slots);
+    }
+
+    /**
+     * A listing's remaining quantity and row version after a committed change.
+     */
+    static class ListingChange {
+        private final UUID sellerUUID;
+        private final ListingStock stock;
+
+        ListingChange(UUID sellerUUID, ListingStock stock) {
+            this.sellerUUID = sellerUUID;
+            this.stock = stock;
+        }
+
+        ListingStock getStock() {
+            return stock;
+        }
+    }
+}
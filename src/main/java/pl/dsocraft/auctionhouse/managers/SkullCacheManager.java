@@ -0,0 +1,251 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import com.destroystokyo.paper.profile.ProfileProperty;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.meta.SkullMeta;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.DatabaseManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Caches the skin textures of seller heads by player UUID, in memory and in skulls.yml.
+ * <p>
+ * Heads are rendered from the cache only: a head without a cached texture is shown as a plain
+ * placeholder head, never by asking the server for a profile. Missing textures are looked up
+ * on the I/O threads, at most once at a time per player, and expired ones are still used while
+ * they are refreshed. A lookup that fails, e.g. for a name unknown to Mojang or while the
+ * session servers are rate limiting, is not repeated for a few minutes. During the warm-up the
+ * textures of all active sellers are prefetched.
+ */
+public class SkullCacheManager {
+
+    private static final String TEXTURES = "textures";
+    private static final long FAILED_LOOKUP_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final DSOAuctionHouse plugin;
+    private final File file;
+    private final Map<UUID, Texture> textures = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Void>> lookups = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> failedLookups = new ConcurrentHashMap<>(); // When the last lookup failed
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public SkullCacheManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "skulls.yml");
+    }
+
+    /**
+     * Loads the cached textures in the background. Changes are saved every few minutes.
+     *
+     * @return A future completed once the cached textures are loaded.
+     */
+    public CompletableFuture<Void> start() {
+        long saveTicks = plugin.getSettings().getSkullCacheSaveIntervalMinutes() * 60 * 20;
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::save, saveTicks, saveTicks);
+
+        return plugin.getIoExecutor().supply(() -> {
+            load();
+            return null;
+        });
+    }
+
+    /**
+     * Looks up the textures of sellers that are missing or expired, one at a time, in the
+     * background. Call after {@link #start()} completed.
+     *
+     * @param sellers The sellers, e.g. all sellers with active auctions.
+     * @return A future completed once every lookup finished.
+     */
+    public CompletableFuture<Void> prefetch(List<DatabaseManager.PlayerAuctionInfo> sellers) {
+        return plugin.getIoExecutor().supply(() -> {
+            for (DatabaseManager.PlayerAuctionInfo seller : sellers) {
+                if (!plugin.isEnabled()) {
+                    break;
+                }
+                Texture texture = textures.get(seller.getUuid());
+                if ((texture == null || texture.isExpired(ttlMillis())) && !lookups.containsKey(seller.getUuid())
+                        && !failedRecently(seller.getUuid())) {
+                    lookup(seller.getUuid(), seller.getName()); // Inline, so the prefetch never floods the pool
+                }
+            }
+            save();
+            return null;
+        });
+    }
+
+    /**
+     * Puts a seller's cached texture on a head. Never looks anything up.
+     *
+     * @param meta The head's meta.
+     * @param playerUUID The seller.
+     * @param playerName The seller's name, for the profile.
+     * @return true if a texture was applied, false if the head stays a placeholder.
+     */
+    public boolean apply(SkullMeta meta, UUID playerUUID, String playerName) {
+        Texture texture = textures.get(playerUUID);
+        if (texture == null) {
+            return false;
+        }
+        PlayerProfile profile = Bukkit.createProfile(playerUUID, playerName);
+        profile.setProperty(new ProfileProperty(TEXTURES, texture.value, texture.signature));
+        meta.setPlayerProfile(profile);
+        return true;
+    }
+
+    /**
+     * Looks up the textures of the given sellers that are missing or expired.
+     *
+     * @param sellers The sellers whose heads are shown.
+     * @return A future completed when the missing textures were looked up; expired textures are
+     * refreshed in the background without waiting for them. Completes right away if nothing is missing.
+     */
+    public CompletableFuture<Void> fetch(List<DatabaseManager.PlayerAuctionInfo> sellers) {
+        List<CompletableFuture<Void>> missing = new ArrayList<>();
+        for (DatabaseManager.PlayerAuctionInfo seller : sellers) {
+            Texture texture = textures.get(seller.getUuid());
+            if (texture != null && !texture.isExpired(ttlMillis())) {
+                continue;
+            }
+            if (failedRecently(seller.getUuid())) {
+                plugin.getMetricsManager().increment("skull_cache.negative_hits");
+                continue; // Stays a placeholder, or keeps the expired texture
+            }
+            CompletableFuture<Void> lookup = lookups.computeIfAbsent(seller.getUuid(), uuid ->
+                    plugin.getIoExecutor().supply(() -> {
+                        lookup(uuid, seller.getName());
+                        return null;
+                    }));
+            lookup.whenComplete((ignored, error) -> lookups.remove(seller.getUuid(), lookup));
+            if (texture == null) {
+                missing.add(lookup);
+            }
+        }
+        return CompletableFuture.allOf(missing.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Completes a profile with its textures. Blocking, only called on the I/O threads.
+     */
+    private void lookup(UUID playerUUID, String playerName) {
+        boolean found = false;
+        try {
+            PlayerProfile profile = Bukkit.createProfile(playerUUID, playerName);
+            if (profile.complete(true)) {
+                for (ProfileProperty property : profile.getProperties()) {
+                    if (TEXTURES.equals(property.getName())) {
+                        textures.put(playerUUID, new Texture(property.getValue(), property.getSignature(), System.currentTimeMillis()));
+                        dirty.set(true);
+                        found = true;
+                        plugin.getMetricsManager().increment("skull_cache.lookups");
+                    }
+                }
+            }
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.FINE, "Could not load skull texture of " + playerName, e);
+        }
+
+        if (found) {
+            failedLookups.remove(playerUUID);
+        } else {
+            failedLookups.put(playerUUID, System.currentTimeMillis());
+            plugin.getMetricsManager().increment("skull_cache.lookup_failures");
+        }
+        plugin.getMetricsManager().setGauge("skull_cache.size", textures.size());
+        plugin.getMetricsManager().setGauge("skull_cache.failed", failedLookups.size());
+    }
+
+    /**
+     * Checks whether the last lookup of a player failed only a few minutes ago.
+     */
+    private boolean failedRecently(UUID playerUUID) {
+        Long failedAt = failedLookups.get(playerUUID);
+        if (failedAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - failedAt > FAILED_LOOKUP_TTL_MILLIS) {
+            failedLookups.remove(playerUUID, failedAt);
+            return false;
+        }
+        return true;
+    }
+
+    private long ttlMillis() {
+        return TimeUnit.HOURS.toMillis(plugin.getSettings().getSkullCacheTtlHours());
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        for (String key : yaml.getKeys(false)) {
+            ConfigurationSection section = yaml.getConfigurationSection(key);
+            if (section == null || section.getString("value") == null) {
+                continue;
+            }
+            try {
+                textures.putIfAbsent(UUID.fromString(key), new Texture(section.getString("value"),
+                        section.getString("signature"), section.getLong("fetched_at", 0)));
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Skipping invalid entry " + key + " in " + file.getName());
+            }
+        }
+        plugin.getMetricsManager().setGauge("skull_cache.size", textures.size());
+    }
+
+    /**
+     * Writes the cache to disk if it changed. Blocking; also called when the plugin is disabled.
+     */
+    public synchronized void save() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        YamlConfiguration yaml = new YamlConfiguration();
+        for (Map.Entry<UUID, Texture> entry : new HashMap<>(textures).entrySet()) {
+            String key = entry.getKey().toString();
+            yaml.set(key + ".value", entry.getValue().value);
+            yaml.set(key + ".signature", entry.getValue().signature);
+            yaml.set(key + ".fetched_at", entry.getValue().fetchedAt);
+        }
+        try {
+            yaml.save(file);
+        } catch (IOException e) {
+            dirty.set(true);
+            plugin.getLogger().log(Level.WARNING, "Could not save " + file.getName(), e);
+        }
+    }
+
+    /**
+     * A cached texture property and when it was looked up.
+     */
+    private static class Texture {
+        private final String value;
+        private final String signature;
+        private final long fetchedAt;
+
+        Texture(String value, String signature, long fetchedAt) {
+            this.value = value;
+            this.signature = signature;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - fetchedAt > ttlMillis;
+        }
+    }
+}
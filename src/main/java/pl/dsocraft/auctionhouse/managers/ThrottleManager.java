@@ -0,0 +1,90 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.entity.Player;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.Settings;
+import pl.dsocraft.auctionhouse.utils.TokenBucket;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits how fast each player can click in the auction house GUIs and run its commands, so one
+ * player spamming pages or claims cannot take up the whole connection pool.
+ * <p>
+ * Every player has a token bucket; each GUI click or command takes a token. A player without
+ * tokens gets one message until a request goes through again, and the request is dropped.
+ * If a reload changes the burst or the rate, the buckets are dropped and recreated with it.
+ */
+public class ThrottleManager {
+
+    private final DSOAuctionHouse plugin;
+    private volatile Settings bucketSettings; // The snapshot the buckets were created with
+    private final Map<UUID, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Set<UUID> notified = ConcurrentHashMap.newKeySet();
+
+    public ThrottleManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+        applySettings(plugin.getSettings());
+    }
+
+    private synchronized void applySettings(Settings settings) {
+        Settings previous = bucketSettings;
+        if (previous == settings) {
+            return;
+        }
+        bucketSettings = settings;
+        if (previous != null && previous.getThrottleBurst() == settings.getThrottleBurst()
+                && previous.getThrottlePerSecond() == settings.getThrottlePerSecond()) {
+            return;
+        }
+        buckets.clear();
+        plugin.getMetricsManager().setGauge("throttle.burst", settings.getThrottleBurst());
+        plugin.getMetricsManager().setGauge("throttle.per_minute", Math.round(settings.getThrottlePerSecond() * 60));
+    }
+
+    /**
+     * Takes a token for a request of a player.
+     *
+     * @param player The player.
+     * @param kind The kind of request for the metrics, e.g. "click" or "command".
+     * @return true if the request may run, false if it must be dropped.
+     */
+    public boolean tryAcquire(Player player, String kind) {
+        if (player.hasPermission("ah.bypass.throttle")) {
+            return true;
+        }
+
+        Settings settings = plugin.getSettings();
+        if (settings != bucketSettings) {
+            applySettings(settings); // Reloaded
+        }
+
+        UUID playerUUID = player.getUniqueId();
+        TokenBucket bucket = buckets.computeIfAbsent(playerUUID,
+                uuid -> new TokenBucket(settings.getThrottleBurst(), settings.getThrottlePerSecond()));
+        if (bucket.tryAcquire()) {
+            notified.remove(playerUUID);
+            plugin.getMetricsManager().increment("throttle.allowed." + kind);
+            plugin.getMetricsManager().setGauge("throttle.buckets", buckets.size());
+            return true;
+        }
+
+        plugin.getMetricsManager().increment("throttle.rejected." + kind);
+        if (notified.add(playerUUID)) {
+            plugin.getMessageManager().sendMessage(player, "too_many_requests");
+        }
+        return false;
+    }
+
+    /**
+     * Forgets a player's bucket, e.g. when they quit.
+     */
+    public void remove(UUID playerUUID) {
+        buckets.remove(playerUUID);
+        notified.remove(playerUUID);
+        plugin.getMetricsManager().setGauge("throttle.buckets", buckets.size());
+    }
+}
@@ -0,0 +1,124 @@
+package pl.dsocraft.auctionhouse.managers;
+
+import org.bukkit.command.CommandSender;
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.database.DatabaseManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * Loads everything the first players after a restart would otherwise wait for, before commands
+ * are accepted.
+ * <p>
+ * The phases run in parallel: the order books with the listing index, the player name directory,
+ * the seller list of the main view with the rank of every seller, and the cached skull textures.
+ * Until all of them finished, player commands answer with a "warming up" message. Afterwards the
+ * textures of sellers that are missing from the skull cache are looked up in the background; the
+ * plugin does not wait for those, as heads without a texture are already rendered as placeholders.
+ * A phase that fails is logged and does not hold up the others. The time of every phase, counted
+ * from the start of the plugin, is logged and reported under {@code /ahadmin metrics startup}.
+ */
+public class WarmupManager {
+
+    private final DSOAuctionHouse plugin;
+    private final long enabledAt = System.nanoTime();
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>(); // Guarded by this
+    private volatile boolean ready;
+
+    /**
+     * Create this first thing when the plugin is enabled, phase times are counted from here.
+     */
+    public WarmupManager(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts all warm-up phases. Call once all managers were created.
+     */
+    public void start() {
+        plugin.getMetricsManager().setGauge("startup.ready", 0);
+        CompletableFuture<Void> listings = phase("listings", plugin.getOrderBookManager().whenLoaded());
+        CompletableFuture<Void> directory = phase("directory", plugin.getSellerDirectoryManager().loadAsync());
+        CompletableFuture<List<DatabaseManager.PlayerAuctionInfo>> sellerLoad = plugin.getAuctionManager().loadSellersAsync(null);
+        CompletableFuture<Void> sellers = phase("sellers", sellerLoad);
+        CompletableFuture<Void> skullCache = phase("skull_cache", plugin.getSkullCacheManager().start());
+
+        CompletableFuture.allOf(listings, directory, sellers, skullCache).thenRun(() -> {
+            ready = true;
+            plugin.getMetricsManager().setGauge("startup.ready", 1);
+            plugin.getLogger().info("Warm-up finished, " + describePhases() + ".");
+
+            // Only sellers whose list loaded; the list is also what the main view shows first
+            sellerLoad.thenCompose(plugin.getSkullCacheManager()::prefetch)
+                    .whenComplete((ignored, error) -> {
+                        if (error == null) {
+                            markPhase("skull_prefetch");
+                            plugin.getLogger().info("Skull prefetch finished, " + describePhases() + ".");
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Times a phase and turns its failure into a warning, so one failed phase does not keep the
+     * plugin warming up forever.
+     */
+    private CompletableFuture<Void> phase(String name, CompletableFuture<?> future) {
+        return future.handle((result, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Warm-up phase " + name + " failed, it loads on first use instead", error);
+            }
+            markPhase(name);
+            return null;
+        });
+    }
+
+    /**
+     * Records that a startup phase finished, e.g. connecting to the database.
+     *
+     * @param name The phase.
+     */
+    public void markPhase(String name) {
+        long nanos = System.nanoTime() - enabledAt;
+        plugin.getMetricsManager().recordTime("startup." + name, nanos);
+        synchronized (this) {
+            phaseMillis.put(name, nanos / 1_000_000);
+        }
+    }
+
+    private synchronized String describePhases() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Long> phase : phaseMillis.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Checks whether the warm-up finished.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Checks whether the warm-up finished, and tells the sender to wait if it did not.
+     *
+     * @param sender The sender of a command.
+     * @return true if the command can run.
+     */
+    public boolean checkReady(CommandSender sender) {
+        if (ready) {
+            return true;
+        }
+        plugin.getMessageManager().sendMessage(sender, "warming_up");
+        return false;
+    }
+}
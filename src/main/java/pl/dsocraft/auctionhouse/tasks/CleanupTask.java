@@ -2,13 +2,38 @@ package pl.dsocraft.auctionhouse.tasks;
 
 import org.bukkit.scheduler.BukkitRunnable;
 import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+import pl.dsocraft.auctionhouse.Settings;
+import pl.dsocraft.auctionhouse.database.DatabaseManager;
+import pl.dsocraft.auctionhouse.managers.MetricsManager;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntUnaryOperator;
 
 /**
- * Task that periodically cleans up sold-out auctions from the database.
+ * Task that periodically cleans up sold-out auctions and archives stale mailbox entries.
+ * <p>
+ * Work is done in small chunks (DELETE ... LIMIT n). The chunk size adapts to how long each
+ * statement took, and the task backs off while the connection pool is saturated, so a large
+ * backlog never blocks players' queries.
  */
 public class CleanupTask extends BukkitRunnable {
 
+    private static final int MIN_BATCH_SIZE = 50;
+    private static final int MAX_SATURATION_WAITS = 20;
+    private static final long CHECK_INTERVAL_TICKS = 60 * 20;
+
     private final DSOAuctionHouse plugin;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile long lastRunAt = System.currentTimeMillis();
+
+    // Settings, read from the current snapshot at the start of every run
+    private int maxBatchSize;
+    private long maxLockMillis;
+    private long pauseMillis;
+    private int mailboxRetentionDays;
 
     public CleanupTask(DSOAuctionHouse plugin) {
         this.plugin = plugin;
@@ -16,15 +41,128 @@ public class CleanupTask extends BukkitRunnable {
 
     @Override
     public void run() {
-        // Clean up sold-out auctions
-        plugin.getDatabaseManager().cleanupSoldOutAuctions();
+        // Never let two cleanup runs overlap if one of them is slow
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            Settings settings = plugin.getSettings();
+            long now = System.currentTimeMillis();
+            if (now - lastRunAt < TimeUnit.MINUTES.toMillis(settings.getCleanupIntervalMinutes())) {
+                return;
+            }
+            lastRunAt = now;
+            this.maxBatchSize = Math.max(MIN_BATCH_SIZE, settings.getCleanupBatchSize());
+            this.maxLockMillis = settings.getCleanupMaxLockMillis();
+            this.pauseMillis = settings.getCleanupPauseMillis();
+            this.mailboxRetentionDays = settings.getMailboxRetentionDays();
+
+            MetricsManager metrics = plugin.getMetricsManager();
+            DatabaseManager databaseManager = plugin.getDatabaseManager();
+
+            // Clean up sold-out auctions
+            long soldOut = runChunked("cleanup.sold_out", databaseManager::deleteSoldOutAuctionsChunk);
+            if (soldOut > 0) {
+                plugin.getLogger().info("Cleaned up " + soldOut + " sold out auctions");
+            }
+
+            // Archive mailbox entries nobody claimed within the retention period
+            if (mailboxRetentionDays > 0) {
+                Timestamp cutoff = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(mailboxRetentionDays));
+                long archived = runChunked("cleanup.mailbox_archived",
+                        limit -> databaseManager.archiveStaleMailboxChunk(cutoff, limit));
+                if (archived > 0) {
+                    plugin.getMailboxSummaryManager().reloadAllAsync();
+                    plugin.getLogger().info("Archived " + archived + " mailbox entries older than "
+                            + mailboxRetentionDays + " days");
+                }
+            }
+
+            metrics.setGauge("cleanup.last_run_at", System.currentTimeMillis());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Runs a chunked operation until it reports fewer rows than requested.
+     *
+     * @param metricName The metric prefix to report progress under.
+     * @param chunk Executes one chunk with the given limit and returns the affected rows, or -1 on error.
+     * @return The total number of affected rows.
+     */
+    private long runChunked(String metricName, IntUnaryOperator chunk) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+
+        int batchSize = maxBatchSize;
+        long total = 0;
+        long startedAt = System.nanoTime();
+
+        while (plugin.isEnabled() && !isCancelled()) {
+            // Back off while players' queries are waiting for connections
+            int waits = 0;
+            while (databaseManager.isPoolSaturated()) {
+                metrics.increment(metricName + ".throttled");
+                if (++waits > MAX_SATURATION_WAITS || !sleep(pauseMillis * 4)) {
+                    plugin.getLogger().warning("Cleanup postponed, the database pool is saturated.");
+                    return total;
+                }
+            }
+
+            long chunkStart = System.nanoTime();
+            int affected = chunk.applyAsInt(batchSize);
+            long chunkNanos = System.nanoTime() - chunkStart;
+
+            if (affected < 0) {
+                metrics.increment(metricName + ".errors");
+                break;
+            }
+
+            total += affected;
+            metrics.add(metricName + ".rows", affected);
+            metrics.recordTime(metricName + ".chunk", chunkNanos);
+            metrics.setGauge(metricName + ".batch_size", batchSize);
+
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            metrics.setGauge(metricName + ".rows_per_sec", total * 1000 / elapsedMillis);
+
+            if (affected < batchSize) {
+                break; // Nothing left to do
+            }
+
+            // Adapt the chunk size to the observed statement time
+            long chunkMillis = TimeUnit.NANOSECONDS.toMillis(chunkNanos);
+            if (chunkMillis > maxLockMillis) {
+                batchSize = Math.max(MIN_BATCH_SIZE, batchSize / 2);
+            } else if (chunkMillis < maxLockMillis / 4) {
+                batchSize = Math.min(maxBatchSize, batchSize * 2);
+            }
+
+            if (!sleep(chunkMillis > maxLockMillis ? pauseMillis * 2 : pauseMillis)) {
+                break;
+            }
+        }
+
+        return total;
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     /**
-     * Starts the cleanup task to run every 30 minutes.
+     * Starts the cleanup task. It checks every minute whether the interval from the config
+     * (30 minutes by default) passed, so a reloaded interval applies without a restart.
      */
     public void start() {
-        // Run every 30 minutes (36000 ticks)
-        this.runTaskTimerAsynchronously(plugin, 36000L, 36000L);
+        this.runTaskTimerAsynchronously(plugin, CHECK_INTERVAL_TICKS, CHECK_INTERVAL_TICKS);
     }
-}
\ No newline at end of file
+}
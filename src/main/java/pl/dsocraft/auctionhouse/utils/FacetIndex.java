@@ -0,0 +1,141 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.Collection;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Maps facet values and unit-price buckets to bitmaps of listing ids.
+ * <p>
+ * Price buckets are powers of two: bucket {@code b} holds unit prices from 2^(b-1) to 2^b - 1,
+ * so a price range is the union of the buckets it covers, and only the two boundary buckets need
+ * an exact price check. Not thread-safe.
+ */
+public class FacetIndex {
+
+    private static final int PRICE_BUCKETS = 64;
+
+    private final TreeMap<String, IdBitmap> facets = new TreeMap<>();
+    private final IdBitmap[] priceBuckets = new IdBitmap[PRICE_BUCKETS];
+    private final IdBitmap all = new IdBitmap();
+
+    /**
+     * Adds a listing.
+     *
+     * @param id The listing id.
+     * @param facetValues The facets of the listing's item.
+     * @param unitPrice The unit price of the listing.
+     */
+    public void add(int id, Collection<String> facetValues, long unitPrice) {
+        for (String facet : facetValues) {
+            facets.computeIfAbsent(facet, k -> new IdBitmap()).add(id);
+        }
+        int bucket = bucketOf(unitPrice);
+        if (priceBuckets[bucket] == null) {
+            priceBuckets[bucket] = new IdBitmap();
+        }
+        priceBuckets[bucket].add(id);
+        all.add(id);
+    }
+
+    /**
+     * Removes a listing. The facets and price must be the ones it was added with.
+     */
+    public void remove(int id, Collection<String> facetValues, long unitPrice) {
+        for (String facet : facetValues) {
+            IdBitmap bitmap = facets.get(facet);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    facets.remove(facet);
+                }
+            }
+        }
+        IdBitmap bucket = priceBuckets[bucketOf(unitPrice)];
+        if (bucket != null) {
+            bucket.remove(id);
+        }
+        all.remove(id);
+    }
+
+    /**
+     * Gets the listings with a facet.
+     *
+     * @return The bitmap, or an empty bitmap if no listing has the facet. Must not be changed.
+     */
+    public IdBitmap get(String facet) {
+        IdBitmap bitmap = facets.get(facet);
+        return bitmap != null ? bitmap : new IdBitmap();
+    }
+
+    /**
+     * Gets all facets starting with a prefix, e.g. every level of one enchantment.
+     *
+     * @return A read-only view, sorted by facet.
+     */
+    public SortedMap<String, IdBitmap> withPrefix(String prefix) {
+        return facets.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * Gets every listing in the index.
+     *
+     * @return The bitmap. Must not be changed.
+     */
+    public IdBitmap all() {
+        return all;
+    }
+
+    /**
+     * Gets the listings with a unit price in a range.
+     *
+     * @param min The lowest unit price, inclusive.
+     * @param max The highest unit price, inclusive.
+     * @param unitPriceOf Gets the unit price of a listing, for the buckets at the ends of the range.
+     * @return A new bitmap.
+     */
+    public IdBitmap priceBetween(long min, long max, IntToLongFunction unitPriceOf) {
+        IdBitmap result = new IdBitmap();
+        if (max < min || max <= 0) {
+            return result;
+        }
+        min = Math.max(1, min);
+
+        int firstBucket = bucketOf(min);
+        int lastBucket = bucketOf(max);
+        for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+            IdBitmap ids = priceBuckets[bucket];
+            if (ids == null) {
+                continue;
+            }
+            long bucketMin = 1L << (bucket - 1);
+            long bucketMax = bucket == PRICE_BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+            if (bucketMin >= min && bucketMax <= max) {
+                result = IdBitmap.or(result, ids);
+            } else {
+                long rangeMin = min;
+                long rangeMax = max;
+                IdBitmap partial = result;
+                ids.forEach(id -> {
+                    long price = unitPriceOf.applyAsLong(id);
+                    if (price >= rangeMin && price <= rangeMax) {
+                        partial.add(id);
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of distinct facet values.
+     */
+    public int facetCount() {
+        return facets.size();
+    }
+
+    private static int bucketOf(long unitPrice) {
+        return unitPrice <= 0 ? 0 : PRICE_BUCKETS - Long.numberOfLeadingZeros(unitPrice);
+    }
+}
@@ -0,0 +1,190 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import org.bukkit.Material;
+import org.bukkit.Registry;
+import org.bukkit.enchantments.Enchantment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+/**
+ * A parsed facet search such as {@code diamond_sword sharpness:5+ price<50k}.
+ * <p>
+ * Supported filters:
+ * <ul>
+ *     <li>a material name, optionally as {@code type:<material>}</li>
+ *     <li>{@code <enchantment>:<level>}, {@code <enchantment>:<level>+} or just {@code <enchantment>}
+ *     for any level</li>
+ *     <li>{@code model:<custom model data>}</li>
+ *     <li>{@code tag:<namespace>:<key>} for a persistent data key</li>
+ *     <li>{@code price<x}, {@code price<=x}, {@code price>x} and {@code price>=x} on the unit price</li>
+ * </ul>
+ * Filters of the same kind (two materials, two tags, two levels of one enchantment) are combined
+ * with OR, different kinds with AND. A token that is neither a material nor a known enchantment
+ * makes the whole search invalid.
+ */
+public class FacetQuery {
+
+    private final Map<String, List<Filter>> groups = new LinkedHashMap<>();
+    private long minPrice = 1;
+    private long maxPrice = Long.MAX_VALUE;
+    private boolean priceFiltered;
+
+    private FacetQuery() {
+    }
+
+    /**
+     * Parses a search.
+     *
+     * @param tokens The filters, one per token.
+     * @return The query, or null if a token is not a valid filter.
+     */
+    public static FacetQuery parse(String[] tokens) {
+        FacetQuery query = new FacetQuery();
+        for (String raw : tokens) {
+            String token = raw.toLowerCase();
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (!query.addToken(token)) {
+                return null;
+            }
+        }
+        return query.groups.isEmpty() && !query.priceFiltered ? null : query;
+    }
+
+    private boolean addToken(String token) {
+        if (token.startsWith("price")) {
+            return addPriceBound(token.substring("price".length()));
+        }
+        if (token.startsWith(ItemFacets.MODEL) || token.startsWith(ItemFacets.TAG)) {
+            String family = token.startsWith(ItemFacets.MODEL) ? ItemFacets.MODEL : ItemFacets.TAG;
+            addFilter(family, new Filter(token, 0));
+            return true;
+        }
+
+        String name = token.startsWith(ItemFacets.TYPE) ? token.substring(ItemFacets.TYPE.length()) : token;
+        Material material = name.indexOf(':') < 0 ? Material.matchMaterial(name) : null;
+        if (material != null) {
+            addFilter(ItemFacets.TYPE, new Filter(ItemFacets.ofType(material), 0));
+            return true;
+        }
+        if (token.startsWith(ItemFacets.TYPE)) {
+            return false;
+        }
+
+        // Anything else is an enchantment, with an optional level
+        String enchantment = token.startsWith(ItemFacets.ENCHANTMENT) ? token.substring(ItemFacets.ENCHANTMENT.length()) : token;
+        int separator = enchantment.indexOf(':');
+        String key = separator < 0 ? enchantment : enchantment.substring(0, separator);
+        if (!isEnchantment(key)) {
+            return false; // Most likely a typo
+        }
+        String family = ItemFacets.ENCHANTMENT + key + ":";
+        if (separator < 0) {
+            addFilter(family, new Filter(family, 1)); // Any level
+            return true;
+        }
+
+        String level = enchantment.substring(separator + 1);
+        boolean orHigher = level.endsWith("+");
+        try {
+            int value = Integer.parseInt(orHigher ? level.substring(0, level.length() - 1) : level);
+            addFilter(family, orHigher ? new Filter(family, Math.max(1, value)) : new Filter(family + value, 0));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether an enchantment with this key, without namespace as in the facets, exists.
+     */
+    private static boolean isEnchantment(String key) {
+        for (Enchantment enchantment : Registry.ENCHANTMENT) {
+            if (enchantment.getKey().getKey().equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean addPriceBound(String bound) {
+        boolean inclusive = bound.length() > 1 && bound.charAt(1) == '=';
+        if (bound.isEmpty() || (bound.charAt(0) != '<' && bound.charAt(0) != '>')) {
+            return false;
+        }
+        long price = PriceCodec.parse(bound.substring(inclusive ? 2 : 1));
+        if (price <= 0) {
+            return false;
+        }
+        if (bound.charAt(0) == '<') {
+            maxPrice = Math.min(maxPrice, inclusive ? price : price - 1);
+        } else {
+            minPrice = Math.max(minPrice, inclusive ? price : price + 1);
+        }
+        priceFiltered = true;
+        return true;
+    }
+
+    private void addFilter(String family, Filter filter) {
+        groups.computeIfAbsent(family, k -> new ArrayList<>()).add(filter);
+    }
+
+    /**
+     * Evaluates the query: an OR within each group of filters and an AND across groups and the
+     * price range.
+     *
+     * @param index The facet index.
+     * @param unitPriceOf Gets the unit price of a listing.
+     * @return The ids of the matching listings.
+     */
+    public IdBitmap evaluate(FacetIndex index, IntToLongFunction unitPriceOf) {
+        IdBitmap result = null;
+        for (List<Filter> group : groups.values()) {
+            IdBitmap matches = new IdBitmap();
+            for (Filter filter : group) {
+                matches = IdBitmap.or(matches, filter.evaluate(index));
+            }
+            result = result == null ? matches : IdBitmap.and(result, matches);
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        if (priceFiltered) {
+            IdBitmap prices = index.priceBetween(minPrice, maxPrice, unitPriceOf);
+            result = result == null ? prices : IdBitmap.and(result, prices);
+        }
+        return result != null ? result : new IdBitmap();
+    }
+
+    /**
+     * One facet, or with a minimum level every level of an enchantment from that level on.
+     */
+    private static class Filter {
+        private final String facet;
+        private final int minLevel; // 0 for an exact facet
+
+        Filter(String facet, int minLevel) {
+            this.facet = facet;
+            this.minLevel = minLevel;
+        }
+
+        IdBitmap evaluate(FacetIndex index) {
+            if (minLevel == 0) {
+                return index.get(facet);
+            }
+            IdBitmap matches = new IdBitmap();
+            // The prefix ends with ':', so it only covers the levels of this enchantment
+            for (Map.Entry<String, IdBitmap> entry : index.withPrefix(facet).entrySet()) {
+                if (Integer.parseInt(entry.getKey().substring(facet.length())) >= minLevel) {
+                    matches = IdBitmap.or(matches, entry.getValue());
+                }
+            }
+            return matches;
+        }
+    }
+}
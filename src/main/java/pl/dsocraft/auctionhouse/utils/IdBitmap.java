@@ -0,0 +1,384 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitmap of non-negative int ids, laid out like a Roaring bitmap.
+ * <p>
+ * Ids are split into a high and a low 16-bit half. Each distinct high half has a container for
+ * the low halves: a sorted array while it holds at most {@value #ARRAY_MAX} values, and a plain
+ * 65536-bit bitmap above that. Sparse sets stay small, dense sets are scanned a word at a time,
+ * and AND/OR work container by container. Not thread-safe.
+ */
+public class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size; // Number of containers
+
+    /**
+     * Adds an id.
+     *
+     * @param id The id, must not be negative.
+     */
+    public void add(int id) {
+        char high = (char) (id >>> 16);
+        int index = indexOfKey(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new ArrayContainer());
+        }
+        containers[index] = containers[index].add((char) id);
+    }
+
+    /**
+     * Removes an id.
+     *
+     * @param id The id.
+     */
+    public void remove(int id) {
+        int index = indexOfKey((char) (id >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) id);
+        if (container.cardinality() == 0) {
+            removeContainer(index);
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    public boolean contains(int id) {
+        int index = indexOfKey((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of ids in the bitmap.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Calls the consumer with every id, in ascending order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * Computes the intersection of two bitmaps.
+     *
+     * @return A new bitmap with the ids that are in both.
+     */
+    public static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.appendContainer(a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the union of two bitmaps.
+     *
+     * @return A new bitmap with the ids that are in either.
+     */
+    public static IdBitmap or(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j >= b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendContainer(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i >= a.size || a.keys[i] > b.keys[j]) {
+                result.appendContainer(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private int indexOfKey(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void appendContainer(char key, Container container) {
+        insertContainer(size, key, container);
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    /**
+     * The low 16-bit halves of the ids that share a high half. Changes return the container to
+     * use from then on, which lets a container switch between the array and bitmap forms.
+     */
+    private interface Container {
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        void forEach(int base, IntConsumer consumer);
+
+        Container and(Container other);
+
+        Container or(Container other);
+
+        Container copy();
+    }
+
+    /**
+     * Sorted array of values, for containers with at most {@value #ARRAY_MAX} values.
+     */
+    private static class ArrayContainer implements Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        public Container or(Container other) {
+            Container result = other.copy();
+            for (int i = 0; i < cardinality; i++) {
+                result = result.add(values[i]);
+            }
+            return result;
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * One bit per possible value, for containers with more than {@value #ARRAY_MAX} values.
+     */
+    private static class BitmapContainer implements Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(char value) {
+            long mask = 1L << value;
+            int word = value >>> 6;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long mask = 1L << value;
+            int word = value >>> 6;
+            if ((words[word] & mask) != 0) {
+                words[word] &= ~mask;
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public void forEach(int base, IntConsumer consumer) {
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    consumer.accept(base | (word << 6) | Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer container = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? container.toArray() : container;
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.or(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] | otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(4, cardinality)];
+            int[] count = new int[1];
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
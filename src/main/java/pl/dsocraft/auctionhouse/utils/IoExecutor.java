@@ -0,0 +1,137 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import pl.dsocraft.auctionhouse.DSOAuctionHouse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Executor for blocking I/O (database queries, profile lookups) that must stay off the main thread.
+ * <p>
+ * When the plugin is built with the {@code java21} profile and runs on Java 21, every task gets its
+ * own virtual thread. Otherwise a small fixed pool of platform threads is used. Either way the
+ * number of concurrent database queries is still bounded by the connection pool.
+ */
+public class IoExecutor {
+
+    private static final String VIRTUAL_FACTORY_CLASS = "pl.dsocraft.auctionhouse.utils.VirtualThreadExecutors";
+
+    private final DSOAuctionHouse plugin;
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    public IoExecutor(DSOAuctionHouse plugin) {
+        this.plugin = plugin;
+
+        ExecutorService virtualExecutor = null;
+        if (plugin.getSettings().isIoVirtualThreads()) {
+            virtualExecutor = createVirtualExecutor();
+        }
+
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtual = true;
+            plugin.getLogger().info("Using virtual threads for database and profile I/O.");
+        } else {
+            int threads = plugin.getSettings().getIoThreads();
+            this.executor = Executors.newFixedThreadPool(threads, new PlatformThreadFactory());
+            this.virtual = false;
+        }
+    }
+
+    /**
+     * Looks up the virtual-thread executor, which only exists in builds made with the java21 profile.
+     *
+     * @return The executor, or null if virtual threads are not available.
+     */
+    private ExecutorService createVirtualExecutor() {
+        try {
+            Class<?> factory = Class.forName(VIRTUAL_FACTORY_CLASS);
+            return (ExecutorService) factory.getMethod("newExecutor").invoke(null);
+        } catch (ClassNotFoundException | UnsupportedClassVersionError e) {
+            return null; // Built for Java 17 or running on an older JVM
+        } catch (ReflectiveOperationException | LinkageError e) {
+            plugin.getLogger().log(Level.WARNING, "Could not create the virtual thread executor, using platform threads", e);
+            return null;
+        }
+    }
+
+    /**
+     * Runs a blocking task on the I/O executor.
+     *
+     * @param task The task to run.
+     * @return A future completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * Runs independent blocking tasks concurrently and joins them. The returned future completes
+     * when all of them are done, so the total latency is that of the slowest task.
+     * If any task fails, the returned future fails as well.
+     *
+     * @param tasks The tasks to run.
+     * @return A future completed with the results, in the order of the tasks.
+     */
+    public <T> CompletableFuture<List<T>> supplyAll(List<Supplier<T>> tasks) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(tasks.size());
+        for (Supplier<T> task : tasks) {
+            futures.add(supply(task));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Checks whether tasks run on virtual threads.
+     *
+     * @return true for virtual threads, false for the platform thread pool.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Stops accepting tasks and waits briefly for running ones to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates named daemon threads, so a stuck query never keeps the server from stopping.
+     */
+    private static class PlatformThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "DSOAuctionHouse-IO-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
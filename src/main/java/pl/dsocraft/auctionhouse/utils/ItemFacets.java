@@ -0,0 +1,81 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts the searchable facets of an item.
+ * <p>
+ * A facet is a string of the form {@code family:value}: {@code type:diamond_sword},
+ * {@code ench:sharpness:5} (including enchantments stored in books), {@code model:1234} for custom
+ * model data and {@code tag:namespace:key} for every persistent data key. Facets only depend on
+ * the item, so all listings with the same item key share them.
+ */
+public class ItemFacets {
+
+    public static final String TYPE = "type:";
+    public static final String ENCHANTMENT = "ench:";
+    public static final String MODEL = "model:";
+    public static final String TAG = "tag:";
+
+    /**
+     * Gets the facets of an item.
+     *
+     * @param itemStack The item.
+     * @return The facets, the type facet first.
+     */
+    public static List<String> of(ItemStack itemStack) {
+        List<String> facets = new ArrayList<>();
+        facets.add(ofType(itemStack.getType()));
+        if (!itemStack.hasItemMeta()) {
+            return facets;
+        }
+
+        ItemMeta meta = itemStack.getItemMeta();
+        addEnchantments(facets, meta.getEnchants());
+        if (meta instanceof EnchantmentStorageMeta) {
+            addEnchantments(facets, ((EnchantmentStorageMeta) meta).getStoredEnchants());
+        }
+        if (meta.hasCustomModelData()) {
+            facets.add(MODEL + meta.getCustomModelData());
+        }
+        for (NamespacedKey key : meta.getPersistentDataContainer().getKeys()) {
+            facets.add(TAG + key.toString().toLowerCase());
+        }
+        return facets;
+    }
+
+    /**
+     * Gets the type facet of a material.
+     */
+    public static String ofType(Material material) {
+        return TYPE + material.name().toLowerCase();
+    }
+
+    /**
+     * Gets the facet of an enchantment at a level.
+     *
+     * @param enchantment The enchantment key without namespace, e.g. "sharpness".
+     * @param level The level.
+     */
+    public static String ofEnchantment(String enchantment, int level) {
+        return ENCHANTMENT + enchantment + ":" + level;
+    }
+
+    private static void addEnchantments(List<String> facets, Map<Enchantment, Integer> enchantments) {
+        for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+            String facet = ofEnchantment(entry.getKey().getKey().getKey(), entry.getValue());
+            if (!facets.contains(facet)) {
+                facets.add(facet);
+            }
+        }
+    }
+}
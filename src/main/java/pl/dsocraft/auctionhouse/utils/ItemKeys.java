@@ -0,0 +1,111 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Builds stable keys that identify a kind of item, independent of the stack size.
+ * <p>
+ * Plain items (no item meta) use the lowercase material name, e.g. "diamond".
+ * Items with meta (names, enchantments, damage, ...) get the material name followed by
+ * a hash of their serialized form, so only truly identical items share a key.
+ * <p>
+ * Players control part of that form, e.g. through anvil names, and buy orders and the browse
+ * view trade on the key alone, so the hash is the first 128 bits of SHA-256: nobody can craft
+ * a cheap item that shares the key of a valuable one.
+ */
+public class ItemKeys {
+
+    private static final int HASH_BYTES = 16;
+    private static final int HASH_LENGTH = 22; // HASH_BYTES in unpadded URL-safe Base64, fits VARCHAR(64) keys
+    private static final Base64.Encoder HASH_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * Gets the key for an item.
+     *
+     * @param itemStack The item to build the key for.
+     * @return The item key, or null if the item is null.
+     */
+    public static String of(ItemStack itemStack) {
+        if (itemStack == null) {
+            return null;
+        }
+
+        String materialKey = of(itemStack.getType());
+        if (!itemStack.hasItemMeta()) {
+            return materialKey;
+        }
+
+        ItemStack single = itemStack.clone();
+        single.setAmount(1);
+        byte[] data = ItemSerializer.serializeItemStack(single);
+        if (data == null) {
+            return materialKey;
+        }
+
+        return materialKey + "#" + hash(data);
+    }
+
+    /**
+     * Gets the key for a plain item of the given material.
+     *
+     * @param material The material.
+     * @return The item key.
+     */
+    public static String of(Material material) {
+        return material.name().toLowerCase();
+    }
+
+    /**
+     * Checks if a key belongs to a plain item without item meta.
+     *
+     * @param itemKey The item key.
+     * @return true if the key is a plain material key.
+     */
+    public static boolean isPlain(String itemKey) {
+        return itemKey != null && itemKey.indexOf('#') < 0;
+    }
+
+    /**
+     * Checks if a key was built by this version. Keys of items with meta built by older versions
+     * used a weaker hash; they no longer match and have to be built again from the item.
+     *
+     * @param itemKey The item key.
+     * @return true if the key is a plain material key or has a current hash.
+     */
+    public static boolean isCurrent(String itemKey) {
+        if (itemKey == null) {
+            return false;
+        }
+        int hashStart = itemKey.indexOf('#');
+        return hashStart < 0 || itemKey.length() - hashStart - 1 == HASH_LENGTH;
+    }
+
+    /**
+     * Gets the material an item key was built from.
+     *
+     * @param itemKey The item key.
+     * @return The material, or null if the key is null or the material no longer exists.
+     */
+    public static Material materialOf(String itemKey) {
+        if (itemKey == null) {
+            return null;
+        }
+        int hashStart = itemKey.indexOf('#');
+        return Material.matchMaterial(hashStart < 0 ? itemKey : itemKey.substring(0, hashStart));
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HASH_ENCODER.encodeToString(Arrays.copyOf(digest, HASH_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required of every Java platform
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import org.bukkit.Material;
+import pl.dsocraft.auctionhouse.database.AuctionItem;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Column-wise snapshot of a list of listings, used to sort and filter a seller's view in memory.
+ * <p>
+ * Every column is a primitive array indexed by the position of the listing in the original list.
+ * Sorting produces an array of positions and filtering a bitmap of positions, so neither touches
+ * the database or the item data. Positions with equal sort values keep their original order.
+ */
+public class ListingColumns {
+
+    /**
+     * The orders a seller's listings can be shown in.
+     */
+    public enum SortMode {
+        NEWEST("Newest first"),
+        OLDEST("Oldest first"),
+        PRICE_LOWEST("Lowest price per item"),
+        PRICE_HIGHEST("Highest price per item"),
+        QUANTITY("Largest quantity"),
+        NAME("Name");
+
+        private final String label;
+
+        SortMode(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Gets the mode after this one, wrapping around after the last.
+         */
+        public SortMode next() {
+            SortMode[] modes = values();
+            return modes[(ordinal() + 1) % modes.length];
+        }
+    }
+
+    private final int size;
+    private final int[] ids;
+    private final long[] unitPrices;
+    private final int[] quantities;
+    private final int[] materialOrdinals; // -1 if the material is unknown
+    private final long[] listedAt;
+    private final String[] names;
+
+    private ListingColumns(int size) {
+        this.size = size;
+        this.ids = new int[size];
+        this.unitPrices = new long[size];
+        this.quantities = new int[size];
+        this.materialOrdinals = new int[size];
+        this.listedAt = new long[size];
+        this.names = new String[size];
+    }
+
+    /**
+     * Builds the columns of a list of listings. Only summary fields are read, the item data
+     * does not have to be loaded.
+     *
+     * @param items The listings.
+     * @return The snapshot.
+     */
+    public static ListingColumns of(List<AuctionItem> items) {
+        ListingColumns columns = new ListingColumns(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            AuctionItem item = items.get(i);
+            Material material = ItemKeys.materialOf(item.getItemKey());
+            columns.ids[i] = item.getId();
+            columns.unitPrices[i] = item.getPricePerItem();
+            columns.quantities[i] = item.getQuantityRemaining();
+            columns.materialOrdinals[i] = material != null ? material.ordinal() : -1;
+            columns.listedAt[i] = item.getListedAt();
+            columns.names[i] = item.getItemNameLowercase() != null ? item.getItemNameLowercase() : "";
+        }
+        return columns;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int position) {
+        return ids[position];
+    }
+
+    /**
+     * Gets the positions of all listings in the given order.
+     *
+     * @param mode The sort order.
+     * @return The positions, sorted.
+     */
+    public int[] sortedPositions(SortMode mode) {
+        switch (mode) {
+            case OLDEST:
+                return orderByRank(rank(listedAt), false);
+            case PRICE_LOWEST:
+                return orderByRank(rank(unitPrices), false);
+            case PRICE_HIGHEST:
+                return orderByRank(rank(unitPrices), true);
+            case QUANTITY:
+                return orderByRank(quantities, true);
+            case NAME:
+                return orderByRank(rank(names), false);
+            case NEWEST:
+            default:
+                return orderByRank(rank(listedAt), true);
+        }
+    }
+
+    /**
+     * Gets the positions of the listings of a material.
+     *
+     * @param materialOrdinal The ordinal of the material.
+     * @return A bitmap with a bit set for every matching position.
+     */
+    public BitSet withMaterial(int materialOrdinal) {
+        BitSet matches = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (materialOrdinals[i] == materialOrdinal) {
+                matches.set(i);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the materials that occur in the listings.
+     *
+     * @return The distinct material ordinals in ascending order, without unknown materials.
+     */
+    public int[] distinctMaterials() {
+        return Arrays.stream(materialOrdinals).filter(ordinal -> ordinal >= 0).distinct().sorted().toArray();
+    }
+
+    /**
+     * Ranks values so that equal values get equal ranks and a smaller value a smaller rank.
+     */
+    private int[] rank(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int[] ranks = new int[size];
+        for (int i = 0; i < size; i++) {
+            ranks[i] = Arrays.binarySearch(sorted, values[i]);
+        }
+        return ranks;
+    }
+
+    private int[] rank(String[] values) {
+        String[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int[] ranks = new int[size];
+        for (int i = 0; i < size; i++) {
+            ranks[i] = Arrays.binarySearch(sorted, values[i]);
+        }
+        return ranks;
+    }
+
+    /**
+     * Sorts positions by a non-negative int key. Each key is packed with its position into one
+     * long, so a single primitive sort orders by key and then by position.
+     */
+    private int[] orderByRank(int[] keys, boolean descending) {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            long key = descending ? Integer.MAX_VALUE - keys[i] : keys[i];
+            packed[i] = (key << 32) | i;
+        }
+        Arrays.sort(packed);
+
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = (int) packed[i];
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,144 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message compiled into literal text and placeholder slots, so it can be rendered in one pass.
+ * <p>
+ * A placeholder is {@code {name}}, optionally preceded by {@code $}. A replacement key matches a
+ * slot if it is the exact placeholder text, so both {@code "{price}"} and {@code "${price}"} fill
+ * {@code ${price}}; the first one keeps the dollar sign. Placeholders without a replacement are
+ * left as they are, the same as with chained {@link String#replace}. Unlike chained replaces,
+ * replacement values are never searched for further placeholders. Immutable.
+ */
+public final class MessageTemplate {
+
+    public static final MessageTemplate EMPTY = compile("");
+
+    private final String text;
+    private final String[] literals; // One more than slots: text before, between and after them
+    private final String[] slots; // Placeholder text as written, e.g. "{id}" or "${price}"
+    private final int literalLength;
+
+    private MessageTemplate(String text, String[] literals, String[] slots) {
+        this.text = text;
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a message. Color codes should already be translated.
+     *
+     * @param text The message.
+     * @return The template.
+     */
+    public static MessageTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int open = text.indexOf('{', i);
+            if (open < 0) {
+                break;
+            }
+            int close = text.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            if (!isPlaceholderName(text, open + 1, close)) {
+                i = open + 1;
+                continue;
+            }
+            int slotStart = open > literalStart && text.charAt(open - 1) == '$' ? open - 1 : open;
+            literals.add(text.substring(literalStart, slotStart));
+            slots.add(text.substring(slotStart, close + 1));
+            literalStart = close + 1;
+            i = literalStart;
+        }
+        literals.add(text.substring(literalStart));
+        return new MessageTemplate(text, literals.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+
+    private static boolean isPlaceholderName(String text, int start, int end) {
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!(c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renders the message.
+     *
+     * @param prefix Text put in front of the message, or an empty string.
+     * @param replacements Pairs of placeholder and value, e.g. "{player}", "Steve".
+     * @return The rendered message.
+     */
+    public String render(String prefix, String... replacements) {
+        if (slots.length == 0) {
+            return prefix.isEmpty() ? text : prefix.concat(text);
+        }
+
+        int length = prefix.length() + literalLength;
+        for (int i = 1; i < replacements.length; i += 2) {
+            length += replacements[i].length();
+        }
+        StringBuilder builder = new StringBuilder(length + 16);
+        builder.append(prefix);
+        for (int slot = 0; slot < slots.length; slot++) {
+            builder.append(literals[slot]);
+            appendSlot(builder, slots[slot], replacements);
+        }
+        builder.append(literals[slots.length]);
+        return builder.toString();
+    }
+
+    private static void appendSlot(StringBuilder builder, String slot, String[] replacements) {
+        boolean dollar = slot.charAt(0) == '$';
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            String key = replacements[i];
+            if (key.equals(slot)) {
+                builder.append(replacements[i + 1]);
+                return;
+            }
+            if (dollar && key.length() == slot.length() - 1 && slot.startsWith(key, 1)) {
+                builder.append('$').append(replacements[i + 1]);
+                return;
+            }
+        }
+        builder.append(slot);
+    }
+
+    /**
+     * @return true if the message has no placeholders.
+     */
+    public boolean isConstant() {
+        return slots.length == 0;
+    }
+
+    /**
+     * @return true if the message is empty.
+     */
+    public boolean isEmpty() {
+        return text.isEmpty();
+    }
+
+    /**
+     * @return The message as compiled, with its placeholders.
+     */
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,221 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of orders in price-time priority, stored in parallel primitive arrays.
+ * <p>
+ * Each entry is an order id with its unit price, time and remaining quantity. A bid heap puts the
+ * highest price first, an ask heap the lowest; equal prices are ordered by time, then by id.
+ * Removing or updating an arbitrary entry is a linear scan, which is fine because that only
+ * happens when a listing is bought directly or cancelled. Not thread-safe.
+ */
+public class OrderHeap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean highestPriceFirst;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param highestPriceFirst true for bids, false for asks.
+     */
+    public OrderHeap(boolean highestPriceFirst) {
+        this.highestPriceFirst = highestPriceFirst;
+    }
+
+    /**
+     * Adds an order.
+     *
+     * @param id The order id.
+     * @param price The unit price.
+     * @param time The time the order was placed, in milliseconds.
+     * @param quantity The remaining quantity.
+     */
+    public void add(int id, long price, long time, int quantity) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            times = Arrays.copyOf(times, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        ids[size] = id;
+        prices[size] = price;
+        times[size] = time;
+        quantities[size] = quantity;
+        siftUp(size++);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int peekId() {
+        return ids[0];
+    }
+
+    public long peekPrice() {
+        return prices[0];
+    }
+
+    public long peekTime() {
+        return times[0];
+    }
+
+    public int peekQuantity() {
+        return quantities[0];
+    }
+
+    /**
+     * Changes the quantity of the best order. The quantity does not affect the priority.
+     *
+     * @param quantity The new remaining quantity.
+     */
+    public void setPeekQuantity(int quantity) {
+        quantities[0] = quantity;
+    }
+
+    /**
+     * Removes the best order.
+     */
+    public void poll() {
+        removeAt(0);
+    }
+
+    /**
+     * Removes an order by id.
+     *
+     * @param id The order id.
+     * @return true if the order was in the heap.
+     */
+    public boolean remove(int id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Changes the quantity of an order by id.
+     *
+     * @param id The order id.
+     * @param quantity The new remaining quantity.
+     * @return true if the order was in the heap.
+     */
+    public boolean setQuantity(int id, int quantity) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        quantities[index] = quantity;
+        return true;
+    }
+
+    /**
+     * Gets the quantity of an order by id.
+     *
+     * @param id The order id.
+     * @return The remaining quantity, or -1 if the order is not in the heap.
+     */
+    public int getQuantity(int id) {
+        int index = indexOf(id);
+        return index < 0 ? -1 : quantities[index];
+    }
+
+    private int indexOf(int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        size--;
+        if (index == size) {
+            return;
+        }
+        move(size, index);
+        siftDown(index);
+        siftUp(index);
+    }
+
+    /**
+     * Checks whether the entry at a comes before the entry at b.
+     */
+    private boolean before(int a, int b) {
+        if (prices[a] != prices[b]) {
+            return highestPriceFirst ? prices[a] > prices[b] : prices[a] < prices[b];
+        }
+        if (times[a] != times[b]) {
+            return times[a] < times[b];
+        }
+        return ids[a] < ids[b];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int best = left;
+            int right = left + 1;
+            if (right < size && before(right, left)) {
+                best = right;
+            }
+            if (!before(best, index)) {
+                return;
+            }
+            swap(index, best);
+            index = best;
+        }
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        prices[to] = prices[from];
+        times[to] = times[from];
+        quantities[to] = quantities[from];
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        long price = prices[a];
+        prices[a] = prices[b];
+        prices[b] = price;
+        long time = times[a];
+        times[a] = times[b];
+        times[b] = time;
+        int quantity = quantities[a];
+        quantities[a] = quantities[b];
+        quantities[b] = quantity;
+    }
+}
@@ -1,6 +1,7 @@
 package pl.dsocraft.auctionhouse.utils;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Utility class for handling pagination in GUIs.
@@ -135,6 +136,20 @@ public class Paginator<T> {
         return false;
     }
 
+    /**
+     * Removes all items matching the filter, keeping the current page if it still exists.
+     *
+     * @param filter The filter selecting the items to remove.
+     * @return true if any item was removed, false otherwise.
+     */
+    public boolean removeItems(Predicate<? super T> filter) {
+        boolean removed = items.removeIf(filter);
+        if (removed && currentPage >= getTotalPages()) {
+            goToLastPage();
+        }
+        return removed;
+    }
+
     /**
      * Gets the total number of items.
      *
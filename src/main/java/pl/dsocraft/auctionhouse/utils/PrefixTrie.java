@@ -0,0 +1,124 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Prefix tree of names with a use count, for tab completion.
+ * <p>
+ * Names are matched case-insensitively and completed with their original spelling. Each name
+ * is counted, so a name stays in the trie until it was removed as often as it was added.
+ * A lookup walks the prefix and then collects names in alphabetical order until the limit is
+ * reached, so it costs the length of the prefix plus the nodes of the returned names.
+ * Thread-safe.
+ */
+public class PrefixTrie {
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * Adds one use of a name.
+     *
+     * @param name The name.
+     */
+    public synchronized void add(String name) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        String key = name.toLowerCase();
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            node.below++;
+        }
+        if (node.count++ == 0) {
+            size++;
+        }
+        node.name = name;
+    }
+
+    /**
+     * Removes one use of a name. Nodes without any names below them are pruned.
+     *
+     * @param name The name.
+     */
+    public synchronized void remove(String name) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        String key = name.toLowerCase();
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        if (node == null || node.count == 0) {
+            return;
+        }
+
+        node.count--;
+        if (node.count == 0) {
+            node.name = null;
+            size--;
+        }
+
+        Node parent = root;
+        for (int i = 0; i < key.length(); i++) {
+            Node child = parent.children.get(key.charAt(i));
+            if (--child.below == 0) {
+                parent.children.remove(key.charAt(i));
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Gets the names starting with a prefix, in alphabetical order.
+     *
+     * @param prefix The prefix, matched case-insensitively.
+     * @param limit The maximum number of names.
+     * @return The names.
+     */
+    public synchronized List<String> complete(String prefix, int limit) {
+        List<String> results = new ArrayList<>();
+        Node node = root;
+        String key = prefix.toLowerCase();
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        if (node == null || limit <= 0) {
+            return results;
+        }
+
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty() && results.size() < limit) {
+            Node current = stack.pop();
+            if (current.count > 0) {
+                results.add(current.name);
+            }
+            for (Node child : current.children.descendingMap().values()) {
+                stack.push(child); // Pushed in reverse so the smallest child is visited first
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Gets the number of distinct names.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private static class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private String name;
+        private int count; // Uses of the name ending here
+        private int below; // Uses of names ending here or further down
+    }
+}
@@ -0,0 +1,192 @@
+package pl.dsocraft.auctionhouse.utils;
+
+/**
+ * Parses and formats prices with an optional k, m or b suffix, e.g. "250", "1.5k" or "2.25b".
+ * <p>
+ * Both directions use exact integer arithmetic: "1.15b" is exactly 1,150,000,000, digits below
+ * one coin are cut off, and a value that does not fit a long is reported instead of wrapping.
+ */
+public final class PriceCodec {
+
+    /** Returned by {@link #parse} for text that is not a price. */
+    public static final long INVALID = -1;
+    /** Returned by {@link #parse} for a price that does not fit a long. */
+    public static final long TOO_LARGE = -2;
+
+    private PriceCodec() {
+    }
+
+    /**
+     * Parses a price (e.g., "100", "50k", "2.5m", "1b", ".5k"). The suffix is case-insensitive,
+     * surrounding whitespace is ignored and a comma may be used as the decimal point. Fractions
+     * of a coin are cut off, so "0.5" is 0.
+     *
+     * @param text The text to parse.
+     * @return The price, {@link #INVALID} if the text is not a price, or {@link #TOO_LARGE}.
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return INVALID;
+        }
+
+        long multiplier = 1;
+        int scale = 0; // log10 of the multiplier
+        switch (text.charAt(end - 1)) {
+            case 'k':
+            case 'K':
+                multiplier = 1_000;
+                scale = 3;
+                end--;
+                break;
+            case 'm':
+            case 'M':
+                multiplier = 1_000_000;
+                scale = 6;
+                end--;
+                break;
+            case 'b':
+            case 'B':
+                multiplier = 1_000_000_000;
+                scale = 9;
+                end--;
+                break;
+            default:
+                break;
+        }
+
+        long whole = 0;
+        long fraction = 0; // The first `scale` fraction digits, padded with zeros below
+        int fractionDigits = 0;
+        boolean point = false;
+        boolean digitAfterPoint = false;
+        boolean tooLarge = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == ',') {
+                if (point) {
+                    return INVALID;
+                }
+                point = true;
+            } else if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (point) {
+                    digitAfterPoint = true;
+                    if (fractionDigits < scale) {
+                        fraction = fraction * 10 + digit;
+                        fractionDigits++;
+                    }
+                } else if (whole > (Long.MAX_VALUE - digit) / 10) {
+                    tooLarge = true; // Keep checking the rest is a valid price
+                } else {
+                    whole = whole * 10 + digit;
+                }
+            } else {
+                return INVALID;
+            }
+        }
+        if (point && !digitAfterPoint) {
+            return INVALID; // "1." and "." are not prices, ".5" is
+        }
+        if (!point && end == start) {
+            return INVALID; // Only a suffix
+        }
+        if (tooLarge || whole > Long.MAX_VALUE / multiplier) {
+            return TOO_LARGE;
+        }
+
+        for (int i = fractionDigits; i < scale; i++) {
+            fraction *= 10;
+        }
+        long value = whole * multiplier;
+        if (value > Long.MAX_VALUE - fraction) {
+            return TOO_LARGE;
+        }
+        return value + fraction;
+    }
+
+    /**
+     * Formats a price for display, e.g. 1500 as "1.50k". Prices from 1,000 on are shown with
+     * two decimals of the largest suffix, rounded half up.
+     *
+     * @param price The price to format.
+     * @param decimalSeparator The character put before the decimals.
+     * @return The formatted price.
+     */
+    public static String format(long price, char decimalSeparator) {
+        if (price >= 1_000_000_000) {
+            return formatScaled(price, 1_000_000_000, 'b', decimalSeparator);
+        } else if (price >= 1_000_000) {
+            return formatScaled(price, 1_000_000, 'm', decimalSeparator);
+        } else if (price >= 1_000) {
+            return formatScaled(price, 1_000, 'k', decimalSeparator);
+        } else {
+            return Long.toString(price);
+        }
+    }
+
+    /**
+     * Formats a price without losing any digits, with the largest suffix that keeps it exact,
+     * e.g. 1500 as "1.5k" and 1234 as "1.234k". {@link #parse} reads the result back as the same
+     * price, so use this for text the player may send back, unlike {@link #format}.
+     *
+     * @param price The price to format, not negative.
+     * @return The formatted price.
+     */
+    public static String formatExact(long price) {
+        if (price >= 1_000_000_000) {
+            return formatExactScaled(price, 1_000_000_000, 9, 'b');
+        } else if (price >= 1_000_000) {
+            return formatExactScaled(price, 1_000_000, 6, 'm');
+        } else if (price >= 1_000) {
+            return formatExactScaled(price, 1_000, 3, 'k');
+        } else {
+            return Long.toString(price);
+        }
+    }
+
+    private static String formatExactScaled(long price, long unit, int scale, char suffix) {
+        StringBuilder builder = new StringBuilder(24);
+        builder.append(price / unit);
+        long rest = price % unit;
+        if (rest != 0) {
+            builder.append('.');
+            int digits = scale;
+            while (rest % 10 == 0) {
+                rest /= 10;
+                digits--;
+            }
+            String fraction = Long.toString(rest);
+            for (int i = fraction.length(); i < digits; i++) {
+                builder.append('0');
+            }
+            builder.append(fraction);
+        }
+        return builder.append(suffix).toString();
+    }
+
+    private static String formatScaled(long price, long unit, char suffix, char decimalSeparator) {
+        long whole = price / unit;
+        long hundredths = ((price % unit) * 100 + unit / 2) / unit;
+        if (hundredths == 100) {
+            whole++;
+            hundredths = 0;
+        }
+        StringBuilder builder = new StringBuilder(24);
+        builder.append(whole).append(decimalSeparator);
+        if (hundredths < 10) {
+            builder.append('0');
+        }
+        return builder.append(hundredths).append(suffix).toString();
+    }
+}
@@ -0,0 +1,134 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile estimator using the P-square algorithm (Jain and Chlamtac).
+ * <p>
+ * Keeps five markers regardless of how many values were added, so every update is O(1)
+ * and the memory footprint is constant. Not thread-safe.
+ */
+public class QuantileEstimator {
+
+    private final double quantile;
+    private final double[] heights = new double[5];
+    private final int[] positions = new int[5];
+    private final double[] desiredPositions = new double[5];
+    private final double[] increments;
+    private long count;
+
+    /**
+     * Creates a new estimator.
+     *
+     * @param quantile The quantile to estimate, between 0 and 1 (e.g. 0.5 for the median).
+     */
+    public QuantileEstimator(double quantile) {
+        if (quantile <= 0 || quantile >= 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        this.quantile = quantile;
+        this.increments = new double[]{0, quantile / 2, quantile, (1 + quantile) / 2, 1};
+    }
+
+    /**
+     * Adds a value to the estimator.
+     *
+     * @param value The observed value.
+     */
+    public void add(double value) {
+        if (count < 5) {
+            heights[(int) count++] = value;
+            if (count == 5) {
+                Arrays.sort(heights);
+                for (int i = 0; i < 5; i++) {
+                    positions[i] = i;
+                }
+                desiredPositions[0] = 0;
+                desiredPositions[1] = 2 * quantile;
+                desiredPositions[2] = 4 * quantile;
+                desiredPositions[3] = 2 + 2 * quantile;
+                desiredPositions[4] = 4;
+            }
+            return;
+        }
+        count++;
+
+        // Find the cell the value falls into, extending the extremes if needed
+        int cell;
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[4]) {
+            heights[4] = value;
+            cell = 3;
+        } else {
+            cell = 0;
+            while (value >= heights[cell + 1]) {
+                cell++;
+            }
+        }
+
+        for (int i = cell + 1; i < 5; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            desiredPositions[i] += increments[i];
+        }
+
+        // Adjust the three middle markers if they drifted from their desired positions
+        for (int i = 1; i <= 3; i++) {
+            double drift = desiredPositions[i] - positions[i];
+            if ((drift >= 1 && positions[i + 1] - positions[i] > 1)
+                    || (drift <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int step = drift >= 0 ? 1 : -1;
+                double candidate = parabolic(i, step);
+                if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+                    heights[i] = candidate;
+                } else {
+                    heights[i] = linear(i, step);
+                }
+                positions[i] += step;
+            }
+        }
+    }
+
+    /**
+     * Gets the current estimate of the quantile.
+     *
+     * @return The estimate, or NaN if no values were added.
+     */
+    public double get() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count < 5) {
+            // Too few values for the markers, use the exact quantile
+            double[] sorted = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.round(quantile * (count - 1))];
+        }
+        return heights[2];
+    }
+
+    /**
+     * Gets the number of values added.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private double parabolic(int i, int step) {
+        double spanAll = positions[i + 1] - positions[i - 1];
+        double spanRight = positions[i + 1] - positions[i];
+        double spanLeft = positions[i] - positions[i - 1];
+        return heights[i] + step / spanAll * (
+                (spanLeft + step) * (heights[i + 1] - heights[i]) / spanRight
+                        + (spanRight - step) * (heights[i] - heights[i - 1]) / spanLeft);
+    }
+
+    private double linear(int i, int step) {
+        return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+    }
+}
@@ -0,0 +1,57 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Joins concurrent requests for the same key into one load: while a load is running, later
+ * requests for its key get the same future instead of starting another one.
+ *
+ * @param <K> The key type.
+ * @param <V> The result type.
+ */
+public class RequestCoalescer<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Runnable onCoalesced;
+
+    /**
+     * @param onCoalesced Called whenever a request joins a running load, e.g. to count it.
+     */
+    public RequestCoalescer(Runnable onCoalesced) {
+        this.onCoalesced = onCoalesced;
+    }
+
+    /**
+     * Gets the running load of a key, or starts one.
+     *
+     * @param key The key.
+     * @param load Starts the load; only called if none is running for the key.
+     * @return The future of the running load.
+     */
+    public CompletableFuture<V> load(K key, Supplier<CompletableFuture<V>> load) {
+        CompletableFuture<V> started = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, started);
+        if (running != null) {
+            onCoalesced.run();
+            return running;
+        }
+
+        try {
+            load.get().whenComplete((value, error) -> {
+                inFlight.remove(key, started);
+                if (error != null) {
+                    started.completeExceptionally(error);
+                } else {
+                    started.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, started);
+            started.completeExceptionally(e);
+        }
+        return started;
+    }
+}
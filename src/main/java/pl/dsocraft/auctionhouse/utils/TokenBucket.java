@@ -0,0 +1,42 @@
+package pl.dsocraft.auctionhouse.utils;
+
+/**
+ * A token bucket: holds up to {@code capacity} tokens and refills at a fixed rate, so short bursts
+ * are allowed while the sustained rate is capped. Thread-safe.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity The most tokens the bucket holds, i.e. the largest burst.
+     * @param refillPerSecond The tokens added per second.
+     */
+    public TokenBucket(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes one token if there is one.
+     *
+     * @return true if a token was taken, false if the bucket is empty.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the virtual-thread executor used by {@link IoExecutor}.
+ * <p>
+ * This source set is only compiled by the {@code java21} Maven profile; the class is looked up
+ * reflectively, so a Java 17 build simply does not contain it.
+ */
+public final class VirtualThreadExecutors {
+
+    private VirtualThreadExecutors() {
+    }
+
+    public static ExecutorService newExecutor() {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("DSOAuctionHouse-VIO-", 0).factory());
+    }
+}
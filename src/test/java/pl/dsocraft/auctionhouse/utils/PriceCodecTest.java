@@ -0,0 +1,103 @@
+package pl.dsocraft.auctionhouse.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Property tests for {@link PriceCodec}: random prices of every magnitude, plus the suffix and
+ * overflow boundaries, must survive a format and parse round trip.
+ */
+class PriceCodecTest {
+
+    private static final int SAMPLES = 200_000;
+    private static final long[] BOUNDARIES = {
+            0, 1, 9, 10, 999, 1_000, 1_001, 1_005, 1_009, 1_010, 999_994, 999_995, 999_999,
+            1_000_000, 1_000_001, 999_999_999, 1_000_000_000, 1_000_000_001, 1_150_000_000,
+            Long.MAX_VALUE / 1_000_000_000 * 1_000_000_000, Long.MAX_VALUE - 1, Long.MAX_VALUE
+    };
+
+    @Test
+    void formatExactRoundTrips() {
+        for (long price : BOUNDARIES) {
+            assertEquals(price, PriceCodec.parse(PriceCodec.formatExact(price)), () -> "price " + price);
+        }
+        Random random = new Random(45);
+        for (int i = 0; i < SAMPLES; i++) {
+            long price = randomPrice(random);
+            String text = PriceCodec.formatExact(price);
+            assertEquals(price, PriceCodec.parse(text), () -> "price " + price + " formatted as " + text);
+        }
+    }
+
+    @Test
+    void formatIsWithinRounding() {
+        for (long price : BOUNDARIES) {
+            assertWithinRounding(price, '.');
+            assertWithinRounding(price, ',');
+        }
+        Random random = new Random(1045);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertWithinRounding(randomPrice(random), i % 2 == 0 ? '.' : ',');
+        }
+    }
+
+    @Test
+    void parsesSuffixesExactly() {
+        assertEquals(1_150_000_000L, PriceCodec.parse("1.15b"));
+        assertEquals(1_500L, PriceCodec.parse("1.5k"));
+        assertEquals(1_500L, PriceCodec.parse(" 1,5K "));
+        assertEquals(500L, PriceCodec.parse(".5k"));
+        assertEquals(2_250_000L, PriceCodec.parse("2.25m"));
+        assertEquals(1L, PriceCodec.parse("0.0019k")); // Digits below one coin are cut off
+        assertEquals(0L, PriceCodec.parse("0.5"));
+    }
+
+    @Test
+    void reportsOverflow() {
+        assertEquals(Long.MAX_VALUE, PriceCodec.parse(Long.toString(Long.MAX_VALUE)));
+        assertEquals(Long.MAX_VALUE, PriceCodec.parse("9223372036.854775807b"));
+        assertEquals(Long.MAX_VALUE, PriceCodec.parse("9223372036854775.807k"));
+        assertEquals(PriceCodec.TOO_LARGE, PriceCodec.parse("9223372036854775808"));
+        assertEquals(PriceCodec.TOO_LARGE, PriceCodec.parse("9223372036.854775808b"));
+        assertEquals(PriceCodec.TOO_LARGE, PriceCodec.parse("9223372037b"));
+        assertEquals(PriceCodec.TOO_LARGE, PriceCodec.parse("9223372036854776m"));
+        assertEquals(PriceCodec.TOO_LARGE, PriceCodec.parse("99999999999999999999999999k"));
+
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        Random random = new Random(2045);
+        for (int i = 0; i < SAMPLES; i++) {
+            BigInteger price = max.add(new BigInteger(64 + random.nextInt(64), random)).add(BigInteger.ONE);
+            assertEquals(PriceCodec.TOO_LARGE, PriceCodec.parse(price.toString()), () -> "price " + price);
+        }
+    }
+
+    @Test
+    void rejectsInvalidText() {
+        String[] invalid = {null, "", "  ", "k", "b", ".", "1.", ".k", "1..2", "1.2.3", "1kk", "k1", "-5", "+5",
+                "1e3", "abc", "1 000", "0x10"};
+        for (String text : invalid) {
+            assertEquals(PriceCodec.INVALID, PriceCodec.parse(text), () -> "text " + text);
+        }
+    }
+
+    private static void assertWithinRounding(long price, char decimalSeparator) {
+        String text = PriceCodec.format(price, decimalSeparator);
+        long parsed = PriceCodec.parse(text);
+        long unit = price >= 1_000_000_000 ? 1_000_000_000 : price >= 1_000_000 ? 1_000_000 : price >= 1_000 ? 1_000 : 1;
+        // Two decimals of the suffix, rounded half up
+        assertTrue(Math.abs(parsed - price) <= unit / 200, () -> "price " + price + " formatted as " + text);
+    }
+
+    /**
+     * A random price whose magnitude is spread evenly over all 63 bits, so small prices and every
+     * suffix are as likely as huge ones.
+     */
+    private static long randomPrice(Random random) {
+        return (random.nextLong() & Long.MAX_VALUE) >>> random.nextInt(63);
+    }
+}